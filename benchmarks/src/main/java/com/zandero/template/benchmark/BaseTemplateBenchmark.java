@@ -0,0 +1,91 @@
+package com.zandero.template.benchmark;
+
+import com.github.mustachejava.Mustache;
+import com.zandero.template.BaseTemplate;
+import com.zandero.template.MustacheUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering of inner template into a stored base template and directly without storing it,
+ * and into a chain of layouts with named slots
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BaseTemplateBenchmark {
+
+	@Param({"10", "100", "1000"})
+	public int items;
+
+	private BaseTemplate base;
+
+	private Mustache layout;
+
+	private Mustache content;
+
+	private BaseTemplate chained;
+
+	private BaseTemplate parallel;
+
+	private final List<String> chain = Arrays.asList("body", "content");
+
+	private final Map<String, Mustache> slots = new HashMap<>();
+
+	private Map<String, Object> data;
+
+	@Setup(Level.Trial)
+	public void setup() {
+
+		MustacheUtils mustache = new MustacheUtils();
+		layout = mustache.load(Fixtures.LAYOUT);
+		content = mustache.load(Fixtures.CONTENT);
+
+		base = new BaseTemplate();
+		base.add(layout);
+
+		Mustache page = mustache.compile("<html><head>{{{head}}}</head><body>{{{body}}}<aside>{{{sidebar}}}</aside></body></html>", "chain.html");
+		Mustache section = mustache.compile("<main>{{{content}}}</main>", "section.html");
+		slots.put("head", mustache.compile("<title>{{title}}</title>", "head.html"));
+		slots.put("sidebar", content);
+
+		chained = new BaseTemplate(mustache);
+		chained.add(page, "body");
+		chained.add(section);
+
+		parallel = new BaseTemplate(mustache);
+		parallel.add(page, "body");
+		parallel.add(section);
+		parallel.setParallelSlots(true);
+
+		data = Fixtures.map(items);
+	}
+
+	@Benchmark
+	public String render() {
+		return base.render("content", content, data);
+	}
+
+	@Benchmark
+	public String direct() {
+		return BaseTemplate.direct(layout, content, data);
+	}
+
+	@Benchmark
+	public String renderChain() {
+		return chained.render(chain, content, slots, data);
+	}
+
+	@Benchmark
+	public String renderChainParallelSlots() {
+		return parallel.render(chain, content, slots, data);
+	}
+}
@@ -0,0 +1,66 @@
+package com.zandero.template.benchmark;
+
+import com.github.mustachejava.Mustache;
+import com.zandero.template.BatchResult;
+import com.zandero.template.MustacheUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scaling of batch rendering with parallelism, one operation renders the whole batch
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchBenchmark {
+
+	private static final int BATCH = 1000;
+
+	@Param({"1", "2", "4", "8"})
+	public int parallelism;
+
+	@Param({"true", "false"})
+	public boolean ordered;
+
+	private MustacheUtils mustache;
+
+	private Mustache template;
+
+	private List<Map<String, Object>> batch;
+
+	private ExecutorService executor;
+
+	@Setup(Level.Trial)
+	public void setup() {
+
+		mustache = new MustacheUtils();
+		template = mustache.load(Fixtures.PAGE);
+
+		batch = new ArrayList<>(BATCH);
+		for (int i = 0; i < BATCH; i++) {
+			batch.add(Fixtures.map(10));
+		}
+
+		executor = Executors.newFixedThreadPool(parallelism);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Benchmark
+	public BatchResult<Map<String, Object>> renderAll(Blackhole blackhole) {
+		return mustache.renderAll(template, batch, (index, data, output) -> blackhole.consume(output), ordered, executor, parallelism);
+	}
+}
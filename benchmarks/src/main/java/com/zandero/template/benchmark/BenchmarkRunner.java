@@ -0,0 +1,46 @@
+package com.zandero.template.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs benchmarks with allocation profiling and stores results as JSON, so runs can be compared across versions
+ * Accepts standard JMH command line options, for instance: RenderBenchmark -p items=100
+ */
+public final class BenchmarkRunner {
+
+	private static final String RESULT = "jmh-result.json";
+
+	private BenchmarkRunner() {
+		// hide constructor
+	}
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+
+		CommandLineOptions command = new CommandLineOptions(args);
+
+		OptionsBuilder builder = new OptionsBuilder();
+		builder.parent(command);
+
+		if (command.getIncludes().isEmpty()) {
+			builder.include(BenchmarkRunner.class.getPackage().getName() + ".*Benchmark");
+		}
+
+		if (!command.getResult().hasValue()) {
+			builder.result(RESULT);
+		}
+
+		if (!command.getResultFormat().hasValue()) {
+			builder.resultFormat(ResultFormatType.JSON);
+		}
+
+		Options options = builder.addProfiler(GCProfiler.class).build();
+		new Runner(options).run();
+	}
+}
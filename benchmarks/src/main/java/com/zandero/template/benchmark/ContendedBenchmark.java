@@ -0,0 +1,57 @@
+package com.zandero.template.benchmark;
+
+import com.github.mustachejava.Mustache;
+import com.zandero.template.BaseTemplate;
+import com.zandero.template.MustacheUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared cache, factory and base template used from all available threads at once
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+public class ContendedBenchmark {
+
+	private MustacheUtils mustache;
+
+	private BaseTemplate base;
+
+	private Mustache content;
+
+	private Map<String, Object> data;
+
+	@Setup(Level.Trial)
+	public void setup() {
+
+		mustache = new MustacheUtils();
+		content = mustache.load(Fixtures.CONTENT);
+
+		base = new BaseTemplate();
+		base.add(mustache.load(Fixtures.LAYOUT));
+
+		data = Fixtures.map(10);
+	}
+
+	@Benchmark
+	public Mustache load() {
+		return mustache.load(Fixtures.PAGE);
+	}
+
+	@Benchmark
+	public String loadAndRender() {
+		return mustache.render(mustache.load(Fixtures.PAGE), data);
+	}
+
+	@Benchmark
+	public String renderBase() {
+		return base.render("content", content, data);
+	}
+}
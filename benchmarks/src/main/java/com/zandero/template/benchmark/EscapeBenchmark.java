@@ -0,0 +1,101 @@
+package com.zandero.template.benchmark;
+
+import com.github.mustachejava.Mustache;
+import com.github.mustachejava.util.HtmlEscaper;
+import com.zandero.template.MustacheFactoryProvider;
+import com.zandero.template.MustacheUtils;
+import com.zandero.template.ValueEscaper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTML escaping of mustache compared to {@link ValueEscaper#HTML}, on values with nothing to escape (clean)
+ * and values with an escapable char every few chars (dirty), directly and when rendering a table of 100 such values
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EscapeBenchmark {
+
+	@Param({"16", "256", "4096"})
+	public int length;
+
+	@Param({"clean", "dirty"})
+	public String input;
+
+	private String value;
+
+	private StringWriter writer;
+
+	private MustacheUtils mustache;
+
+	private MustacheUtils html;
+
+	private Mustache mustacheTemplate;
+
+	private Mustache htmlTemplate;
+
+	private Map<String, Object> table;
+
+	@Setup(Level.Trial)
+	@SuppressWarnings("unchecked")
+	public void setup() {
+
+		String pattern = "clean".equals(input) ? "Lorem ipsum dolor sit amet " : "Tom & Jerry <b>\"x\"</b> ";
+
+		StringBuilder builder = new StringBuilder();
+		while (builder.length() < length) {
+			builder.append(pattern);
+		}
+
+		value = builder.substring(0, length);
+		writer = new StringWriter(length * 6);
+
+		MustacheFactoryProvider original = new MustacheFactoryProvider();
+		original.setEscaper(ValueEscaper.MUSTACHE);
+		mustache = new MustacheUtils(original);
+		mustacheTemplate = mustache.load(Fixtures.PAGE);
+
+		html = new MustacheUtils(new MustacheFactoryProvider());
+		htmlTemplate = html.load(Fixtures.PAGE);
+
+		table = Fixtures.map(100);
+		for (Object item : (List<?>) table.get("items")) {
+			((Map<String, Object>) item).put("name", value);
+		}
+	}
+
+	@Benchmark
+	public StringWriter escapeMustache() {
+
+		writer.getBuffer().setLength(0);
+		HtmlEscaper.escape(value, writer);
+		return writer;
+	}
+
+	@Benchmark
+	public StringWriter escapeHtml() throws IOException {
+
+		writer.getBuffer().setLength(0);
+		ValueEscaper.HTML.escape(value, writer);
+		return writer;
+	}
+
+	@Benchmark
+	public String renderMustache() {
+		return mustache.render(mustacheTemplate, table);
+	}
+
+	@Benchmark
+	public String renderHtml() {
+		return html.render(htmlTemplate, table);
+	}
+}
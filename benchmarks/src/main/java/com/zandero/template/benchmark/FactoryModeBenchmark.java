@@ -0,0 +1,69 @@
+package com.zandero.template.benchmark;
+
+import com.github.mustachejava.Mustache;
+import com.zandero.template.MustacheFactoryProvider;
+import com.zandero.template.MustacheUtils;
+import com.zandero.template.TemplateCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single shared mustache factory against a factory per thread, used from all available threads at once
+ * Memory is compared through the GC profiler and number of factories printed once done
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+public class FactoryModeBenchmark {
+
+	@Param({"SHARED", "PER_THREAD"})
+	public MustacheFactoryProvider.Mode mode;
+
+	private MustacheFactoryProvider factory;
+
+	private MustacheUtils cached;
+
+	private MustacheUtils uncached;
+
+	private String source;
+
+	private Map<String, Object> data;
+
+	@Setup(Level.Trial)
+	public void setup() {
+
+		factory = new MustacheFactoryProvider(mode);
+		cached = new MustacheUtils(factory);
+		uncached = new MustacheUtils(factory, new TemplateCache(0));
+
+		source = Fixtures.template(10);
+		data = Fixtures.map(10);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+
+		System.out.printf("%nFactories created: %d (%s)%n", factory.getFactoryCount(), mode);
+	}
+
+	@Benchmark
+	public Mustache compile() {
+		return cached.compile(source, "benchmark");
+	}
+
+	@Benchmark
+	public Mustache loadUncached() {
+		return uncached.load(Fixtures.PAGE);
+	}
+
+	@Benchmark
+	public String loadAndRender() {
+		return cached.render(cached.load(Fixtures.PAGE), data);
+	}
+}
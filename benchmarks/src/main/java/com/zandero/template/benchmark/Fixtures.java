@@ -0,0 +1,161 @@
+package com.zandero.template.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Templates and data shared by benchmarks
+ */
+final class Fixtures {
+
+	static final String PAGE = "/bench/page.html";
+
+	static final String LAYOUT = "/bench/layout.html";
+
+	static final String CONTENT = "/bench/content.html";
+
+	static final String INDENTED = "/bench/indented.html";
+
+	private static final ObjectMapper mapper = new ObjectMapper();
+
+	private Fixtures() {
+		// hide constructor
+	}
+
+	/**
+	 * @param blocks number of repeated static + dynamic blocks
+	 * @return template source with given number of blocks
+	 */
+	static String template(int blocks) {
+
+		StringBuilder out = new StringBuilder("<html><head><title>{{title}}</title></head><body>\n");
+		for (int i = 0; i < blocks; i++) {
+			out.append("<div class=\"block-").append(i).append("\">\n")
+			   .append("<h2>{{title}} ").append(i).append("</h2>\n")
+			   .append("<p>Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor.</p>\n")
+			   .append("<ul>{{#items}}<li>{{name}} - {{price}}{{#active}} (active){{/active}}</li>{{/items}}</ul>\n")
+			   .append("</div>\n");
+		}
+
+		return out.append("</body></html>\n").toString();
+	}
+
+	/**
+	 * Writes template into temporary file removed on exit
+	 *
+	 * @param template source
+	 * @return file path
+	 */
+	static Path templateFile(String template) {
+
+		try {
+			Path file = Files.createTempFile("benchmark", ".html");
+			file.toFile().deleteOnExit();
+			return Files.write(file, template.getBytes(StandardCharsets.UTF_8));
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	static List<Product> products(int count) {
+
+		List<Product> list = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			list.add(new Product("Product <" + i + ">", i + ".99 EUR", i % 3 == 0));
+		}
+
+		return list;
+	}
+
+	static Map<String, Object> map(int count) {
+
+		List<Map<String, Object>> items = new ArrayList<>(count);
+		for (Product product : products(count)) {
+			Map<String, Object> item = new HashMap<>();
+			item.put("name", product.getName());
+			item.put("price", product.getPrice());
+			item.put("active", product.isActive());
+			items.add(item);
+		}
+
+		Map<String, Object> data = new HashMap<>();
+		data.put("title", "Products");
+		data.put("items", items);
+		return data;
+	}
+
+	static Map<String, Object> pojo(int count) {
+
+		Map<String, Object> data = new HashMap<>();
+		data.put("title", "Products");
+		data.put("items", products(count));
+		return data;
+	}
+
+	/**
+	 * @param count       number of items
+	 * @param unusedBytes approximate size of fields not referenced by templates, per item
+	 * @return JSON tree
+	 */
+	static JsonNode json(int count, int unusedBytes) {
+
+		ObjectNode root = mapper.createObjectNode();
+		root.put("title", "Products");
+		root.put("description", filler(unusedBytes));
+
+		ArrayNode items = root.putArray("items");
+		for (Product product : products(count)) {
+			ObjectNode item = items.addObject();
+			item.put("name", product.getName());
+			item.put("price", product.getPrice());
+			item.put("active", product.isActive());
+			if (unusedBytes > 0) {
+				item.put("details", filler(unusedBytes));
+				item.putArray("tags").add("one").add("two").add("three");
+			}
+		}
+
+		return root;
+	}
+
+	/**
+	 * @param bytes approximate size of JSON document
+	 * @return UTF-8 encoded JSON document with about 1/3 of content referenced by templates
+	 */
+	static byte[] jsonBytes(int bytes) {
+
+		int item = 200; // approximate size of single item with details
+		int count = Math.max(1, bytes / item);
+
+		try {
+			return mapper.writeValueAsBytes(json(count, 100));
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static String filler(int length) {
+
+		StringBuilder out = new StringBuilder(length);
+		while (out.length() < length) {
+			out.append("filler text ");
+		}
+
+		out.setLength(length);
+		return out.toString();
+	}
+}
@@ -0,0 +1,73 @@
+package com.zandero.template.benchmark;
+
+import com.github.mustachejava.Mustache;
+import com.zandero.template.MustacheUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering JSON input of growing size (1 KB, 100 KB, 10 MB) from String, byte[], InputStream and direct ByteBuffer
+ * Only about a third of each document is referenced by template, with projection disabled the whole tree is built
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonInputBenchmark {
+
+	@Param({"1024", "102400", "10485760"})
+	public int bytes;
+
+	@Param({"true", "false"})
+	public boolean projection;
+
+	private MustacheUtils mustache;
+
+	private Mustache template;
+
+	private String json;
+
+	private byte[] jsonBytes;
+
+	private ByteBuffer jsonBuffer;
+
+	@Setup(Level.Trial)
+	public void setup() {
+
+		mustache = new MustacheUtils();
+		mustache.setJsonProjection(projection);
+		template = mustache.load(Fixtures.PAGE);
+
+		jsonBytes = Fixtures.jsonBytes(bytes);
+		json = new String(jsonBytes, StandardCharsets.UTF_8);
+
+		jsonBuffer = ByteBuffer.allocateDirect(jsonBytes.length);
+		jsonBuffer.put(jsonBytes).flip();
+	}
+
+	@Benchmark
+	public String fromString() {
+		return mustache.renderJson(template, json);
+	}
+
+	@Benchmark
+	public String fromBytes() {
+		return mustache.renderJson(template, jsonBytes);
+	}
+
+	@Benchmark
+	public String fromStream() {
+		return mustache.renderJson(template, new ByteArrayInputStream(jsonBytes));
+	}
+
+	@Benchmark
+	public String fromBuffer() {
+		return mustache.renderJson(template, jsonBuffer);
+	}
+}
@@ -0,0 +1,55 @@
+package com.zandero.template.benchmark;
+
+import com.github.mustachejava.Mustache;
+import com.zandero.template.MustacheUtils;
+import com.zandero.template.TemplateCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compiling multi megabyte templates: streamed (memory mapped) loadFile against reading the file into a String first
+ * Compare gc.alloc.rate.norm of both, the difference is the intermediate String no longer held while compiling
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class LargeTemplateBenchmark {
+
+	@Param({"1", "8"})
+	public int megabytes;
+
+	private MustacheUtils uncached;
+
+	private Path file;
+
+	@Setup(Level.Trial)
+	public void setup() {
+
+		uncached = new MustacheUtils(new TemplateCache(0));
+
+		StringBuilder template = new StringBuilder();
+		while (template.length() < megabytes * 1024 * 1024) {
+			template.append(Fixtures.template(10));
+		}
+
+		file = Fixtures.templateFile(template.toString());
+	}
+
+	@Benchmark
+	public Mustache loadFile() {
+		return uncached.loadFile(file.toString());
+	}
+
+	@Benchmark
+	public Mustache compileString() throws IOException {
+		return uncached.compile(new String(Files.readAllBytes(file), StandardCharsets.UTF_8), file.toString());
+	}
+}
@@ -0,0 +1,69 @@
+package com.zandero.template.benchmark;
+
+import com.github.mustachejava.Mustache;
+import com.zandero.template.MustacheUtils;
+import com.zandero.template.TemplateCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Template loading: compiling from source and serving from cache
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoadBenchmark {
+
+	@Param({"1", "10", "100"})
+	public int blocks;
+
+	private MustacheUtils cached;
+
+	private MustacheUtils uncached;
+
+	private String source;
+
+	private String file;
+
+	@Setup(Level.Trial)
+	public void setup() {
+
+		cached = new MustacheUtils();
+		uncached = new MustacheUtils(new TemplateCache(0));
+
+		source = Fixtures.template(blocks);
+		file = Fixtures.templateFile(source).toString();
+
+		cached.load(Fixtures.PAGE);
+		cached.loadFile(file);
+	}
+
+	@Benchmark
+	public Mustache compile() {
+		return cached.compile(source, "benchmark");
+	}
+
+	@Benchmark
+	public Mustache load() {
+		return cached.load(Fixtures.PAGE);
+	}
+
+	@Benchmark
+	public Mustache loadUncached() {
+		return uncached.load(Fixtures.PAGE);
+	}
+
+	@Benchmark
+	public Mustache loadFile() {
+		return cached.loadFile(file);
+	}
+
+	@Benchmark
+	public Mustache loadFileUncached() {
+		return uncached.loadFile(file);
+	}
+}
@@ -0,0 +1,63 @@
+package com.zandero.template.benchmark;
+
+import com.github.mustachejava.Mustache;
+import com.zandero.template.MustacheFactoryProvider;
+import com.zandero.template.MustacheUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering an indented page as written compared to the same page with static HTML minified at compile time
+ * Output sizes of both are printed once per trial
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MinifyBenchmark {
+
+	@Param({"10", "100", "1000"})
+	public int items;
+
+	private MustacheUtils plain;
+
+	private MustacheUtils minified;
+
+	private Mustache plainTemplate;
+
+	private Mustache minifiedTemplate;
+
+	private Map<String, Object> data;
+
+	@Setup(Level.Trial)
+	public void setup() {
+
+		plain = new MustacheUtils(new MustacheFactoryProvider());
+		plainTemplate = plain.load(Fixtures.INDENTED);
+
+		MustacheFactoryProvider provider = new MustacheFactoryProvider();
+		provider.setMinifyHtml(true);
+		minified = new MustacheUtils(provider);
+		minifiedTemplate = minified.load(Fixtures.INDENTED);
+
+		data = Fixtures.map(items);
+
+		int before = plain.render(plainTemplate, data).length();
+		int after = minified.render(minifiedTemplate, data).length();
+		System.out.printf("%nOutput size: %d chars, minified: %d chars (%.1f%%)%n", before, after, 100.0 * after / before);
+	}
+
+	@Benchmark
+	public String renderPlain() {
+		return plain.render(plainTemplate, data);
+	}
+
+	@Benchmark
+	public String renderMinified() {
+		return minified.render(minifiedTemplate, data);
+	}
+}
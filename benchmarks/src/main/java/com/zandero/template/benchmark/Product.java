@@ -0,0 +1,32 @@
+package com.zandero.template.benchmark;
+
+/**
+ * Plain object rendered through reflection
+ */
+public class Product {
+
+	private final String name;
+
+	private final String price;
+
+	private final boolean active;
+
+	public Product(String name, String price, boolean active) {
+
+		this.name = name;
+		this.price = price;
+		this.active = active;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getPrice() {
+		return price;
+	}
+
+	public boolean isActive() {
+		return active;
+	}
+}
@@ -0,0 +1,146 @@
+package com.zandero.template.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.mustachejava.Mustache;
+import com.zandero.template.AccessorObjectHandler;
+import com.zandero.template.MustacheFactoryProvider;
+import com.zandero.template.MustacheUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering of the same template with different kinds of data and outputs
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+
+	@Param({"10", "100", "1000"})
+	public int items;
+
+	private MustacheUtils mustache;
+
+	private Mustache template;
+
+	private MustacheUtils encoded;
+
+	private Mustache encodedTemplate;
+
+	private MustacheUtils pooled;
+
+	private MustacheUtils accessors;
+
+	private Mustache accessorsTemplate;
+
+	private Mustache strings;
+
+	private Map<String, Object> map;
+
+	private Map<String, Object> pojo;
+
+	private JsonNode json;
+
+	private String jsonString;
+
+	private byte[] jsonBytes;
+
+	@Setup(Level.Trial)
+	public void setup() {
+
+		mustache = new MustacheUtils();
+		template = mustache.load(Fixtures.PAGE);
+		MustacheFactoryProvider provider = new MustacheFactoryProvider();
+		provider.setStaticEncoding(StandardCharsets.UTF_8);
+		encoded = new MustacheUtils(provider);
+		encodedTemplate = encoded.load(Fixtures.PAGE);
+
+		pooled = new MustacheUtils();
+		pooled.setOutputBufferPool(Runtime.getRuntime().availableProcessors(), 1024 * 1024);
+
+		MustacheFactoryProvider accessorProvider = new MustacheFactoryProvider();
+		accessorProvider.setObjectHandler(new AccessorObjectHandler());
+		accessors = new MustacheUtils(accessorProvider);
+		accessorsTemplate = accessors.load(Fixtures.PAGE);
+
+		strings = mustache.compile("<p>{{one}} and {{two}} with {{three}}</p>", "strings");
+
+		map = Fixtures.map(items);
+		pojo = Fixtures.pojo(items);
+		json = Fixtures.json(items, 0);
+		jsonString = json.toString();
+		jsonBytes = jsonString.getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public String renderMap() {
+		return mustache.render(template, map);
+	}
+
+	@Benchmark
+	public String renderMapPooled() {
+		return pooled.render(template, map);
+	}
+
+	@Benchmark
+	public String renderPojo() {
+		return mustache.render(template, pojo);
+	}
+
+	@Benchmark
+	public String renderPojoAccessors() {
+		return accessors.render(accessorsTemplate, pojo);
+	}
+
+	@Benchmark
+	public String renderJsonNode() {
+		return mustache.render(template, json);
+	}
+
+	@Benchmark
+	public StringWriter renderToWriter() {
+
+		StringWriter writer = new StringWriter();
+		mustache.render(template, map, writer);
+		return writer;
+	}
+
+	@Benchmark
+	public ByteArrayOutputStream renderToStream() {
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		mustache.render(template, map, output, StandardCharsets.UTF_8);
+		return output;
+	}
+
+	@Benchmark
+	public ByteArrayOutputStream renderToStreamPreEncoded() {
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		encoded.render(encodedTemplate, map, output, StandardCharsets.UTF_8);
+		return output;
+	}
+
+	@Benchmark
+	public String renderStrings() {
+		return mustache.renderStrings(strings, "one", "1", "two", "2", "three", "3");
+	}
+
+	@Benchmark
+	public String renderJsonString() {
+		return mustache.renderJson(template, jsonString);
+	}
+
+	@Benchmark
+	public String renderJsonBytes() {
+		return mustache.renderJson(template, jsonBytes);
+	}
+}
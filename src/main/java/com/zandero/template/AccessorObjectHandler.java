@@ -0,0 +1,328 @@
+package com.zandero.template;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.mustachejava.Binding;
+import com.github.mustachejava.Code;
+import com.github.mustachejava.MustacheException;
+import com.github.mustachejava.TemplateContext;
+
+import java.lang.invoke.*;
+import java.lang.reflect.*;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Object handler resolving names against plain Java objects through generated accessors instead of reflection
+ * Accessors are generated once per class and name: getters are called through {@link LambdaMetafactory} generated functions
+ * the JIT can inline, fields and static members through method handles
+ *
+ * Members are looked up as by mustache: method name(), getName(), isName() or field name, private members excluded.
+ * Maps, JSON and other dynamic data are resolved as by {@link JsonNodeObjectHandler}, members holding a {@link Supplier} are resolved once referenced
+ *
+ * <pre>
+ * MustacheFactoryProvider factory = new MustacheFactoryProvider();
+ * factory.setObjectHandler(new AccessorObjectHandler());
+ * </pre>
+ */
+public class AccessorObjectHandler extends JsonNodeObjectHandler {
+
+	private static final ClassValue<ClassAccessors> accessors = new ClassValue<ClassAccessors>() {
+		@Override
+		protected ClassAccessors computeValue(Class<?> type) {
+			return new ClassAccessors(type);
+		}
+	};
+
+	@Override
+	public Binding createBinding(String name, TemplateContext tc, Code code) {
+
+		Binding fallback = super.createBinding(name, tc, code);
+
+		String[] path = name.split("\\.", -1);
+		for (String part : path) {
+			if (!isIdentifier(part)) { // ".", "a..b" and alike
+				return fallback;
+			}
+		}
+
+		return new AccessorBinding(path, fallback);
+	}
+
+	private static boolean isIdentifier(String name) {
+
+		if (name.isEmpty() || !Character.isJavaIdentifierStart(name.charAt(0))) {
+			return false;
+		}
+
+		for (int index = 1; index < name.length(); index++) {
+			if (!Character.isJavaIdentifierPart(name.charAt(index))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Walks scopes from innermost to outermost calling accessors,
+	 * any dynamic scope or value on the way hands resolving over to fallback binding
+	 */
+	private static class AccessorBinding implements Binding {
+
+		private final String[] path;
+
+		private final Binding fallback;
+
+		AccessorBinding(String[] path, Binding fallback) {
+
+			this.path = path;
+			this.fallback = fallback;
+		}
+
+		@Override
+		public Object get(List<Object> scopes) {
+
+			for (int index = scopes.size() - 1; index >= 0; index--) {
+
+				Object scope = scopes.get(index);
+				if (scope == null) {
+					continue;
+				}
+
+				ClassAccessors members = accessors.get(scope.getClass());
+				if (members.dynamic) {
+					return fallback.get(scopes);
+				}
+
+				Accessor accessor = members.get(path[0]);
+				if (accessor == ClassAccessors.UNAVAILABLE) {
+					return fallback.get(scopes);
+				}
+
+				if (accessor != null) {
+					return walk(resolve(accessor.get(scope), scopes), scopes);
+				}
+			}
+
+			return null;
+		}
+
+		private Object walk(Object value, List<Object> scopes) {
+
+			for (int index = 1; index < path.length; index++) {
+
+				if (value == null) {
+					return null;
+				}
+
+				ClassAccessors members = accessors.get(value.getClass());
+				Accessor accessor = members.dynamic ? null : members.get(path[index]);
+				if (accessor == null || accessor == ClassAccessors.UNAVAILABLE) {
+					return fallback.get(scopes);
+				}
+
+				value = resolve(accessor.get(value), scopes);
+			}
+
+			return value;
+		}
+	}
+
+	/**
+	 * Accessors of a single class by name
+	 */
+	private static class ClassAccessors {
+
+		private static final Accessor MISSING = new Accessor("", scope -> null);
+
+		/**
+		 * member exists but no accessor can be generated, resolved by fallback binding
+		 */
+		static final Accessor UNAVAILABLE = new Accessor("", scope -> null);
+
+		private final Class<?> type;
+
+		/**
+		 * true if instances are resolved by fallback binding
+		 */
+		final boolean dynamic;
+
+		private final Map<String, Accessor> byName = new ConcurrentHashMap<>();
+
+		ClassAccessors(Class<?> type) {
+
+			this.type = type;
+			dynamic = Map.class.isAssignableFrom(type) ||
+			          Iterable.class.isAssignableFrom(type) ||
+			          JsonNode.class.isAssignableFrom(type) ||
+			          Optional.class.isAssignableFrom(type) ||
+			          type.isArray();
+		}
+
+		/**
+		 * @return accessor, {@link #UNAVAILABLE} or null if class has no such member
+		 */
+		Accessor get(String name) {
+
+			Accessor accessor = byName.get(name);
+			if (accessor == null) {
+				accessor = byName.computeIfAbsent(name, this::create);
+			}
+
+			return accessor == MISSING ? null : accessor;
+		}
+
+		private Accessor create(String name) {
+
+			Member member = find(type, name);
+			if (member == null) {
+				return MISSING;
+			}
+
+			try {
+				return new Accessor(name, generate(member));
+			}
+			catch (Throwable e) { // member not accessible to us, for instance of a class in a module not opened
+				return UNAVAILABLE;
+			}
+		}
+
+		private static Member find(Class<?> type, String name) {
+
+			String property = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+
+			Method method = method(type, name);
+			if (method == null) {
+				method = method(type, "get" + property);
+			}
+
+			if (method == null) {
+				method = method(type, "is" + property);
+			}
+
+			return method != null ? method : field(type, name);
+		}
+
+		/**
+		 * Finds method without arguments declared by class or its super classes, a private method hides super class methods
+		 */
+		private static Method method(Class<?> type, String name) {
+
+			for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+				try {
+					Method method = current.getDeclaredMethod(name);
+					return Modifier.isPrivate(method.getModifiers()) ? null : method;
+				}
+				catch (NoSuchMethodException e) {
+					// check super class
+				}
+			}
+
+			return null;
+		}
+
+		private static Field field(Class<?> type, String name) {
+
+			for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+				try {
+					Field field = current.getDeclaredField(name);
+					return Modifier.isPrivate(field.getModifiers()) ? null : field;
+				}
+				catch (NoSuchFieldException e) {
+					// check super class
+				}
+			}
+
+			return null;
+		}
+
+		/**
+		 * Generates function calling getter directly, falls back to method handle if class can not be looked up privately
+		 */
+		@SuppressWarnings("unchecked")
+		private static Function<Object, Object> generate(Member member) throws Throwable {
+
+			Class<?> owner = member.getDeclaringClass();
+
+			if (member instanceof Method) {
+
+				Method method = (Method) member;
+				if (!Modifier.isStatic(method.getModifiers()) && method.getReturnType() != void.class) {
+					try {
+						MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(owner, MethodHandles.lookup());
+						MethodHandle target = lookup.unreflect(method);
+
+						CallSite site = LambdaMetafactory.metafactory(lookup,
+						                                              "apply",
+						                                              MethodType.methodType(Function.class),
+						                                              MethodType.methodType(Object.class, Object.class),
+						                                              target,
+						                                              MethodType.methodType(target.type().returnType(), owner).wrap());
+						return (Function<Object, Object>) site.getTarget().invoke();
+					}
+					catch (IllegalAccessException | LambdaConversionException e) {
+						// package not open to us, use method handle
+					}
+				}
+
+				method.setAccessible(true);
+				return function(MethodHandles.lookup().unreflect(method), Modifier.isStatic(method.getModifiers()));
+			}
+
+			Field field = (Field) member;
+			field.setAccessible(true);
+			return function(MethodHandles.lookup().unreflectGetter(field), Modifier.isStatic(field.getModifiers()));
+		}
+
+		private static Function<Object, Object> function(MethodHandle handle, boolean isStatic) {
+
+			MethodHandle getter = isStatic ? MethodHandles.dropArguments(handle, 0, Object.class) : handle;
+			MethodHandle generic = getter.asType(MethodType.methodType(Object.class, Object.class));
+
+			return scope -> {
+				try {
+					return generic.invokeExact(scope);
+				}
+				catch (RuntimeException | Error e) {
+					throw e;
+				}
+				catch (Throwable e) {
+					throw new UndeclaredThrowableException(e);
+				}
+			};
+		}
+	}
+
+	/**
+	 * Generated accessor of a named member
+	 */
+	private static class Accessor {
+
+		private final String name;
+
+		private final Function<Object, Object> function;
+
+		Accessor(String name, Function<Object, Object> function) {
+
+			this.name = name;
+			this.function = function;
+		}
+
+		Object get(Object scope) {
+
+			try {
+				return function.apply(scope);
+			}
+			catch (MustacheException e) {
+				throw e;
+			}
+			catch (RuntimeException e) {
+				throw new MustacheException("Failed to get value for: '" + name + "' " + e.getMessage(), e);
+			}
+		}
+	}
+}
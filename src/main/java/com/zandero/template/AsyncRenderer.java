@@ -0,0 +1,156 @@
+package com.zandero.template;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs renders on an executor and completes a future with the outcome
+ * Once the future is cancelled or times out, rendering stops at the next write
+ * Rendering threads are never interrupted, a render waiting on a concurrently resolved value stops once the value is written
+ */
+final class AsyncRenderer {
+
+	private AsyncRenderer() {
+		// hide constructor
+	}
+
+	/**
+	 * @return virtual thread per render on JDK 21+, common fork join pool otherwise
+	 */
+	static Executor defaultExecutor() {
+		return DefaultExecutor.INSTANCE;
+	}
+
+	/**
+	 * Renders on executor
+	 *
+	 * @param executor to render on
+	 * @param writer   to render into
+	 * @param render   writes output into given writer
+	 * @param result   provides result once rendering is done
+	 * @param <T>      type of result
+	 * @return future completed once rendering is done
+	 */
+	static <T> CompletableFuture<T> submit(Executor executor, Writer writer, Consumer<Writer> render, Supplier<T> result) {
+
+		Task<T> task = new Task<>(writer, render, result);
+		task.future.whenComplete((value, failure) -> {
+			if (failure != null) {
+				task.cancelled = true;
+			}
+		});
+
+		try {
+			executor.execute(task);
+		}
+		catch (RejectedExecutionException e) {
+			task.future.completeExceptionally(e);
+		}
+
+		return task.future;
+	}
+
+	private static class Task<T> implements Runnable {
+
+		final CompletableFuture<T> future = new CompletableFuture<>();
+
+		// set once future is cancelled or failed, checked on each write
+		volatile boolean cancelled;
+
+		private final Writer writer;
+
+		private final Consumer<Writer> render;
+
+		private final Supplier<T> result;
+
+		Task(Writer writer, Consumer<Writer> render, Supplier<T> result) {
+
+			this.writer = writer;
+			this.render = render;
+			this.result = result;
+		}
+
+		@Override
+		public void run() {
+
+			if (cancelled) { // cancelled before started
+				return;
+			}
+
+			try {
+				render.accept(new CancellableWriter(writer, this));
+				future.complete(result.get());
+			}
+			catch (Throwable e) {
+				future.completeExceptionally(e);
+			}
+		}
+	}
+
+	/**
+	 * Stops rendering once task is cancelled (future cancelled or timed out)
+	 */
+	private static class CancellableWriter extends Writer {
+
+		private final Writer writer;
+
+		private final Task<?> task;
+
+		CancellableWriter(Writer writer, Task<?> task) {
+
+			this.writer = writer;
+			this.task = task;
+		}
+
+		@Override
+		public void write(char[] buffer, int offset, int length) throws IOException {
+
+			check();
+			writer.write(buffer, offset, length);
+		}
+
+		@Override
+		public void write(String value, int offset, int length) throws IOException {
+
+			check();
+			writer.write(value, offset, length);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			writer.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			writer.close();
+		}
+
+		private void check() {
+
+			if (task.cancelled) {
+				throw new CancellationException("Rendering cancelled!");
+			}
+		}
+	}
+
+	private static final class DefaultExecutor {
+
+		static final Executor INSTANCE = create();
+
+		private static Executor create() {
+
+			try {
+				Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+				return (Executor) method.invoke(null);
+			}
+			catch (ReflectiveOperationException e) {
+				return ForkJoinPool.commonPool();
+			}
+		}
+	}
+}
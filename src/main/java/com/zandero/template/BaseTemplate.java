@@ -2,26 +2,71 @@ package com.zandero.template;
 
 import com.github.mustachejava.Code;
 import com.github.mustachejava.Mustache;
+import com.github.mustachejava.MustacheException;
 import com.zandero.utils.Assert;
 import com.zandero.utils.StringUtils;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 /**
  * Base template holds a Mustache template that wraps around other templates
+ * Base templates are split at their placeholder once when stored, so the inner template is rendered
+ * straight into the output between base template prefix and suffix
+ *
+ * Stored templates are held in an immutable snapshot replaced on every change (copy on write),
+ * so lookups never block and a single instance can be shared and updated while rendering
+ *
+ * Stored templates can be chained into nested layouts, each layout wrapping around the next one,
+ * with additional named slots (head, scripts, ...) filled by their own templates
  */
 public class BaseTemplate {
 
-	MustacheUtils mustache = new MustacheUtils();
+	// base templates rendered directly, split once and released together with template
+	static final TemplateTable<Layout> directLayouts = new TemplateTable<>();
 
-	// storage of templates
-	Map<String, Mustache> cache = new HashMap<>();
+	final MustacheUtils mustache;
+
+	// storage of templates, immutable snapshot replaced on each change
+	volatile Map<String, Layout> cache = Collections.emptyMap();
+
+	// serializes writers
+	private final Object lock = new Object();
+
+	// named slots of layout chains are rendered concurrently
+	private volatile boolean parallelSlots;
 
 	/**
 	 * Empty template
 	 */
 	public BaseTemplate() {
+
+		this(new MustacheUtils());
+	}
+
+	/**
+	 * Empty template rendering with given utils
+	 *
+	 * @param mustache utils to load and render templates with
+	 */
+	public BaseTemplate(MustacheUtils mustache) {
+
+		Assert.notNull(mustache, "Missing mustache utils!");
+		this.mustache = mustache;
 	}
 
 	/**
@@ -31,20 +76,49 @@ public class BaseTemplate {
 	 */
 	public BaseTemplate(String resource) {
 
+		this();
 		add(resource);
 	}
 
+	/**
+	 * @return true if named slots of layout chains are rendered concurrently
+	 */
+	public boolean isParallelSlots() {
+
+		return parallelSlots;
+	}
+
+	/**
+	 * Renders named slots of layout chains concurrently on {@link MustacheUtils#getAsyncExecutor()},
+	 * so a slow slot is rendered while layouts and other slots are written out, slot content is written in place once done
+	 *
+	 * @param parallel true to render slots concurrently, false to render each slot when reached (default)
+	 */
+	public void setParallelSlots(boolean parallel) {
+
+		parallelSlots = parallel;
+	}
+
 	/**
 	 * Removes all stored templates from cache
 	 */
 	public void clear() {
-		cache.clear();
+
+		synchronized (lock) {
+			cache = Collections.emptyMap();
+		}
 	}
 
-	private void add(Mustache template, String placeholder) {
+	/**
+	 * Adds new template under given placeholder, for layouts with more than one slot
+	 *
+	 * @param template    template with placeholder
+	 * @param placeholder name of slot receiving inner template
+	 * @throws IllegalArgumentException in case template already present or placeholder is not used by template
+	 */
+	public void add(Mustache template, String placeholder) {
 
-		Assert.isNull(find(placeholder), "Placeholder: '" + placeholder + "', already present!");
-		init(template, placeholder);
+		init(template, placeholder, false, true);
 	}
 
 	/**
@@ -56,7 +130,7 @@ public class BaseTemplate {
 	public void add(Mustache template) {
 
 		String placeholder = findPlaceholder(template);
-		add(template, placeholder);
+		init(template, placeholder, false, false);
 	}
 
 	/**
@@ -71,9 +145,16 @@ public class BaseTemplate {
 		add(template);
 	}
 
-	private void put(Mustache template, String placeholder) {
+	/**
+	 * Adds or overwrites existing template under given placeholder, for layouts with more than one slot
+	 *
+	 * @param template    template with placeholder
+	 * @param placeholder name of slot receiving inner template
+	 * @throws IllegalArgumentException in case placeholder is not used by template
+	 */
+	public void put(Mustache template, String placeholder) {
 
-		init(template, placeholder);
+		init(template, placeholder, true, true);
 	}
 
 	/**
@@ -84,7 +165,7 @@ public class BaseTemplate {
 	public void put(Mustache template) {
 
 		String placeholder = findPlaceholder(template);
-		put(template, placeholder);
+		init(template, placeholder, true, false);
 	}
 
 	/**
@@ -96,7 +177,47 @@ public class BaseTemplate {
 
 		Mustache template = mustache.load(resource);
 		String placeholder = findPlaceholder(template);
-		put(template, placeholder);
+		init(template, placeholder, true, false);
+	}
+
+	/**
+	 * Atomically replaces all stored templates with given templates
+	 * Either all templates are stored or in case of failure none and previous templates remain in place
+	 *
+	 * @param templates templates with placeholder
+	 * @throws IllegalArgumentException in case two templates share the same placeholder
+	 */
+	public void replaceAll(Collection<Mustache> templates) {
+
+		Assert.notNull(templates, "Missing templates!");
+
+		Map<String, Layout> layouts = new HashMap<>();
+		for (Mustache template : templates) {
+			String placeholder = StringUtils.trim(findPlaceholder(template));
+			Assert.isFalse(layouts.containsKey(placeholder), "Placeholder: '" + placeholder + "', already present!");
+			layouts.put(placeholder, Layout.of(template, placeholder));
+		}
+
+		synchronized (lock) {
+			cache = Collections.unmodifiableMap(layouts);
+		}
+	}
+
+	/**
+	 * Atomically replaces all stored templates with given templates
+	 * Either all templates are stored or in case of failure none and previous templates remain in place
+	 *
+	 * @param resources templates with placeholder
+	 * @throws IllegalArgumentException in case two templates share the same placeholder
+	 */
+	public void replaceAll(String... resources) {
+
+		List<Mustache> templates = new ArrayList<>();
+		for (String resource : resources) {
+			templates.add(mustache.load(resource));
+		}
+
+		replaceAll(templates);
 	}
 
 	private static String findPlaceholder(Mustache template) {
@@ -134,14 +255,64 @@ public class BaseTemplate {
 
 		Assert.notNullOrEmptyTrimmed(placeholder, "Missing placeholder name!");
 		placeholder = StringUtils.trim(placeholder);
-		return cache.get(placeholder);
+		Layout layout = cache.get(placeholder);
+		return layout == null ? null : layout.getTemplate();
+	}
+
+	private Layout getLayout(String placeholder) {
+
+		Assert.notNullOrEmptyTrimmed(placeholder, "Missing placeholder name!");
+		Layout layout = cache.get(StringUtils.trim(placeholder));
+		Assert.notNull(layout, "Missing base template: '" + placeholder + "'!");
+		return layout;
 	}
 
-	private void init(Mustache template, String placeholder) {
+	private void init(Mustache template, String placeholder, boolean overwrite, boolean explicit) {
 		Assert.notNull(template, "Missing base template");
 		Assert.notNullOrEmptyTrimmed(placeholder, "Missing placeholder name!");
 		placeholder = StringUtils.trim(placeholder);
-		cache.put(placeholder, template);
+
+		Layout layout = Layout.of(template, placeholder);
+		Assert.isTrue(!explicit || layout.uses(placeholder), "Placeholder: '" + placeholder + "', not found in template!");
+
+		synchronized (lock) {
+			Assert.isTrue(overwrite || !cache.containsKey(placeholder), "Placeholder: '" + placeholder + "', already present!");
+
+			Map<String, Layout> copy = new HashMap<>(cache);
+			copy.put(placeholder, layout);
+			cache = Collections.unmodifiableMap(copy);
+		}
+	}
+
+	/**
+	 * Replaces stored base template with a new version of the same template, used when templates are reloaded
+	 *
+	 * @param previous stored template
+	 * @param template new version
+	 * @return true if previous template was stored and replaced, false otherwise
+	 */
+	boolean replace(Mustache previous, Mustache template) {
+
+		synchronized (lock) {
+
+			Map<String, Layout> copy = null;
+			for (Layout layout : cache.values()) {
+				if (layout.getTemplate() == previous) {
+					if (copy == null) {
+						copy = new HashMap<>(cache);
+					}
+
+					copy.put(layout.getPlaceholder(), Layout.of(template, layout.getPlaceholder()));
+				}
+			}
+
+			if (copy == null) {
+				return false;
+			}
+
+			cache = Collections.unmodifiableMap(copy);
+			return true;
+		}
 	}
 
 	/**
@@ -165,14 +336,258 @@ public class BaseTemplate {
 	 */
 	public String render(String placeholder, Mustache template, Map<String, Object> data) {
 
-		Mustache base = get(placeholder);
+		Layout layout = getLayout(placeholder);
+		return mustache.renderToString(layout.getTemplate(), true, out -> layout.render(mustache, template, data, out, false));
+	}
+
+	/**
+	 * Renders given template and inserts it into base template with placeholder
+	 * @param placeholder of base template
+	 * @param template template
+	 * @param data data for template
+	 * @param writer to write base template with inner template to, writer is neither flushed nor closed
+	 */
+	public void render(String placeholder, Mustache template, Map<String, Object> data, Writer writer) {
+
+		getLayout(placeholder).render(mustache, template, data, writer, false);
+	}
+
+	/**
+	 * Renders given template and inserts it into base template with placeholder asynchronously,
+	 * see {@link MustacheUtils#setAsyncExecutor(java.util.concurrent.Executor)}
+	 * @param placeholder of base template
+	 * @param template template
+	 * @param data data for template
+	 * @return future completed with base template with inner template, cancelling future stops rendering
+	 */
+	public CompletableFuture<String> renderAsync(String placeholder, Mustache template, Map<String, Object> data) {
+
+		Layout layout = getLayout(placeholder);
+
+		StringWriter out = new StringWriter();
+		return AsyncRenderer.submit(mustache.getAsyncExecutor(), out, writer -> layout.render(mustache, template, data, writer, false), out::toString);
+	}
+
+	/**
+	 * Renders given template and inserts it into base template with placeholder
+	 * @param placeholder of base template
+	 * @param template template
+	 * @param data data for template
+	 * @param output to write base template with inner template to, output is flushed once base template head
+	 *               (text before placeholder) is written and once done, but not closed
+	 * @param charset to encode output with
+	 */
+	public void render(String placeholder, Mustache template, Map<String, Object> data, OutputStream output, Charset charset) {
+
+		Writer writer = mustache.writer(output, charset);
+		getLayout(placeholder).render(mustache, template, data, writer, true);
+		MustacheUtils.flush(writer);
+	}
+
+	/**
+	 * Renders given template and inserts it into base template with placeholder
+	 * @param placeholder of base template
+	 * @param template template
+	 * @param data data for template
+	 * @param channel to write base template with inner template to, channel is not closed
+	 * @param charset to encode output with
+	 */
+	public void render(String placeholder, Mustache template, Map<String, Object> data, WritableByteChannel channel, Charset charset) {
+
+		Assert.notNull(channel, "Missing channel!");
+		render(placeholder, template, data, Channels.newOutputStream(channel), charset);
+	}
+
+	/**
+	 * Renders template into a chain of nested layouts
+	 * @param layouts placeholders of stored base templates, outermost first, each layout is rendered into placeholder of previous one
+	 * @param template template rendered into placeholder of innermost layout
+	 * @param slots templates rendered into named slots of any layout in chain, by slot name
+	 * @param data data for layouts, slots and template
+	 * @return layouts with slots and inner template
+	 */
+	public String render(List<String> layouts, Mustache template, Map<String, Mustache> slots, Map<String, Object> data) {
+
+		List<Layout> chain = getChain(layouts);
+		return mustache.renderToString(chain.get(0).getTemplate(), true, out -> render(chain, template, slots, data, out, false));
+	}
+
+	/**
+	 * Renders template into a chain of nested layouts in a single pass
+	 * @param layouts placeholders of stored base templates, outermost first, each layout is rendered into placeholder of previous one
+	 * @param template template rendered into placeholder of innermost layout
+	 * @param slots templates rendered into named slots of any layout in chain, by slot name
+	 * @param data data for layouts, slots and template
+	 * @param writer to write layouts with slots and inner template to, writer is neither flushed nor closed
+	 */
+	public void render(List<String> layouts, Mustache template, Map<String, Mustache> slots, Map<String, Object> data, Writer writer) {
+
+		render(getChain(layouts), template, slots, data, writer, false);
+	}
+
+	/**
+	 * Renders template into a chain of nested layouts in a single pass
+	 * @param layouts placeholders of stored base templates, outermost first, each layout is rendered into placeholder of previous one
+	 * @param template template rendered into placeholder of innermost layout
+	 * @param slots templates rendered into named slots of any layout in chain, by slot name
+	 * @param data data for layouts, slots and template
+	 * @param output to write to, output is flushed once head of outermost layout is written and once done, but not closed
+	 * @param charset to encode output with
+	 */
+	public void render(List<String> layouts, Mustache template, Map<String, Mustache> slots, Map<String, Object> data, OutputStream output, Charset charset) {
+
+		List<Layout> chain = getChain(layouts);
+
+		Writer writer = mustache.writer(output, charset);
+		render(chain, template, slots, data, writer, true);
+		MustacheUtils.flush(writer);
+	}
+
+	private List<Layout> getChain(List<String> layouts) {
+
+		Assert.notNull(layouts, "Missing layouts!");
+		Assert.isFalse(layouts.isEmpty(), "Missing layouts!");
+
+		List<Layout> chain = new ArrayList<>(layouts.size());
+		for (String placeholder : layouts) {
+			chain.add(getLayout(placeholder));
+		}
+
+		return chain;
+	}
+
+	private void render(List<Layout> chain, Mustache template, Map<String, Mustache> slots, Map<String, Object> data, Writer writer, boolean flushHead) {
+
+		Assert.notNull(template, "Missing template!");
+		Assert.notNull(writer, "Missing writer!");
+
+		RenderScope rendering = lazy(chain, template, data);
+
+		List<CompletableFuture<String>> started = new ArrayList<>();
+		try {
+			Map<String, Consumer<Writer>> content = slots(chain, slots, data, rendering, started);
+
+			TemplateMetrics metrics = mustache.getMetrics();
+			TemplateRenderEvent event = new TemplateRenderEvent();
+			if (metrics == TemplateMetrics.NONE && !event.isEnabled()) {
+				write(chain, 0, template, content, data, rendering, writer, flushHead);
+				return;
+			}
+
+			// outermost layout is reported including everything rendered into it
+			mustache.measure(metrics, event, chain.get(0).getTemplate(), template, writer,
+			                      out -> write(chain, 0, template, content, data, rendering, out, flushHead));
+		}
+		catch (RuntimeException | Error e) {
+			// slots still rendering are of no use any more
+			for (CompletableFuture<String> future : started) {
+				future.cancel(true);
+			}
+
+			throw e;
+		}
+	}
+
+	/**
+	 * Render scope is shared by all layouts, slots and template, so each supplier is computed once per render
+	 */
+	private RenderScope lazy(List<Layout> chain, Mustache template, Map<String, Object> data) {
+
+		RenderScope rendering = new RenderScope();
+		if (mustache.isPrefetch()) {
+			for (Layout layout : chain) {
+				LazyValue.prefetch(layout.getTemplate(), data, rendering, mustache.getAsyncExecutor());
+			}
+
+			LazyValue.prefetch(template, data, rendering, mustache.getAsyncExecutor());
+		}
+
+		return rendering;
+	}
+
+	/**
+	 * Writes slot templates used by any layout in chain, started up front when rendered concurrently
+	 */
+	private Map<String, Consumer<Writer>> slots(List<Layout> chain, Map<String, Mustache> slots, Map<String, Object> data, RenderScope rendering,
+	                                            List<CompletableFuture<String>> started) {
+
+		if (slots == null || slots.isEmpty()) {
+			return Collections.emptyMap();
+		}
 
-		// inner content
-		String content = mustache.render(template, data);
+		boolean parallel = parallelSlots;
 
-		Map<String, Object> baseData = new HashMap<>();
-		baseData.put(placeholder, content);
-		return mustache.render(base, baseData);
+		Map<String, Consumer<Writer>> content = new HashMap<>();
+		for (Map.Entry<String, Mustache> slot : slots.entrySet()) {
+
+			Mustache template = slot.getValue();
+			Assert.notNull(template, "Missing template for slot: '" + slot.getKey() + "'!");
+
+			if (chain.stream().noneMatch(layout -> layout.uses(slot.getKey()))) {
+				continue;
+			}
+
+			if (parallel) {
+				CompletableFuture<String> future = CompletableFuture.supplyAsync(() -> mustache.renderToString(template, out -> mustache.render(template, data, out, rendering)),
+				                                                                 mustache.getAsyncExecutor());
+				started.add(future);
+				content.put(slot.getKey(), out -> write(join(future), out));
+			}
+			else {
+				content.put(slot.getKey(), out -> mustache.render(template, data, out, rendering));
+			}
+		}
+
+		return content;
+	}
+
+	/**
+	 * Renders layout at given level of chain, placeholder of layout receives next level, placeholder of innermost layout the template
+	 */
+	private void write(List<Layout> chain, int level, Mustache template, Map<String, Consumer<Writer>> slots, Map<String, Object> data, RenderScope rendering,
+	                   Writer writer, boolean flushHead) {
+
+		if (level == chain.size()) {
+			mustache.render(template, data, writer, rendering);
+			return;
+		}
+
+		Layout layout = chain.get(level);
+
+		Map<String, Consumer<Writer>> content = new HashMap<>();
+		for (Map.Entry<String, Consumer<Writer>> slot : slots.entrySet()) {
+			if (layout.uses(slot.getKey())) {
+				content.put(slot.getKey(), slot.getValue());
+			}
+		}
+
+		// placeholder takes precedence over a named slot of the same name
+		content.put(layout.getPlaceholder(), out -> write(chain, level + 1, template, slots, data, rendering, out, false));
+		layout.renderSlots(mustache, data, rendering, content, writer, flushHead);
+	}
+
+	private static String join(CompletableFuture<String> future) {
+
+		try {
+			return future.join();
+		}
+		catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+
+			throw e;
+		}
+	}
+
+	private static void write(String value, Writer writer) {
+
+		try {
+			writer.write(value);
+		}
+		catch (IOException e) {
+			throw new MustacheException("Failed to write template output: " + e.getMessage(), e);
+		}
 	}
 
 	/**
@@ -205,15 +620,32 @@ public class BaseTemplate {
 	 */
 	public static String direct(Mustache baseTemplate, Mustache template, Map<String, Object> data) {
 
+		StringWriter out = new StringWriter();
+		direct(baseTemplate, template, data, out);
+		return out.toString();
+	}
+
+	/**
+	 * Renders given baseTemplate with inner template into writer
+	 * Does not store baseTemplate into cache
+	 *
+	 * @param baseTemplate base template
+	 * @param template template to insert into base template
+	 * @param data data for template
+	 * @param writer to write base template with inner template to, writer is neither flushed nor closed
+	 */
+	public static void direct(Mustache baseTemplate, Mustache template, Map<String, Object> data, Writer writer) {
+
 		MustacheUtils mustache = new MustacheUtils();
+		directLayout(baseTemplate).render(mustache, template, data, writer, false);
+	}
 
-		String placeholder = findPlaceholder(baseTemplate);
+	static Layout directLayout(Mustache baseTemplate) {
 
-		// inner content
-		String content = mustache.render(template, data);
+		Assert.notNull(baseTemplate, "Missing template!");
 
-		Map<String, Object> baseData = new HashMap<>();
-		baseData.put(placeholder, content);
-		return mustache.render(baseTemplate, baseData);
+		// kept split holds no reference to template, so template is not kept from being released
+		Layout split = directLayouts.computeIfAbsent(baseTemplate, template -> Layout.of(template, findPlaceholder(template)).detach());
+		return split.attach(baseTemplate);
 	}
 }
@@ -0,0 +1,205 @@
+package com.zandero.template;
+
+import com.github.mustachejava.Mustache;
+import com.github.mustachejava.MustacheException;
+import com.zandero.utils.Assert;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Renders the same template for many data items in parallel
+ * At most parallelism * 2 items are in flight at any time, so a slow sink holds back reading of further items
+ *
+ * @param <T> type of data rendered
+ */
+class BatchRenderer<T> {
+
+	private final MustacheUtils mustache;
+
+	private final Mustache template;
+
+	private final BatchSink<? super T> sink;
+
+	private final Executor executor;
+
+	private final int maxInFlight;
+
+	private final List<BatchResult.Failure<T>> failures = new ArrayList<>();
+
+	private long rendered;
+
+	BatchRenderer(MustacheUtils mustache, Mustache template, BatchSink<? super T> sink, Executor executor, int parallelism) {
+
+		Assert.notNull(template, "Missing template!");
+		Assert.notNull(sink, "Missing batch sink!");
+		Assert.notNull(executor, "Missing executor!");
+		Assert.isTrue(parallelism > 0, "Parallelism must be greater than 0!");
+
+		this.mustache = mustache;
+		this.template = template;
+		this.sink = sink;
+		this.executor = executor;
+		this.maxInFlight = parallelism * 2;
+	}
+
+	/**
+	 * Renders items and hands them to sink in the order of given data
+	 *
+	 * @param data items to render
+	 * @return outcome of batch
+	 */
+	BatchResult<T> ordered(Iterator<T> data) {
+
+		Deque<CompletableFuture<Item<T>>> window = new ArrayDeque<>();
+
+		try {
+			long index = 0;
+			while (data.hasNext()) {
+
+				if (window.size() >= maxInFlight) {
+					accept(window.poll().join());
+				}
+
+				Item<T> item = new Item<>(index++, data.next());
+				window.add(submit(item));
+			}
+
+			while (!window.isEmpty()) {
+				accept(window.poll().join());
+			}
+		}
+		finally {
+			// reading data failed, items not yet rendered are dropped
+			window.forEach(future -> future.cancel(false));
+		}
+
+		return result();
+	}
+
+	/**
+	 * Renders items and hands them to sink as soon as they are rendered
+	 *
+	 * @param data items to render
+	 * @return outcome of batch
+	 */
+	BatchResult<T> unordered(Iterator<T> data) {
+
+		Semaphore permits = new Semaphore(maxInFlight);
+
+		try {
+			long index = 0;
+			while (data.hasNext()) {
+
+				permits.acquire();
+
+				Item<T> item;
+				try {
+					item = new Item<>(index++, data.next());
+				}
+				catch (RuntimeException | Error e) {
+					permits.release();
+					throw e;
+				}
+
+				try {
+					executor.execute(() -> {
+						try {
+							render(item);
+							synchronized (this) {
+								accept(item);
+							}
+						}
+						finally {
+							permits.release();
+						}
+					});
+				}
+				catch (RejectedExecutionException e) {
+					permits.release();
+					item.failure = e;
+					synchronized (this) {
+						accept(item);
+					}
+				}
+			}
+
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MustacheException("Batch rendering interrupted!", e);
+		}
+		finally {
+			// items in flight are handed to sink before returning, also when reading data failed
+			permits.acquireUninterruptibly(maxInFlight);
+			permits.release(maxInFlight);
+		}
+
+		synchronized (this) {
+			failures.sort(Comparator.comparingLong(BatchResult.Failure::getIndex));
+			return result();
+		}
+	}
+
+	private CompletableFuture<Item<T>> submit(Item<T> item) {
+
+		try {
+			return CompletableFuture.supplyAsync(() -> render(item), executor);
+		}
+		catch (RejectedExecutionException e) {
+			item.failure = e;
+			return CompletableFuture.completedFuture(item);
+		}
+	}
+
+	private Item<T> render(Item<T> item) {
+
+		try {
+			item.output = mustache.render(template, item.data);
+		}
+		catch (Throwable e) { // errors as StackOverflowError of recursive partials fail the item only
+			item.failure = e;
+		}
+
+		return item;
+	}
+
+	private void accept(Item<T> item) {
+
+		if (item.failure == null) {
+			try {
+				sink.accept(item.index, item.data, item.output);
+				rendered++;
+				return;
+			}
+			catch (Throwable e) {
+				item.failure = e;
+			}
+		}
+
+		failures.add(new BatchResult.Failure<>(item.index, item.data, item.failure));
+	}
+
+	private BatchResult<T> result() {
+		return new BatchResult<>(rendered, new ArrayList<>(failures));
+	}
+
+	private static class Item<T> {
+
+		final long index;
+
+		final T data;
+
+		String output;
+
+		Throwable failure;
+
+		Item(long index, T data) {
+			this.index = index;
+			this.data = data;
+		}
+	}
+}
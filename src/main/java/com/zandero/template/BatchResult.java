@@ -0,0 +1,95 @@
+package com.zandero.template;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of batch rendering
+ *
+ * @param <T> type of data rendered
+ */
+public final class BatchResult<T> {
+
+	private final long rendered;
+
+	private final List<Failure<T>> failures;
+
+	BatchResult(long rendered, List<Failure<T>> failures) {
+
+		this.rendered = rendered;
+		this.failures = Collections.unmodifiableList(failures);
+	}
+
+	/**
+	 * @return number of items rendered and accepted by sink
+	 */
+	public long getRendered() {
+		return rendered;
+	}
+
+	/**
+	 * @return items that failed to render or were rejected by sink, ordered by index
+	 */
+	public List<Failure<T>> getFailures() {
+		return failures;
+	}
+
+	/**
+	 * @return true if all items were rendered and accepted by sink
+	 */
+	public boolean isSuccess() {
+		return failures.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return "BatchResult{rendered=" + rendered + ", failures=" + failures.size() + "}";
+	}
+
+	/**
+	 * Single failed item
+	 *
+	 * @param <T> type of data rendered
+	 */
+	public static final class Failure<T> {
+
+		private final long index;
+
+		private final T data;
+
+		private final Throwable cause;
+
+		Failure(long index, T data, Throwable cause) {
+
+			this.index = index;
+			this.data = data;
+			this.cause = cause;
+		}
+
+		/**
+		 * @return position of item in batch
+		 */
+		public long getIndex() {
+			return index;
+		}
+
+		/**
+		 * @return data of failed item
+		 */
+		public T getData() {
+			return data;
+		}
+
+		/**
+		 * @return reason of failure
+		 */
+		public Throwable getCause() {
+			return cause;
+		}
+
+		@Override
+		public String toString() {
+			return "Failure{index=" + index + ", cause=" + cause + "}";
+		}
+	}
+}
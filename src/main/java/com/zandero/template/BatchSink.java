@@ -0,0 +1,21 @@
+package com.zandero.template;
+
+/**
+ * Receives rendered output of batch rendering, see {@link MustacheUtils#renderAll(com.github.mustachejava.Mustache, Iterable, BatchSink)}
+ * Sink is never called concurrently, a slow sink holds back rendering of further items
+ *
+ * @param <T> type of data rendered
+ */
+@FunctionalInterface
+public interface BatchSink<T> {
+
+	/**
+	 * Accepts rendered item
+	 *
+	 * @param index  position of item in batch, starting with 0
+	 * @param data   item was rendered with
+	 * @param output rendered template
+	 * @throws Exception in case item could not be consumed, is reported as failure of item
+	 */
+	void accept(long index, T data, String output) throws Exception;
+}
@@ -0,0 +1,69 @@
+package com.zandero.template;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * Counts chars passed on to underlying writer
+ */
+class CountingWriter extends Writer implements EncodedOutput {
+
+	private final Writer writer;
+
+	private long count;
+
+	CountingWriter(Writer writer) {
+		this.writer = writer;
+	}
+
+	long getCount() {
+		return count;
+	}
+
+	@Override
+	public void write(int c) throws IOException {
+
+		writer.write(c);
+		count++;
+	}
+
+	@Override
+	public void write(char[] buffer, int offset, int length) throws IOException {
+
+		writer.write(buffer, offset, length);
+		count += length;
+	}
+
+	@Override
+	public void write(String value, int offset, int length) throws IOException {
+
+		writer.write(value, offset, length);
+		count += length;
+	}
+
+	@Override
+	public Charset getEncoding() {
+		return writer instanceof EncodedOutput ? ((EncodedOutput) writer).getEncoding() : null;
+	}
+
+	@Override
+	public void writeEncoded(byte[] bytes, int chars) throws IOException {
+
+		((EncodedOutput) writer).writeEncoded(bytes, chars);
+		count += chars;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		writer.flush();
+	}
+
+	/**
+	 * Underlying writer is left open
+	 */
+	@Override
+	public void close() throws IOException {
+		flush();
+	}
+}
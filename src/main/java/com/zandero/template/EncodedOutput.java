@@ -0,0 +1,24 @@
+package com.zandero.template;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * Writer accepting text already encoded into bytes, so static template text is not encoded on every render
+ */
+interface EncodedOutput {
+
+	/**
+	 * @return charset output is encoded with, null if encoded text can not be written
+	 */
+	Charset getEncoding();
+
+	/**
+	 * Writes encoded text after any pending chars
+	 *
+	 * @param bytes text encoded with {@link #getEncoding()}
+	 * @param chars length of text in chars
+	 * @throws IOException in case bytes could not be written
+	 */
+	void writeEncoded(byte[] bytes, int chars) throws IOException;
+}
@@ -0,0 +1,177 @@
+package com.zandero.template;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Buffered writer encoding chars into output stream, already encoded text is copied into output as is
+ */
+class EncodedWriter extends Writer implements EncodedOutput {
+
+	private final OutputStream output;
+
+	private final CharsetEncoder encoder;
+
+	private final CharBuffer chars;
+
+	private final ByteBuffer bytes;
+
+	/**
+	 * @param output  to write to
+	 * @param encoder to encode chars with
+	 * @param size    of buffer in chars, buffer holds at least a surrogate pair
+	 */
+	EncodedWriter(OutputStream output, CharsetEncoder encoder, int size) {
+
+		int capacity = Math.max(size, 2);
+
+		this.output = output;
+		this.encoder = encoder;
+		this.chars = CharBuffer.allocate(capacity);
+		this.bytes = ByteBuffer.allocate((int) Math.ceil(capacity * (double) encoder.maxBytesPerChar()));
+	}
+
+	/**
+	 * @param charset to encode with
+	 * @return encoder replacing malformed input and unmappable chars, as {@link String#getBytes(Charset)} does
+	 */
+	static CharsetEncoder encoder(Charset charset) {
+
+		return charset.newEncoder()
+		              .onMalformedInput(CodingErrorAction.REPLACE)
+		              .onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	@Override
+	public Charset getEncoding() {
+		return encoder.charset();
+	}
+
+	@Override
+	public void write(int c) throws IOException {
+
+		if (!chars.hasRemaining()) {
+			encode(false);
+		}
+
+		chars.put((char) c);
+	}
+
+	@Override
+	public void write(char[] buffer, int offset, int length) throws IOException {
+
+		while (length > 0) {
+
+			if (!chars.hasRemaining()) {
+				encode(false);
+			}
+
+			int count = Math.min(length, chars.remaining());
+			chars.put(buffer, offset, count);
+			offset += count;
+			length -= count;
+		}
+	}
+
+	@Override
+	public void write(String value, int offset, int length) throws IOException {
+
+		while (length > 0) {
+
+			if (!chars.hasRemaining()) {
+				encode(false);
+			}
+
+			int count = Math.min(length, chars.remaining());
+			chars.put(value, offset, offset + count);
+			offset += count;
+			length -= count;
+		}
+	}
+
+	@Override
+	public void writeEncoded(byte[] encoded, int length) throws IOException {
+
+		// text can not continue across encoded bytes, so pending chars are encoded completely
+		encode(true);
+
+		if (encoded.length > bytes.remaining()) {
+			drain();
+		}
+
+		if (encoded.length >= bytes.capacity()) {
+			output.write(encoded);
+		}
+		else {
+			bytes.put(encoded);
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+
+		encode(false);
+		drain();
+		output.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		encode(true);
+		drain();
+		output.close();
+	}
+
+	/**
+	 * Encodes buffered chars into byte buffer, writing full byte buffer into output
+	 *
+	 * @param complete true if no more chars follow, false to keep an incomplete surrogate pair for next write
+	 */
+	private void encode(boolean complete) throws IOException {
+
+		chars.flip();
+		try {
+			while (true) {
+
+				CoderResult result = encoder.encode(chars, bytes, complete);
+				if (result.isOverflow()) {
+					drain();
+					continue;
+				}
+
+				if (result.isError()) {
+					result.throwException();
+				}
+
+				break; // underflow, all chars encoded
+			}
+
+			if (complete) {
+				while (encoder.flush(bytes).isOverflow()) {
+					drain();
+				}
+
+				encoder.reset();
+			}
+		}
+		finally {
+			chars.compact();
+		}
+	}
+
+	private void drain() throws IOException {
+
+		if (bytes.position() > 0) {
+			output.write(bytes.array(), 0, bytes.position());
+			bytes.clear();
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package com.zandero.template;
+
+import com.github.mustachejava.Code;
+import com.github.mustachejava.DefaultMustacheFactory;
+import com.github.mustachejava.TemplateContext;
+
+import java.nio.charset.Charset;
+
+/**
+ * Keeps static text apart from tags as {@link StaticCode}, instead of appending it to the preceding tag,
+ * so static text can be pre-encoded and minified as a whole
+ */
+class EncodingMustacheVisitor extends ValueMustacheVisitor {
+
+	private final Charset charset;
+
+	private final HtmlMinifier minifier;
+
+	/**
+	 * @param factory  compiling template
+	 * @param charset  to pre-encode static text with or null if not pre-encoded
+	 * @param minifier to minify static text with or null if not minified
+	 */
+	EncodingMustacheVisitor(DefaultMustacheFactory factory, Charset charset, HtmlMinifier minifier) {
+
+		super(factory);
+		this.charset = charset;
+		this.minifier = minifier;
+	}
+
+	@Override
+	public void write(TemplateContext context, String text) {
+
+		if (text.length() == 0) {
+			return;
+		}
+
+		int size = list.size();
+		Code last = size > 0 ? list.get(size - 1) : null;
+		if (last instanceof StaticCode) {
+			last.append(text); // text arrives line by line
+		}
+		else {
+			list.add(new StaticCode(context, df, text, charset, minifier));
+		}
+	}
+}
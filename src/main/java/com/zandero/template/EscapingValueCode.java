@@ -0,0 +1,23 @@
+package com.zandero.template;
+
+import com.github.mustachejava.DefaultMustacheFactory;
+import com.github.mustachejava.TemplateContext;
+import com.github.mustachejava.codes.ValueCode;
+
+/**
+ * Value code telling whether it escapes its value ({{name}}) or not ({{{name}}} or {{&name}})
+ */
+class EscapingValueCode extends ValueCode {
+
+	private final boolean escaped;
+
+	EscapingValueCode(TemplateContext context, DefaultMustacheFactory factory, String variable, boolean escaped) {
+
+		super(context, factory, variable, escaped);
+		this.escaped = escaped;
+	}
+
+	boolean isEscaped() {
+		return escaped;
+	}
+}
@@ -0,0 +1,58 @@
+package com.zandero.template;
+
+import com.github.mustachejava.MustacheFactory;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writer encoding everything written through mustache factory (HTML escaping by default)
+ * Used to stream output into an escaped {{placeholder}} without rendering it into a String first
+ */
+class EscapingWriter extends Writer {
+
+	private final Writer writer;
+
+	private final MustacheFactory factory;
+
+	EscapingWriter(Writer writer, MustacheFactory factory) {
+
+		this.writer = writer;
+		this.factory = factory;
+	}
+
+	@Override
+	public void write(char[] buffer, int offset, int length) {
+
+		if (length > 0) {
+			factory.encode(new String(buffer, offset, length), writer);
+		}
+	}
+
+	@Override
+	public void write(String value, int offset, int length) {
+
+		if (length > 0) {
+			factory.encode(value.substring(offset, offset + length), writer);
+		}
+	}
+
+	@Override
+	public void write(String value) {
+
+		factory.encode(value, writer);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		writer.flush();
+	}
+
+	/**
+	 * Underlying writer is left open
+	 */
+	@Override
+	public void close() throws IOException {
+		flush();
+	}
+}
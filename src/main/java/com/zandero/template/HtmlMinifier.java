@@ -0,0 +1,219 @@
+package com.zandero.template;
+
+/**
+ * Collapses insignificant whitespace of static HTML text once when a template is compiled
+ * A run of whitespace becomes a single new line if it contains one and a single space otherwise,
+ * content of pre, textarea, script and style elements, comments and quoted attribute values are kept as they are
+ *
+ * Static text segments of a template are passed in document order, so elements and attributes spanning dynamic values are recognized
+ * One instance per compiled template, not thread safe
+ */
+final class HtmlMinifier {
+
+	private static final String[] RAW_ELEMENTS = {"pre", "textarea", "script", "style"};
+
+	private enum State {
+
+		/**
+		 * text between tags
+		 */
+		TEXT,
+
+		/**
+		 * inside a tag, after its name
+		 */
+		TAG,
+
+		/**
+		 * reading tag name
+		 */
+		TAG_NAME,
+
+		/**
+		 * inside quoted attribute value
+		 */
+		QUOTED,
+
+		/**
+		 * inside comment
+		 */
+		COMMENT,
+
+		/**
+		 * content of pre, textarea, script or style element
+		 */
+		RAW
+	}
+
+	private State state = State.TEXT;
+
+	// quote of attribute value
+	private char quote;
+
+	private final StringBuilder tagName = new StringBuilder();
+
+	private boolean closingTag;
+
+	// element whose content is kept as is
+	private String rawElement;
+
+	/**
+	 * @param text static text segment
+	 * @return text with whitespace collapsed
+	 */
+	String minify(String text) {
+
+		StringBuilder out = new StringBuilder(text.length());
+
+		int index = 0;
+		while (index < text.length()) {
+
+			char current = text.charAt(index);
+
+			switch (state) {
+
+				case RAW:
+					int end = findClosing(text, index);
+					if (end < 0) {
+						out.append(text, index, text.length());
+						return out.toString();
+					}
+
+					out.append(text, index, end);
+					index = end;
+					state = State.TEXT;
+					continue;
+
+				case COMMENT:
+					int close = text.indexOf("-->", index);
+					if (close < 0) {
+						out.append(text, index, text.length());
+						return out.toString();
+					}
+
+					out.append(text, index, close + 3);
+					index = close + 3;
+					state = State.TEXT;
+					continue;
+
+				case QUOTED:
+					out.append(current);
+					if (current == quote) {
+						state = State.TAG;
+					}
+					break;
+
+				case TAG_NAME:
+					if (Character.isLetterOrDigit(current) || current == '-') {
+						tagName.append(current);
+						out.append(current);
+						break;
+					}
+
+					state = State.TAG;
+					continue; // character following name is processed as part of tag
+
+				case TAG:
+					if (Character.isWhitespace(current)) {
+						index = collapse(text, index, out);
+						continue;
+					}
+
+					out.append(current);
+					if (current == '"' || current == '\'') {
+						quote = current;
+						state = State.QUOTED;
+					}
+					else if (current == '>') {
+						state = endTag(text, index);
+					}
+					break;
+
+				default: // TEXT
+					if (Character.isWhitespace(current)) {
+						index = collapse(text, index, out);
+						continue;
+					}
+
+					if (current == '<' && text.startsWith("<!--", index)) {
+						state = State.COMMENT;
+						continue;
+					}
+
+					out.append(current);
+					if (current == '<' && index + 1 < text.length() && isTagStart(text.charAt(index + 1))) {
+						closingTag = text.charAt(index + 1) == '/';
+						tagName.setLength(0);
+						if (closingTag) {
+							out.append('/');
+							index++;
+						}
+
+						state = State.TAG_NAME;
+					}
+			}
+
+			index++;
+		}
+
+		return out.toString();
+	}
+
+	private static boolean isTagStart(char next) {
+		return Character.isLetter(next) || next == '/';
+	}
+
+	/**
+	 * Writes a single new line or space for a run of whitespace
+	 *
+	 * @return index following the run
+	 */
+	private static int collapse(String text, int index, StringBuilder out) {
+
+		boolean newLine = false;
+		while (index < text.length() && Character.isWhitespace(text.charAt(index))) {
+			newLine |= text.charAt(index) == '\n';
+			index++;
+		}
+
+		out.append(newLine ? '\n' : ' ');
+		return index;
+	}
+
+	/**
+	 * @return state following end of tag, content of raw elements is kept as is
+	 */
+	private State endTag(String text, int index) {
+
+		String name = tagName.toString();
+		boolean selfClosing = index > 0 && text.charAt(index - 1) == '/';
+
+		if (!closingTag && !selfClosing) {
+			for (String element : RAW_ELEMENTS) {
+				if (element.equalsIgnoreCase(name)) {
+					rawElement = element;
+					return State.RAW;
+				}
+			}
+		}
+
+		return State.TEXT;
+	}
+
+	/**
+	 * @return index of closing tag of raw element or -1 if not found in text
+	 */
+	private int findClosing(String text, int from) {
+
+		String closing = "</" + rawElement;
+		for (int index = text.indexOf("</", from); index >= 0; index = text.indexOf("</", index + 2)) {
+			int end = index + closing.length();
+			if (text.regionMatches(true, index, closing, 0, closing.length()) &&
+			    (end == text.length() || !Character.isLetterOrDigit(text.charAt(end)))) {
+				return index;
+			}
+		}
+
+		return -1;
+	}
+}
@@ -0,0 +1,74 @@
+package com.zandero.template;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * HTML escaping producing the same output as mustache
+ * Values are scanned with a lookup table, values with nothing to escape are written in bulk,
+ * otherwise only escapable chars are replaced and ranges in between written as they are
+ */
+class HtmlValueEscaper implements ValueEscaper {
+
+	/**
+	 * Escapes by char, only chars up to '`' are escaped
+	 */
+	private static final char[][] ESCAPES = new char['`' + 1][];
+
+	static {
+		for (int c = 0; c <= 13; c++) { // control chars including new lines
+			ESCAPES[c] = ("&#" + c + ";").toCharArray();
+		}
+
+		ESCAPES['&'] = "&amp;".toCharArray();
+		ESCAPES['<'] = "&lt;".toCharArray();
+		ESCAPES['>'] = "&gt;".toCharArray();
+		ESCAPES['"'] = "&quot;".toCharArray();
+		ESCAPES['\''] = "&#39;".toCharArray();
+		ESCAPES['`'] = "&#96;".toCharArray();
+		ESCAPES['='] = "&#61;".toCharArray();
+	}
+
+	@Override
+	public void escape(String value, Writer writer) throws IOException {
+
+		int length = value.length();
+
+		int index = find(value, 0, length);
+		if (index == length) { // nothing to escape
+			writer.write(value);
+			return;
+		}
+
+		int start = 0;
+		while (index < length) {
+
+			if (index > start) {
+				writer.write(value, start, index - start);
+			}
+
+			writer.write(ESCAPES[value.charAt(index)]);
+			start = index + 1;
+			index = find(value, start, length);
+		}
+
+		if (start < length) {
+			writer.write(value, start, length - start);
+		}
+	}
+
+	/**
+	 * @return index of first char to be escaped or length if none
+	 */
+	private static int find(String value, int from, int length) {
+
+		for (int index = from; index < length; index++) {
+			char c = value.charAt(index);
+			if (c < ESCAPES.length && ESCAPES[c] != null) {
+				return index;
+			}
+		}
+
+		return length;
+	}
+}
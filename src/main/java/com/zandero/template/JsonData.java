@@ -0,0 +1,192 @@
+package com.zandero.template;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.zandero.utils.Assert;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads JSON template data with Jackson's streaming parser straight from bytes, without decoding into a String first
+ * When referenced template variables are given, fields not referenced by template are skipped while parsing
+ */
+final class JsonData {
+
+	private static final ObjectMapper mapper = new ObjectMapper()
+		                                           .configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false);
+
+	private JsonData() {
+		// hide constructor
+	}
+
+	/**
+	 * @param json      JSON
+	 * @param variables referenced by template or null to read all fields
+	 * @return parsed JSON tree
+	 */
+	static JsonNode read(String json, TemplateVariables variables) {
+
+		Assert.notNull(json, "Missing JSON data!");
+		try {
+			return read(mapper.getFactory().createParser(json), variables);
+		}
+		catch (IOException e) {
+			throw new IllegalArgumentException("Failed to parse JSON data: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * @param json      UTF-8, UTF-16 or UTF-32 encoded JSON
+	 * @param variables referenced by template or null to read all fields
+	 * @return parsed JSON tree
+	 */
+	static JsonNode read(byte[] json, TemplateVariables variables) {
+
+		Assert.notNull(json, "Missing JSON data!");
+		try {
+			return read(mapper.getFactory().createParser(json), variables);
+		}
+		catch (IOException e) {
+			throw new IllegalArgumentException("Failed to parse JSON data: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * @param json      encoded JSON, stream is read but not closed
+	 * @param variables referenced by template or null to read all fields
+	 * @return parsed JSON tree
+	 */
+	static JsonNode read(InputStream json, TemplateVariables variables) {
+
+		Assert.notNull(json, "Missing JSON data!");
+		try {
+			return read(mapper.getFactory().createParser(json), variables);
+		}
+		catch (IOException e) {
+			throw new IllegalArgumentException("Failed to parse JSON data: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * @param json      JSON characters, reader is read but not closed
+	 * @param variables referenced by template or null to read all fields
+	 * @return parsed JSON tree
+	 */
+	static JsonNode read(Reader json, TemplateVariables variables) {
+
+		Assert.notNull(json, "Missing JSON data!");
+		try {
+			return read(mapper.getFactory().createParser(json), variables);
+		}
+		catch (IOException e) {
+			throw new IllegalArgumentException("Failed to parse JSON data: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * @param json      encoded JSON between buffer position and limit, buffer position is left unchanged
+	 * @param variables referenced by template or null to read all fields
+	 * @return parsed JSON tree
+	 */
+	static JsonNode read(ByteBuffer json, TemplateVariables variables) {
+
+		Assert.notNull(json, "Missing JSON data!");
+		try {
+			if (json.hasArray()) {
+				return read(mapper.getFactory().createParser(json.array(), json.arrayOffset() + json.position(), json.remaining()), variables);
+			}
+
+			return read(mapper.getFactory().createParser(new ByteBufferBackedInputStream(json.duplicate())), variables);
+		}
+		catch (IOException e) {
+			throw new IllegalArgumentException("Failed to parse JSON data: " + e.getMessage(), e);
+		}
+	}
+
+	private static JsonNode read(JsonParser parser, TemplateVariables variables) throws IOException {
+
+		try (JsonParser closing = parser) {
+
+			if (variables == null || !variables.isComplete()) {
+				JsonNode node = mapper.readTree(closing);
+				return node == null ? MissingNode.getInstance() : node;
+			}
+
+			if (closing.nextToken() == null) {
+				return MissingNode.getInstance();
+			}
+
+			return project(closing, variables, mapper.getNodeFactory());
+		}
+	}
+
+	/**
+	 * Builds tree from current token on, skipping fields not referenced by template
+	 */
+	private static JsonNode project(JsonParser parser, TemplateVariables variables, JsonNodeFactory nodes) throws IOException {
+
+		JsonToken token = parser.currentToken();
+		switch (token) {
+			case START_OBJECT:
+				ObjectNode object = nodes.objectNode();
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					String name = parser.getCurrentName();
+					parser.nextToken();
+
+					if (variables.isReferenced(name)) {
+						object.set(name, project(parser, variables, nodes));
+					}
+					else {
+						parser.skipChildren();
+					}
+				}
+				return object;
+
+			case START_ARRAY:
+				ArrayNode array = nodes.arrayNode();
+				while (parser.nextToken() != JsonToken.END_ARRAY) {
+					array.add(project(parser, variables, nodes));
+				}
+				return array;
+
+			case VALUE_STRING:
+				return nodes.textNode(parser.getText());
+
+			case VALUE_NUMBER_INT:
+				switch (parser.getNumberType()) {
+					case INT:
+						return nodes.numberNode(parser.getIntValue());
+					case LONG:
+						return nodes.numberNode(parser.getLongValue());
+					default:
+						return nodes.numberNode(parser.getBigIntegerValue());
+				}
+
+			case VALUE_NUMBER_FLOAT:
+				return nodes.numberNode(parser.getDoubleValue());
+
+			case VALUE_TRUE:
+				return nodes.booleanNode(true);
+
+			case VALUE_FALSE:
+				return nodes.booleanNode(false);
+
+			case VALUE_EMBEDDED_OBJECT:
+				return nodes.pojoNode(parser.getEmbeddedObject());
+
+			case VALUE_NULL:
+			default:
+				return nodes.nullNode();
+		}
+	}
+}
@@ -0,0 +1,219 @@
+package com.zandero.template;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.mustachejava.Binding;
+import com.github.mustachejava.Code;
+import com.github.mustachejava.Iteration;
+import com.github.mustachejava.TemplateContext;
+import com.github.mustachejava.reflect.ReflectionObjectHandler;
+
+import java.io.Writer;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Object handler resolving names, sections and iterations directly against Jackson {@link JsonNode} trees
+ * JSON data is rendered without being copied into maps and lists first,
+ * numbers and booleans keep their type, any other data is resolved through reflection as before
+ *
+ * Values of type {@link Supplier} (see {@link LazyValue}) are resolved only once referenced
+ */
+public class JsonNodeObjectHandler extends ReflectionObjectHandler {
+
+	@Override
+	public Binding createBinding(String name, TemplateContext tc, Code code) {
+
+		Binding fallback = super.createBinding(name, tc, code);
+
+		int dot = name.indexOf('.');
+		if (dot <= 0 || name.equals(".")) {
+			return new JsonNodeBinding(name, null, fallback, fallback, null);
+		}
+
+		// dotted name, first part might resolve to a JsonNode held by a map or object or to a lazy value
+		String[] path = name.split("\\.");
+		Binding first = super.createBinding(path[0], tc, code);
+		Binding rest = dot < name.length() - 1 ? super.createBinding(name.substring(dot + 1), tc, code) : null;
+		return new JsonNodeBinding(name, path, first, fallback, rest);
+	}
+
+	/**
+	 * @param value  found value
+	 * @param scopes of render, suppliers are computed once per render when rendered through {@link MustacheUtils}
+	 * @return value computed by supplier or value as given
+	 */
+	static Object resolve(Object value, List<Object> scopes) {
+
+		if (!(value instanceof Supplier)) {
+			return value;
+		}
+
+		RenderScope rendering = value instanceof LazyValue ? null : RenderScope.of(scopes);
+		return rendering == null ? ((Supplier<?>) value).get() : rendering.compute((Supplier<?>) value);
+	}
+
+	@Override
+	public Object coerce(Object object) {
+
+		if (object instanceof JsonNode) {
+			return value((JsonNode) object);
+		}
+
+		return super.coerce(object);
+	}
+
+	@Override
+	public Writer iterate(Iteration iteration, Writer writer, Object object, List<Object> scopes) {
+
+		if (object instanceof ObjectNode) { // JSON object is a single scope and not iterated over its values
+			return iteration.next(writer, object, scopes);
+		}
+
+		return super.iterate(iteration, writer, coerce(object), scopes);
+	}
+
+	@Override
+	public Writer falsey(Iteration iteration, Writer writer, Object object, List<Object> scopes) {
+
+		if (object instanceof ObjectNode) { // JSON object is always true
+			return writer;
+		}
+
+		return super.falsey(iteration, writer, coerce(object), scopes);
+	}
+
+	/**
+	 * Converts value nodes to their Java counterparts, objects and arrays are left as they are
+	 *
+	 * @param node to convert
+	 * @return null, Boolean, Number, String or container node
+	 */
+	static Object value(JsonNode node) {
+
+		if (node == null || node.isNull() || node.isMissingNode()) {
+			return null;
+		}
+
+		if (node.isContainerNode()) {
+			return node;
+		}
+
+		if (node.isBoolean()) {
+			return node.booleanValue();
+		}
+
+		if (node.isNumber()) {
+			return node.numberValue();
+		}
+
+		return node.asText();
+	}
+
+	/**
+	 * Walks scopes from innermost to outermost, JSON scopes are resolved directly,
+	 * others through reflection
+	 */
+	private static class JsonNodeBinding implements Binding {
+
+		private final String name;
+
+		private final String[] path;
+
+		private final Binding first;
+
+		private final Binding fallback;
+
+		/**
+		 * resolves rest of dotted name against value of first part, null if name is not dotted
+		 */
+		private final Binding rest;
+
+		JsonNodeBinding(String name, String[] path, Binding first, Binding fallback, Binding rest) {
+
+			this.name = name;
+			this.path = path;
+			this.first = first;
+			this.fallback = fallback;
+			this.rest = rest;
+		}
+
+		@Override
+		public Object get(List<Object> scopes) {
+
+			if (!hasJson(scopes)) {
+				return path == null ? resolve(fallback.get(scopes), scopes) : resolvePath(first.get(scopes), scopes, scopes);
+			}
+
+			for (int index = scopes.size() - 1; index >= 0; index--) {
+
+				Object scope = scopes.get(index);
+				if (scope instanceof JsonNode) {
+
+					JsonNode node = (JsonNode) scope;
+					if (name.equals(".")) {
+						return value(node);
+					}
+
+					JsonNode found = node.isObject() ? node.get(path == null ? name : path[0]) : null;
+					if (found != null) {
+						return path == null ? value(found) : walk(found);
+					}
+				}
+				else if (scope != null) {
+
+					List<Object> single = Collections.singletonList(scope);
+					Object found = path == null ? resolve(fallback.get(single), scopes) : resolvePath(first.get(single), single, scopes);
+					if (found != null || name.equals(".")) {
+						return found;
+					}
+				}
+			}
+
+			return null;
+		}
+
+		/**
+		 * @param scopes scopes value was found in
+		 * @param render all scopes of render
+		 */
+		private Object resolvePath(Object found, List<Object> scopes, List<Object> render) {
+
+			if (found instanceof Supplier) { // rest of name is resolved against computed value
+				Object value = resolve(found, render);
+				if (value instanceof JsonNode) {
+					return walk((JsonNode) value);
+				}
+
+				return value == null || rest == null ? null : resolve(rest.get(Collections.singletonList(value)), render);
+			}
+
+			if (found instanceof JsonNode) {
+				return walk((JsonNode) found);
+			}
+
+			return found == null ? null : resolve(fallback.get(scopes), render);
+		}
+
+		private Object walk(JsonNode node) {
+
+			for (int index = 1; index < path.length && node != null; index++) {
+				node = node.get(path[index]);
+			}
+
+			return value(node);
+		}
+
+		private static boolean hasJson(List<Object> scopes) {
+
+			for (int index = 0; index < scopes.size(); index++) {
+				if (scopes.get(index) instanceof JsonNode) {
+					return true;
+				}
+			}
+
+			return false;
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package com.zandero.template;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free histogram of non negative values with log linear buckets
+ * Each power of two range is split into 16 buckets, so percentiles are reported with less than 1/16 relative error
+ */
+class LatencyHistogram {
+
+	private static final int SUB_BITS = 4;
+
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+
+	private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	private final LongAdder count = new LongAdder();
+
+	private final LongAdder total = new LongAdder();
+
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	void record(long value) {
+
+		long positive = Math.max(0, value);
+
+		counts.incrementAndGet(index(positive));
+		count.increment();
+		total.add(positive);
+		max.accumulate(positive);
+	}
+
+	long getCount() {
+		return count.sum();
+	}
+
+	long getTotal() {
+		return total.sum();
+	}
+
+	long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * @param quantile between 0.0 and 1.0
+	 * @return upper bound of bucket holding given quantile, 0 if nothing was recorded
+	 */
+	long percentile(double quantile) {
+
+		long[] snapshot = new long[BUCKETS];
+		long recorded = 0;
+		for (int index = 0; index < BUCKETS; index++) {
+			snapshot[index] = counts.get(index);
+			recorded += snapshot[index];
+		}
+
+		if (recorded == 0) {
+			return 0;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(quantile * recorded));
+		long seen = 0;
+		for (int index = 0; index < BUCKETS; index++) {
+			seen += snapshot[index];
+			if (seen >= rank) {
+				return Math.min(upperBound(index), getMax());
+			}
+		}
+
+		return getMax();
+	}
+
+	static int index(long value) {
+
+		if (value < SUB_COUNT) {
+			return (int) value;
+		}
+
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+		int sub = (int) (value >>> shift) & (SUB_COUNT - 1);
+		return (shift + 1) * SUB_COUNT + sub;
+	}
+
+	static long upperBound(int index) {
+
+		if (index < SUB_COUNT) {
+			return index;
+		}
+
+		int shift = index / SUB_COUNT - 1;
+		long lower = (long) (SUB_COUNT + index % SUB_COUNT) << shift;
+		return lower + (1L << shift) - 1;
+	}
+}
@@ -0,0 +1,287 @@
+package com.zandero.template;
+
+import com.github.mustachejava.Code;
+import com.github.mustachejava.Mustache;
+import com.github.mustachejava.codes.ValueCode;
+import com.zandero.utils.Assert;
+
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Base template split at its top level values (slots), so content is streamed into slots in a single pass
+ * Rendering writes codes before a slot, slot content and codes after the slot into the same writer,
+ * so content is never materialized as a String
+ */
+final class Layout {
+
+	private final Mustache template;
+
+	private final String placeholder;
+
+	/**
+	 * top level codes of template, null in case template has none
+	 */
+	private final Code[] codes;
+
+	/**
+	 * names of top level values by code index, null for other codes
+	 */
+	private final String[] slots;
+
+	/**
+	 * true if value escapes its content ({{slot}}), false if not ({{{slot}}}) by code index
+	 */
+	private final boolean[] escaped;
+
+	/**
+	 * names of all values used by template including values inside sections
+	 */
+	private final Set<String> names;
+
+	private Layout(Mustache template, String placeholder, Code[] codes, String[] slots, boolean[] escaped, Set<String> names) {
+
+		this.template = template;
+		this.placeholder = placeholder;
+		this.codes = codes;
+		this.slots = slots;
+		this.escaped = escaped;
+		this.names = names;
+	}
+
+	/**
+	 * Splits base template at its top level values
+	 *
+	 * @param template    base template
+	 * @param placeholder name of main placeholder
+	 * @return layout, content of slots not being top level values is rendered into a String and passed as value
+	 */
+	static Layout of(Mustache template, String placeholder) {
+
+		Assert.notNull(template, "Missing base template");
+		Assert.notNullOrEmptyTrimmed(placeholder, "Missing placeholder name!");
+
+		Code[] codes = template.getCodes();
+		if (codes == null) {
+			return new Layout(template, placeholder, null, null, null, Collections.emptySet());
+		}
+
+		String[] slots = new String[codes.length];
+		boolean[] escaped = new boolean[codes.length];
+		for (int index = 0; index < codes.length; index++) {
+
+			Code code = codes[index];
+			if (code instanceof ValueCode && code.getName() != null) {
+				slots[index] = code.getName();
+				escaped[index] = isEscaped(code);
+			}
+		}
+
+		Set<String> names = new HashSet<>();
+		collect(codes, names, Collections.newSetFromMap(new IdentityHashMap<>()));
+
+		return new Layout(template, placeholder, codes, slots, escaped, names);
+	}
+
+	/**
+	 * @return split of this layout holding no reference to its template, to be kept by template held weakly
+	 */
+	Layout detach() {
+		return new Layout(null, placeholder, codes, slots, escaped, names);
+	}
+
+	/**
+	 * @param template this layout was split from
+	 * @return layout rendering given template, sharing split of this layout
+	 */
+	Layout attach(Mustache template) {
+
+		Assert.notNull(template, "Missing base template");
+		return new Layout(template, placeholder, codes, slots, escaped, names);
+	}
+
+	Mustache getTemplate() {
+		return template;
+	}
+
+	String getPlaceholder() {
+		return placeholder;
+	}
+
+	/**
+	 * @param name of slot
+	 * @return true if slot is a top level value, so content is streamed into it
+	 */
+	boolean isSlot(String name) {
+
+		if (slots != null) {
+			for (String slot : slots) {
+				if (name.equals(slot)) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * @param name of slot
+	 * @return true if template uses slot anywhere, as top level value or inside a section
+	 */
+	boolean uses(String name) {
+		return names.contains(name);
+	}
+
+	/**
+	 * Renders inner template into layout
+	 *
+	 * @param mustache  utils to render inner template with
+	 * @param inner     template to insert at placeholder
+	 * @param data      data for inner template
+	 * @param writer    to write output to
+	 * @param flushHead true to flush writer once prefix is written, so head of page is sent before inner template is rendered
+	 */
+	void render(MustacheUtils mustache, Mustache inner, Object data, Writer writer, boolean flushHead) {
+
+		Assert.notNull(inner, "Missing template!");
+		Assert.notNull(writer, "Missing writer!");
+
+		TemplateMetrics metrics = mustache.getMetrics();
+		TemplateRenderEvent event = new TemplateRenderEvent();
+		if (metrics == TemplateMetrics.NONE && !event.isEnabled()) {
+			write(mustache, inner, data, writer, flushHead);
+			return;
+		}
+
+		// base template is reported including inner template, inner template is reported on its own as well
+		mustache.measure(metrics, event, template, inner, writer, out -> write(mustache, inner, data, out, flushHead));
+	}
+
+	private void write(MustacheUtils mustache, Mustache inner, Object data, Writer writer, boolean flushHead) {
+
+		// base template sees only the placeholder as data
+		Consumer<Writer> content = out -> mustache.render(inner, data, out);
+		renderSlots(mustache, null, null, Collections.singletonMap(placeholder, content), writer, flushHead);
+	}
+
+	/**
+	 * Renders layout with content streamed into slots
+	 *
+	 * @param mustache  utils to render with
+	 * @param data      data for values other than slots or null if none
+	 * @param rendering scope of render shared with other templates or null if none
+	 * @param content   writes content of slot into given writer, by slot name
+	 * @param writer    to write output to
+	 * @param flushHead true to flush writer before content of first slot is written
+	 */
+	void renderSlots(MustacheUtils mustache, Object data, RenderScope rendering, Map<String, Consumer<Writer>> content, Writer writer, boolean flushHead) {
+
+		if (codes == null) {
+			return;
+		}
+
+		List<Object> scopes = new ArrayList<>();
+		if (rendering != null) {
+			scopes.add(rendering);
+		}
+
+		if (data != null) {
+			scopes.add(data);
+		}
+
+		scopes.add(values(content));
+
+		boolean flush = flushHead;
+
+		Writer out = writer;
+		for (int index = 0; index < codes.length; index++) {
+
+			Consumer<Writer> slot = slots[index] == null ? null : content.get(slots[index]);
+			if (slot != null) {
+
+				if (flush) {
+					MustacheUtils.flush(out);
+					flush = false;
+				}
+
+				slot.accept(escaped[index] ? new EscapingWriter(out, mustache.getFactory()) : out);
+			}
+
+			// slot itself is empty, only text following it is written
+			out = codes[index].execute(out, scopes);
+		}
+
+		if (out != writer) {
+			MustacheUtils.flush(out);
+		}
+	}
+
+	/**
+	 * Slots are empty values, content of slots found only inside sections is rendered into a String
+	 */
+	private Map<String, Object> values(Map<String, Consumer<Writer>> content) {
+
+		if (content.size() == 1) {
+			Map.Entry<String, Consumer<Writer>> slot = content.entrySet().iterator().next();
+			return Collections.singletonMap(slot.getKey(), isSlot(slot.getKey()) ? "" : toString(slot.getValue()));
+		}
+
+		Map<String, Object> values = new HashMap<>();
+		for (Map.Entry<String, Consumer<Writer>> slot : content.entrySet()) {
+			values.put(slot.getKey(), isSlot(slot.getKey()) ? "" : toString(slot.getValue()));
+		}
+
+		return values;
+	}
+
+	private static String toString(Consumer<Writer> content) {
+
+		StringWriter out = new StringWriter();
+		content.accept(out);
+		return out.toString();
+	}
+
+	private static void collect(Code[] codes, Set<String> names, Set<Code[]> visited) {
+
+		// recursive partials share their codes
+		if (codes == null || !visited.add(codes)) {
+			return;
+		}
+
+		for (Code code : codes) {
+			if (code instanceof ValueCode && code.getName() != null) {
+				names.add(code.getName());
+			}
+
+			collect(code.getCodes(), names, visited);
+		}
+	}
+
+	/**
+	 * Values of templates compiled by {@link TrackingMustacheFactory} know whether they escape,
+	 * values of templates compiled elsewhere are probed with a value that would be escaped
+	 */
+	private static boolean isEscaped(Code code) {
+
+		if (code instanceof EscapingValueCode) {
+			return ((EscapingValueCode) code).isEscaped();
+		}
+
+		// dotted names are probed through nested scopes
+		String[] path = code.getName().split("\\.");
+		Object probe = "<";
+		for (int index = path.length - 1; index >= 0; index--) {
+			probe = Collections.singletonMap(path[index], probe);
+		}
+
+		List<Object> scopes = new ArrayList<>();
+		scopes.add(probe);
+
+		StringWriter out = new StringWriter();
+		code.execute(out, scopes);
+		return !out.toString().startsWith("<");
+	}
+}
@@ -0,0 +1,141 @@
+package com.zandero.template;
+
+import com.github.mustachejava.Mustache;
+import com.github.mustachejava.MustacheException;
+import com.zandero.utils.Assert;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Value computed only once a template references it and then kept, so a costly lookup skipped by a section condition is never made
+ * Values of type {@link Supplier} found anywhere in template data are resolved by {@link JsonNodeObjectHandler} when referenced,
+ * plain suppliers are computed at most once per render, a lazy value at most once for good
+ *
+ * <pre>
+ * data.put("orders", LazyValue.of(() -&gt; repository.findOrders(user)));
+ * </pre>
+ *
+ * @param <T> type of value
+ */
+public final class LazyValue<T> implements Supplier<T> {
+
+	private final Supplier<T> supplier;
+
+	private volatile CompletableFuture<T> value;
+
+	private LazyValue(Supplier<T> supplier) {
+
+		this.supplier = supplier;
+	}
+
+	/**
+	 * @param supplier computing value
+	 * @param <T>      type of value
+	 * @return lazy value computing value once on first access
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> LazyValue<T> of(Supplier<T> supplier) {
+
+		Assert.notNull(supplier, "Missing supplier!");
+		return supplier instanceof LazyValue ? (LazyValue<T>) supplier : new LazyValue<>(supplier);
+	}
+
+	/**
+	 * Computes value on first call, waits for value if computed concurrently
+	 *
+	 * @return value
+	 */
+	@Override
+	public T get() {
+
+		CompletableFuture<T> future = value;
+		if (future == null) {
+			synchronized (this) {
+				future = value;
+				if (future == null) {
+					future = new CompletableFuture<>();
+					try {
+						future.complete(supplier.get());
+					}
+					catch (RuntimeException e) {
+						future.completeExceptionally(e);
+					}
+
+					value = future;
+				}
+			}
+		}
+
+		return join(future);
+	}
+
+	/**
+	 * @return true if value was computed or is being computed
+	 */
+	public boolean isRequested() {
+		return value != null;
+	}
+
+	/**
+	 * Starts computing value on given executor unless already requested
+	 *
+	 * @param executor to compute value on
+	 */
+	void prefetch(Executor executor) {
+
+		if (value == null) {
+			synchronized (this) {
+				if (value == null) {
+					value = CompletableFuture.supplyAsync(supplier, executor);
+				}
+			}
+		}
+	}
+
+	static <T> T join(CompletableFuture<T> future) {
+
+		try {
+			return future.join();
+		}
+		catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+
+			throw new MustacheException("Failed to compute value: " + e.getCause(), e.getCause());
+		}
+	}
+
+	/**
+	 * Starts computing suppliers held by map data that template references on every render, see {@link TemplateVariables#getRequired()}
+	 * Lazy values are computed once for good, other suppliers once per render
+	 *
+	 * @param template  to be rendered
+	 * @param data      template data
+	 * @param rendering scope of render to keep values of suppliers in
+	 * @param executor  to compute values on
+	 */
+	static void prefetch(Mustache template, Object data, RenderScope rendering, Executor executor) {
+
+		if (!(data instanceof Map) || data instanceof StringsScope) {
+			return;
+		}
+
+		Map<?, ?> map = (Map<?, ?>) data;
+		for (String name : TemplateAnalyzer.analyze(template).getRequired()) {
+
+			int dot = name.indexOf('.');
+			Object value = map.get(dot > 0 ? name.substring(0, dot) : name);
+			if (value instanceof LazyValue) {
+				((LazyValue<?>) value).prefetch(executor);
+			}
+			else if (value instanceof Supplier) {
+				rendering.prefetch((Supplier<?>) value, executor);
+			}
+		}
+	}
+}
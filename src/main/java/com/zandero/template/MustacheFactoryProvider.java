@@ -0,0 +1,269 @@
+package com.zandero.template;
+
+import com.github.mustachejava.DefaultMustacheFactory;
+import com.github.mustachejava.MustacheResolver;
+import com.github.mustachejava.ObjectHandler;
+import com.zandero.utils.Assert;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Provides mustache factory used to compile templates
+ * By default a single factory is shared across all threads, so templates are compiled only once
+ * Partials are compiled once into a cache shared by all provided factories in either mode
+ */
+public class MustacheFactoryProvider {
+
+	/**
+	 * How factories are handed out to threads
+	 */
+	public enum Mode {
+
+		/**
+		 * single factory shared by all threads
+		 */
+		SHARED,
+
+		/**
+		 * each thread gets its own factory (old behaviour)
+		 */
+		PER_THREAD
+	}
+
+	private final Mode mode;
+
+	private volatile MustacheResolver resolver;
+
+	private volatile ExecutorService executor;
+
+	private volatile ObjectHandler objectHandler = new JsonNodeObjectHandler();
+
+	private volatile Charset staticEncoding;
+
+	private volatile ValueEscaper escaper = ValueEscaper.HTML;
+
+	private volatile boolean minifyHtml;
+
+	private volatile DefaultMustacheFactory shared;
+
+	private final ThreadLocal<DefaultMustacheFactory> perThread = ThreadLocal.withInitial(this::create);
+
+	private final AtomicInteger created = new AtomicInteger();
+
+	private final TemplateDependencies dependencies = new TemplateDependencies();
+
+	private final PartialCache partials = new PartialCache();
+
+	/**
+	 * Provider with single shared factory
+	 */
+	public MustacheFactoryProvider() {
+		this(Mode.SHARED);
+	}
+
+	/**
+	 * @param mode of providing factories
+	 */
+	public MustacheFactoryProvider(Mode mode) {
+
+		Assert.notNull(mode, "Missing factory mode!");
+		this.mode = mode;
+	}
+
+	/**
+	 * @return mode of providing factories
+	 */
+	public Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * Sets resolver to read templates and partials with, must be set before first template is compiled
+	 *
+	 * @param resolver mustache resolver or null for default classpath / file system resolver,
+	 *                 see {@link TemplateResolver} to resolve against several classpath and file system roots
+	 */
+	public void setResolver(MustacheResolver resolver) {
+
+		assertNotInUse();
+		this.resolver = resolver;
+	}
+
+	/**
+	 * Sets executor used to resolve {@link java.util.concurrent.Callable} template values concurrently,
+	 * must be set before first template is compiled
+	 *
+	 * @param executor to use or null to resolve values on calling thread
+	 */
+	public void setExecutor(ExecutorService executor) {
+
+		assertNotInUse();
+		this.executor = executor;
+	}
+
+	/**
+	 * Sets object handler resolving template names against data, must be set before first template is compiled
+	 * Defaults to {@link JsonNodeObjectHandler}
+	 *
+	 * @param objectHandler to use
+	 */
+	public void setObjectHandler(ObjectHandler objectHandler) {
+
+		Assert.notNull(objectHandler, "Missing object handler!");
+		assertNotInUse();
+		this.objectHandler = objectHandler;
+	}
+
+	/**
+	 * @return object handler set on created factories
+	 */
+	public ObjectHandler getObjectHandler() {
+		return objectHandler;
+	}
+
+	/**
+	 * Sets escaper applied to values of {{name}} tags, must be set before first template is compiled
+	 * Defaults to {@link ValueEscaper#HTML}
+	 *
+	 * @param escaper to use or null for escaping of mustache itself
+	 */
+	public void setEscaper(ValueEscaper escaper) {
+
+		assertNotInUse();
+		this.escaper = escaper;
+	}
+
+	/**
+	 * @return escaper set on created factories, null if escaping of mustache is used
+	 */
+	public ValueEscaper getEscaper() {
+		return escaper;
+	}
+
+	/**
+	 * Pre-encodes static text of compiled templates with given charset, must be set before first template is compiled
+	 * Rendering into an output stream or channel with the same charset then copies static text as bytes and encodes only values
+	 * Disabled by default
+	 *
+	 * @param charset to pre-encode static text with or null to disable, must encode text independently of preceding text
+	 *                (for instance UTF-8, ISO-8859-1 or UTF-16LE, but not UTF-16 adding a byte order mark)
+	 */
+	public void setStaticEncoding(Charset charset) {
+
+		Assert.isTrue(charset == null || isStateless(charset), "Static text can not be pre-encoded with: " + charset);
+		assertNotInUse();
+		this.staticEncoding = charset;
+	}
+
+	/**
+	 * @return charset static text is pre-encoded with or null if disabled
+	 */
+	public Charset getStaticEncoding() {
+		return staticEncoding;
+	}
+
+	/**
+	 * Collapses insignificant whitespace of static template text once when templates are compiled, must be set before first template is compiled
+	 * Runs of whitespace become a single new line or space, content of pre, textarea, script and style elements,
+	 * comments, quoted attribute values and rendered values are left as they are
+	 * Disabled by default
+	 *
+	 * @param enabled true to minify static HTML text of templates compiled by {@link MustacheUtils#compile(String, String)},
+	 *                {@link MustacheUtils#load(String)} and {@link MustacheUtils#loadFile(String)}
+	 */
+	public void setMinifyHtml(boolean enabled) {
+
+		assertNotInUse();
+		this.minifyHtml = enabled;
+	}
+
+	/**
+	 * @return true if static HTML text is minified when compiled
+	 */
+	public boolean isMinifyHtml() {
+		return minifyHtml;
+	}
+
+	/**
+	 * Returns factory for calling thread
+	 *
+	 * @return mustache factory
+	 */
+	public DefaultMustacheFactory get() {
+
+		if (mode == Mode.PER_THREAD) {
+			return perThread.get();
+		}
+
+		DefaultMustacheFactory factory = shared;
+		if (factory == null) {
+			synchronized (this) {
+				factory = shared;
+				if (factory == null) {
+					factory = create();
+					shared = factory;
+				}
+			}
+		}
+
+		return factory;
+	}
+
+	/**
+	 * @return number of factories created so far
+	 */
+	public int getFactoryCount() {
+		return created.get();
+	}
+
+	/**
+	 * @return partials and parent templates read by templates compiled with provided factories
+	 */
+	TemplateDependencies getDependencies() {
+		return dependencies;
+	}
+
+	/**
+	 * @return partials compiled by provided factories
+	 */
+	PartialCache getPartials() {
+		return partials;
+	}
+
+	private DefaultMustacheFactory create() {
+
+		DefaultMustacheFactory factory = resolver == null ?
+		                                 new TrackingMustacheFactory(dependencies, partials, staticEncoding, escaper, minifyHtml) :
+		                                 new TrackingMustacheFactory(resolver, dependencies, partials, staticEncoding, escaper, minifyHtml);
+		if (executor != null) {
+			factory.setExecutorService(executor);
+		}
+
+		factory.setObjectHandler(objectHandler);
+
+		created.incrementAndGet();
+		return factory;
+	}
+
+	/**
+	 * Text encodes independently of preceding text if it encodes into the same bytes twice when repeated
+	 */
+	private static boolean isStateless(Charset charset) {
+
+		if (!charset.canEncode()) {
+			return false;
+		}
+
+		byte[] single = "a".getBytes(charset);
+		byte[] twice = "aa".getBytes(charset);
+		return twice.length == 2 * single.length &&
+		       Arrays.equals(single, Arrays.copyOfRange(twice, single.length, twice.length));
+	}
+
+	private void assertNotInUse() {
+		Assert.isTrue(created.get() == 0, "Mustache factory already in use, settings can no longer be changed!");
+	}
+}
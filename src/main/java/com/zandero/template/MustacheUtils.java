@@ -3,23 +3,102 @@ package com.zandero.template;
 import com.fasterxml.jackson.databind.*;
 import com.github.mustachejava.*;
 import com.zandero.utils.*;
-import com.zandero.utils.extra.*;
 
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.time.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+import java.util.stream.*;
 
 /**
  * Helper class wrapping Mustache template engine
  */
 public class MustacheUtils {
 
-    private static ThreadLocal<MustacheFactory> factory;
+    /**
+     * Default size of buffer in chars used when rendering into output stream or channel
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private static final MustacheFactoryProvider defaultFactory = new MustacheFactoryProvider();
+
+    private static final TemplateCache defaultCache = new TemplateCache();
+
+    private final MustacheFactoryProvider factory;
+
+    private final TemplateCache cache;
+
+    private volatile int bufferSize = DEFAULT_BUFFER_SIZE;
+
+    private volatile boolean jsonProjection = true;
+
+    private volatile Executor asyncExecutor = AsyncRenderer.defaultExecutor();
+
+    private volatile TemplateMetrics metrics = TemplateMetrics.NONE;
+
+    private volatile Charset charset = StandardCharsets.UTF_8;
+
+    private volatile OutputBuffers buffers = new OutputBuffers();
+
+    private volatile boolean prefetch;
+
+    // directories of started template watchers, files within are reloaded by the watcher only
+    private final List<Path> watched = new CopyOnWriteArrayList<>();
 
     /**
-     * Creates new instance of utils
+     * Creates new instance of utils sharing default mustache factory and template cache
      */
     public MustacheUtils() {
 
+        this(defaultFactory, defaultCache);
+    }
+
+    /**
+     * Creates new instance of utils with given template cache
+     *
+     * @param cache to store loaded templates into
+     */
+    public MustacheUtils(TemplateCache cache) {
+
+        this(defaultFactory, cache);
+    }
+
+    /**
+     * Creates new instance of utils with given mustache factory and own template cache
+     *
+     * @param factory provider of mustache factory
+     */
+    public MustacheUtils(MustacheFactoryProvider factory) {
+
+        this(factory, new TemplateCache());
+    }
+
+    /**
+     * Creates new instance of utils with given mustache factory and template cache
+     *
+     * @param factory provider of mustache factory
+     * @param cache   to store loaded templates into
+     */
+    public MustacheUtils(MustacheFactoryProvider factory, TemplateCache cache) {
+
+        Assert.notNull(factory, "Missing mustache factory provider!");
+        Assert.notNull(cache, "Missing template cache!");
+
+        this.factory = factory;
+        this.cache = cache;
+    }
+
+    /**
+     * @return cache holding templates loaded by {@link #load(String)} and {@link #loadFile(String)}
+     */
+    public TemplateCache getCache() {
+
+        return cache;
     }
 
     /**
@@ -32,12 +111,24 @@ public class MustacheUtils {
     public Mustache compile(String template, String path) {
 
         Assert.notNull(template, "Missing template!");
-        MustacheFactory mf = getFactory();
-        return mf.compile(new StringReader(template), path);
+        return compile(new StringReader(template), path, TemplateSource.INLINE);
+    }
+
+    /**
+     * Compiles template read from reader, reader is read but not closed
+     *
+     * @param template reader providing template
+     * @param path     to store template under
+     * @return compiled template
+     */
+    public Mustache compile(Reader template, String path) {
+
+        Assert.notNull(template, "Missing template!");
+        return compile(template, path, TemplateSource.INLINE);
     }
 
     /**
-     * Loads template by path
+     * Loads template by path, template is compiled once and then served from cache
      *
      * @param path of template
      * @return compiled template
@@ -45,18 +136,14 @@ public class MustacheUtils {
     public Mustache load(String path) {
 
         Assert.notNullOrEmptyTrimmed(path, "Missing template path!");
-
-        InputStream resource = this.getClass().getResourceAsStream(path);
-        Assert.notNull(resource, "Could not load template: '" + path + "'");
-
-        String content = ResourceUtils.getString(resource);
-
-        MustacheFactory mf = getFactory();
-        return mf.compile(new StringReader(content), path);
+        return load(TemplateSource.CLASSPATH, path, path, 0, key -> compileResource(path));
     }
 
     /**
-     * Loads template from file
+     * Loads template from file, template is compiled once and then served from cache until the file is modified
+     * Modification time is checked on each call, changed file is compiled again
+     * Files in directories of a started {@link TemplateWatcher} are not checked, the cached template is served
+     * until the watcher has compiled the changed file successfully
      *
      * @param path file
      * @return compiled template
@@ -65,18 +152,202 @@ public class MustacheUtils {
 
         Assert.notNullOrEmptyTrimmed(path, "Missing template file path!");
 
+        File file = new File(path);
+        Path absolutePath = file.getAbsoluteFile().toPath().normalize();
+        long version = isWatched(absolutePath) ? TemplateCache.ANY_VERSION : file.lastModified();
+        return load(TemplateSource.FILE, absolutePath.toString(), path, version, key -> compileFile(path));
+    }
+
+    /**
+     * Hands files in given directories over to watcher, see {@link #loadFile(String)}
+     *
+     * @param directories absolute and normalized paths of watched directories
+     */
+    void watch(Collection<Path> directories) {
+
+        watched.addAll(directories);
+    }
+
+    /**
+     * Returns files in given directories back to modification time checks
+     *
+     * @param directories as given to {@link #watch(Collection)}
+     */
+    void unwatch(Collection<Path> directories) {
+
+        for (Path directory : directories) {
+            watched.remove(directory); // single occurrence, directory might be watched by another watcher
+        }
+    }
+
+    private boolean isWatched(Path file) {
+
+        for (Path directory : watched) {
+            if (file.startsWith(directory)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private Mustache load(TemplateSource source, String path, String name, long version, Function<String, Mustache> loader) {
+
+        String key = source.key(path);
+
+        TemplateMetrics metrics = this.metrics;
+        TemplateLoadEvent event = new TemplateLoadEvent();
+        if (metrics == TemplateMetrics.NONE && !event.isEnabled()) {
+            return cache.get(key, version, loader);
+        }
+
+        event.begin();
+
+        boolean[] compiled = new boolean[1];
+        Mustache template = cache.get(key, version, cacheKey -> {
+            compiled[0] = true;
+            return loader.apply(cacheKey);
+        });
+
+        metrics.loaded(name, !compiled[0]);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.template = name;
+            event.source = source.getLabel();
+            event.cached = !compiled[0];
+            event.commit();
+        }
+
+        return template;
+    }
+
+    private Mustache compileResource(String path) {
+
+        InputStream resource = this.getClass().getResourceAsStream(path);
+        Assert.notNull(resource, "Could not load template: '" + path + "'");
+
+        try (Reader reader = TemplateReader.open(resource, charset)) {
+            return compile(reader, path, TemplateSource.CLASSPATH);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Failed to load template: '" + path + "' " + e.getMessage());
+        }
+    }
+
+    private Mustache compileFile(String path) {
+
         File file = new File(path);
         Assert.isTrue(file.exists(), "File not found: '" + path + "'");
 
-        try {
-            String content = ResourceUtils.readFileToString(file);
-            MustacheFactory mf = getFactory();
-            return mf.compile(new StringReader(content), path);
+        try (Reader reader = TemplateReader.open(file.toPath(), charset)) {
+            return compile(reader, path, TemplateSource.FILE);
         } catch (IOException e) {
             throw new IllegalArgumentException("Failed to load file: '" + file + "' " + e.getMessage());
         }
     }
 
+    /**
+     * Compiles template again bypassing cache
+     *
+     * @param source of template, classpath or file
+     * @param path   of template as given when loaded
+     * @return compiled template
+     */
+    Mustache recompile(TemplateSource source, String path) {
+
+        return source == TemplateSource.FILE ? compileFile(path) : compileResource(path);
+    }
+
+    /**
+     * @return partials and parent templates read by compiled templates
+     */
+    TemplateDependencies getDependencies() {
+
+        return factory.getDependencies();
+    }
+
+    /**
+     * @return partials compiled by mustache factory
+     */
+    PartialCache getPartials() {
+
+        return factory.getPartials();
+    }
+
+    /**
+     * Partials and parent templates read when template was last compiled
+     *
+     * @param template name of template or partial as compiled, for instance path given to {@link #load(String)}
+     * @return resolved names of included partials and parent templates, including nested partials
+     */
+    public Set<String> getIncludes(String template) {
+
+        Assert.notNullOrEmptyTrimmed(template, "Missing template name!");
+        return getDependencies().getIncludes(template);
+    }
+
+    /**
+     * Templates and partials including given partial or parent template
+     *
+     * @param resource resolved name of partial or parent template
+     * @return names of templates and partials including resource directly or through nested partials
+     */
+    public Set<String> getDependents(String resource) {
+
+        Assert.notNullOrEmptyTrimmed(resource, "Missing resource name!");
+        return getDependencies().getDependents(resource);
+    }
+
+    /**
+     * Invalidates resource and everything including it, so it is compiled again once loaded or included:
+     * compiled partials are removed from shared partial cache and templates from template cache
+     *
+     * @param resource name of template, partial or parent template
+     * @return names of invalidated resource and templates including it, to be preloaded again if needed
+     */
+    public Set<String> invalidate(String resource) {
+
+        Assert.notNullOrEmptyTrimmed(resource, "Missing resource name!");
+
+        Set<String> invalidated = new TreeSet<>(getDependents(resource));
+        invalidated.add(resource);
+
+        for (String name : invalidated) {
+            getPartials().invalidate(name);
+            cache.invalidate(TemplateSource.CLASSPATH.key(name));
+            cache.invalidate(TemplateSource.FILE.key(new File(name).getAbsoluteFile().toPath().normalize().toString()));
+        }
+
+        return invalidated;
+    }
+
+    private Mustache compile(Reader reader, String name, TemplateSource source) {
+
+        MustacheFactory mf = getFactory();
+
+        TemplateMetrics metrics = this.metrics;
+        TemplateCompileEvent event = new TemplateCompileEvent();
+
+        Mustache template;
+        if (metrics == TemplateMetrics.NONE && !event.isEnabled()) {
+            template = mf.compile(reader, name);
+        } else {
+            event.begin();
+            long start = System.nanoTime();
+            template = mf.compile(reader, name);
+            metrics.compiled(name, System.nanoTime() - start);
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.template = name;
+                event.source = source.getLabel();
+                event.commit();
+            }
+        }
+
+        return template;
+    }
+
     /**
      * Render template with data
      *
@@ -86,16 +357,75 @@ public class MustacheUtils {
      */
     public String render(Mustache template, Object data) {
 
+        return renderToString(template, out -> render(template, data, out));
+    }
+
+    /**
+     * Render template with data directly into writer
+     * Writer is neither flushed nor closed
+     *
+     * @param template to be rendered
+     * @param data     map of name = value pairs
+     * @param writer   to write rendered template to
+     */
+    public void render(Mustache template, Object data, Writer writer) {
+
+        render(template, data, writer, null);
+    }
+
+    /**
+     * @param rendering scope shared with other templates of the same render or null to render on its own
+     */
+    void render(Mustache template, Object data, Writer writer, RenderScope rendering) {
+
         Assert.notNull(template, "Missing template!");
+        Assert.notNull(writer, "Missing writer!");
 
-        StringWriter out = new StringWriter();
-        Object mustacheObject = data;
-        if ((data != null) && (data instanceof JsonNode)) {
-            mustacheObject = toMustacheObject((JsonNode) data);
+        if (!(factory.getObjectHandler() instanceof JsonNodeObjectHandler)) {
+            // custom object handler is aware of neither JsonNode nor suppliers
+            Object mustacheObject = data instanceof JsonNode ? toMustacheObject((JsonNode) data) : data;
+            execute(template, ObjectHandler.makeList(mustacheObject), writer);
+            return;
+        }
+
+        if (rendering == null) {
+            rendering = lazy(template, data);
         }
 
-        template.execute(out, mustacheObject); // apply mustache template
-        return out.toString();
+        execute(template, rendering.scopes(data), writer);
+    }
+
+    /**
+     * Render template with data directly into output stream
+     * Output is encoded through a buffer of {@link #getBufferSize()} chars, buffer is flushed once rendering is done,
+     * stream is not closed
+     *
+     * @param template to be rendered
+     * @param data     map of name = value pairs
+     * @param output   to write rendered template to
+     * @param charset  to encode output with
+     */
+    public void render(Mustache template, Object data, OutputStream output, Charset charset) {
+
+        Writer writer = writer(output, charset);
+        render(template, data, writer);
+        flush(writer);
+    }
+
+    /**
+     * Render template with data directly into channel
+     * Output is encoded through a buffer of {@link #getBufferSize()} chars, buffer is flushed once rendering is done,
+     * channel is not closed
+     *
+     * @param template to be rendered
+     * @param data     map of name = value pairs
+     * @param channel  to write rendered template to
+     * @param charset  to encode output with
+     */
+    public void render(Mustache template, Object data, WritableByteChannel channel, Charset charset) {
+
+        Assert.notNull(channel, "Missing channel!");
+        render(template, data, Channels.newOutputStream(channel), charset);
     }
 
     /**
@@ -109,26 +439,39 @@ public class MustacheUtils {
 
         Assert.notNull(template, "Missing template!");
 
-        Map<String, Object> map = new HashMap<>();
-        int count = 0;
-        String name = null;
-
-        for (String item : data) {
-            if (count % 2 == 1) {
-                map.put(name, item);
-            } else {
-                name = item;
-            }
-            count++;
+        StringsScope scope = StringsScope.acquire(data);
+        try {
+            Writer out = scope.getOutput();
+            execute(template, scope.getScopes(), out);
+            return out.toString();
+        } finally {
+            scope.release();
         }
+    }
 
-        StringWriter out = new StringWriter();
-        template.execute(out, map); // apply mustache template
-        return out.toString();
+    /**
+     * Render template with data directly into writer
+     *
+     * @param template to be rendered
+     * @param writer   to write rendered template to
+     * @param data     list of data as name, value, name, value
+     */
+    public void renderStrings(Mustache template, Writer writer, String... data) {
+
+        Assert.notNull(template, "Missing template!");
+        Assert.notNull(writer, "Missing writer!");
+
+        StringsScope scope = StringsScope.acquire(data);
+        try {
+            execute(template, scope.getScopes(), writer);
+        } finally {
+            scope.release();
+        }
     }
 
     /**
      * Renders template with JSON as data source
+     * JSON fields not referenced by template are skipped when parsing
      *
      * @param template   to be rendered
      * @param dataAsJson json representation of data
@@ -136,13 +479,581 @@ public class MustacheUtils {
      */
     public String renderJson(Mustache template, String dataAsJson) {
 
+        return renderToString(template, out -> renderJson(template, dataAsJson, out));
+    }
+
+    /**
+     * Renders template with JSON as data source directly into writer
+     *
+     * @param template   to be rendered
+     * @param dataAsJson json representation of data
+     * @param writer     to write rendered template to
+     */
+    public void renderJson(Mustache template, String dataAsJson, Writer writer) {
+
+        Assert.notNull(template, "Missing template!");
+        render(template, json(template, variables -> JsonData.read(dataAsJson, variables)), writer);
+    }
+
+    /**
+     * Renders template with JSON as data source
+     * JSON is parsed with streaming parser directly from bytes
+     *
+     * @param template   to be rendered
+     * @param dataAsJson UTF-8, UTF-16 or UTF-32 encoded JSON
+     * @return rendered template
+     */
+    public String renderJson(Mustache template, byte[] dataAsJson) {
+
+        return renderToString(template, out -> renderJson(template, dataAsJson, out));
+    }
+
+    /**
+     * Renders template with JSON as data source directly into writer
+     * JSON is parsed with streaming parser directly from bytes
+     *
+     * @param template   to be rendered
+     * @param dataAsJson UTF-8, UTF-16 or UTF-32 encoded JSON
+     * @param writer     to write rendered template to
+     */
+    public void renderJson(Mustache template, byte[] dataAsJson, Writer writer) {
+
+        Assert.notNull(template, "Missing template!");
+        render(template, json(template, variables -> JsonData.read(dataAsJson, variables)), writer);
+    }
+
+    /**
+     * Renders template with JSON as data source
+     * JSON is parsed with streaming parser directly from stream
+     *
+     * @param template   to be rendered
+     * @param dataAsJson stream of encoded JSON, stream is read but not closed
+     * @return rendered template
+     */
+    public String renderJson(Mustache template, InputStream dataAsJson) {
+
+        return renderToString(template, out -> renderJson(template, dataAsJson, out));
+    }
+
+    /**
+     * Renders template with JSON as data source directly into writer
+     * JSON is parsed with streaming parser directly from stream
+     *
+     * @param template   to be rendered
+     * @param dataAsJson stream of encoded JSON, stream is read but not closed
+     * @param writer     to write rendered template to
+     */
+    public void renderJson(Mustache template, InputStream dataAsJson, Writer writer) {
+
+        Assert.notNull(template, "Missing template!");
+        render(template, json(template, variables -> JsonData.read(dataAsJson, variables)), writer);
+    }
+
+    /**
+     * Renders template with JSON as data source
+     * JSON is parsed with streaming parser directly from reader
+     *
+     * @param template   to be rendered
+     * @param dataAsJson reader of JSON, reader is read but not closed
+     * @return rendered template
+     */
+    public String renderJson(Mustache template, Reader dataAsJson) {
+
+        return renderToString(template, out -> renderJson(template, dataAsJson, out));
+    }
+
+    /**
+     * Renders template with JSON as data source directly into writer
+     * JSON is parsed with streaming parser directly from reader
+     *
+     * @param template   to be rendered
+     * @param dataAsJson reader of JSON, reader is read but not closed
+     * @param writer     to write rendered template to
+     */
+    public void renderJson(Mustache template, Reader dataAsJson, Writer writer) {
+
+        Assert.notNull(template, "Missing template!");
+        render(template, json(template, variables -> JsonData.read(dataAsJson, variables)), writer);
+    }
+
+    /**
+     * Renders template with JSON as data source
+     * JSON is parsed with streaming parser directly from buffer
+     *
+     * @param template   to be rendered
+     * @param dataAsJson encoded JSON between buffer position and limit, buffer position is left unchanged
+     * @return rendered template
+     */
+    public String renderJson(Mustache template, ByteBuffer dataAsJson) {
+
+        return renderToString(template, out -> renderJson(template, dataAsJson, out));
+    }
+
+    /**
+     * Renders template with JSON as data source directly into writer
+     * JSON is parsed with streaming parser directly from buffer
+     *
+     * @param template   to be rendered
+     * @param dataAsJson encoded JSON between buffer position and limit, buffer position is left unchanged
+     * @param writer     to write rendered template to
+     */
+    public void renderJson(Mustache template, ByteBuffer dataAsJson, Writer writer) {
+
         Assert.notNull(template, "Missing template!");
+        render(template, json(template, variables -> JsonData.read(dataAsJson, variables)), writer);
+    }
+
+    /**
+     * Renders template on async executor, see {@link #setAsyncExecutor(Executor)}
+     * Cancelling returned future stops rendering
+     *
+     * @param template to be rendered
+     * @param data     map of name = value pairs
+     * @return future completed with rendered template
+     */
+    public CompletableFuture<String> renderAsync(Mustache template, Object data) {
 
-        Map<String, Object> data = JsonUtils.fromJsonAsMap(dataAsJson, String.class, Object.class);
+        Assert.notNull(template, "Missing template!");
 
         StringWriter out = new StringWriter();
-        template.execute(out, data); // apply mustache template
-        return out.toString();
+        return AsyncRenderer.submit(asyncExecutor, out, writer -> render(template, data, writer), out::toString);
+    }
+
+    /**
+     * Renders template on async executor, see {@link #setAsyncExecutor(Executor)}
+     * Rendering is stopped and future completed with {@link TimeoutException} once timeout elapses
+     *
+     * @param template to be rendered
+     * @param data     map of name = value pairs
+     * @param timeout  maximum time rendering may take
+     * @return future completed with rendered template
+     */
+    public CompletableFuture<String> renderAsync(Mustache template, Object data, Duration timeout) {
+
+        Assert.notNull(timeout, "Missing timeout!");
+        return renderAsync(template, data).orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Renders template on async executor directly into writer, see {@link #setAsyncExecutor(Executor)}
+     * Cancelling returned future stops rendering, writer is neither flushed nor closed
+     *
+     * @param template to be rendered
+     * @param data     map of name = value pairs
+     * @param writer   to write rendered template to
+     * @return future completed once template is rendered
+     */
+    public CompletableFuture<Void> renderAsync(Mustache template, Object data, Writer writer) {
+
+        Assert.notNull(template, "Missing template!");
+        Assert.notNull(writer, "Missing writer!");
+
+        return AsyncRenderer.submit(asyncExecutor, writer, out -> render(template, data, out), () -> null);
+    }
+
+    /**
+     * @return executor async renders run on
+     */
+    public Executor getAsyncExecutor() {
+
+        return asyncExecutor;
+    }
+
+    /**
+     * Sets executor async renders run on
+     * Defaults to a virtual thread per render on JDK 21+ and to common fork join pool on older JDKs
+     *
+     * Values of type {@link Callable} are resolved concurrently only when an executor is set on the
+     * mustache factory, see {@link MustacheFactoryProvider#setExecutor(ExecutorService)}
+     *
+     * @param executor to render on
+     */
+    public void setAsyncExecutor(Executor executor) {
+
+        Assert.notNull(executor, "Missing executor!");
+        asyncExecutor = executor;
+    }
+
+    /**
+     * Renders template for each data item in parallel on common fork join pool
+     * Output is handed to sink in the order of given data, failed items are reported and do not abort the batch
+     *
+     * @param template to be rendered
+     * @param data     items to render template with
+     * @param sink     to receive rendered items
+     * @param <T>      type of data
+     * @return outcome of batch
+     */
+    public <T> BatchResult<T> renderAll(Mustache template, Iterable<T> data, BatchSink<? super T> sink) {
+
+        return renderAll(template, data, sink, true, ForkJoinPool.commonPool(), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Renders template for each data item in parallel on common fork join pool
+     * Output is handed to sink in the order of given data, failed items are reported and do not abort the batch
+     *
+     * @param template to be rendered
+     * @param data     stream of items to render template with
+     * @param sink     to receive rendered items
+     * @param <T>      type of data
+     * @return outcome of batch
+     */
+    public <T> BatchResult<T> renderAll(Mustache template, Stream<T> data, BatchSink<? super T> sink) {
+
+        Assert.notNull(data, "Missing data!");
+        return renderAll(template, data::iterator, sink);
+    }
+
+    /**
+     * Renders template for each data item in parallel
+     * At most parallelism * 2 items are rendered or waiting for sink at any time,
+     * failed items are reported and do not abort the batch
+     *
+     * @param template    to be rendered
+     * @param data        items to render template with
+     * @param sink        to receive rendered items, never called concurrently
+     * @param ordered     true to hand output to sink in order of data, false to hand it over as soon as rendered
+     * @param executor    to render items on
+     * @param parallelism number of items rendered concurrently
+     * @param <T>         type of data
+     * @return outcome of batch
+     */
+    public <T> BatchResult<T> renderAll(Mustache template, Iterable<T> data, BatchSink<? super T> sink, boolean ordered, Executor executor, int parallelism) {
+
+        Assert.notNull(data, "Missing data!");
+
+        BatchRenderer<T> renderer = new BatchRenderer<>(this, template, sink, executor, parallelism);
+        return ordered ? renderer.ordered(data.iterator()) : renderer.unordered(data.iterator());
+    }
+
+    /**
+     * Analyzes template for referenced names
+     *
+     * @param template to analyze
+     * @return names referenced by template
+     */
+    public TemplateVariables analyze(Mustache template) {
+
+        return TemplateAnalyzer.analyze(template);
+    }
+
+    /**
+     * @return true if JSON fields not referenced by template are skipped when parsing JSON data
+     */
+    public boolean isJsonProjection() {
+
+        return jsonProjection;
+    }
+
+    /**
+     * Enables or disables skipping of JSON fields not referenced by template when parsing JSON data, enabled by default
+     * Should be disabled when template lambdas render templates referencing names not found in the template itself
+     *
+     * @param enabled true to skip unused fields, false to parse whole JSON
+     */
+    public void setJsonProjection(boolean enabled) {
+
+        jsonProjection = enabled;
+    }
+
+    /**
+     * @return true if lazy values referenced on every render are computed concurrently once rendering starts
+     */
+    public boolean isPrefetch() {
+
+        return prefetch;
+    }
+
+    /**
+     * Computes lazy values (see {@link LazyValue}) held by map data concurrently on {@link #getAsyncExecutor()} once rendering starts,
+     * but only values the template references outside of any section, so values needed by a skipped section are never computed
+     * Disabled by default, lazy values are then computed when referenced
+     *
+     * @param enabled true to prefetch lazy values needed on every render
+     */
+    public void setPrefetch(boolean enabled) {
+
+        prefetch = enabled;
+    }
+
+    /**
+     * Creates scope of a render, suppliers of data are computed once per render,
+     * starts prefetching suppliers held by map data if enabled
+     */
+    RenderScope lazy(Mustache template, Object data) {
+
+        RenderScope rendering = new RenderScope();
+        if (prefetch) {
+            LazyValue.prefetch(template, data, rendering, asyncExecutor);
+        }
+
+        return rendering;
+    }
+
+    private TemplateVariables variables(Mustache template) {
+
+        return jsonProjection ? TemplateAnalyzer.analyze(template) : null;
+    }
+
+    /**
+     * Reads JSON data with variables referenced by template
+     */
+    private JsonNode json(Mustache template, Function<TemplateVariables, JsonNode> reader) {
+
+        TemplateVariables variables = variables(template);
+
+        TemplateMetrics metrics = this.metrics;
+        if (metrics == TemplateMetrics.NONE) {
+            return reader.apply(variables);
+        }
+
+        long start = System.nanoTime();
+        JsonNode data = reader.apply(variables);
+        metrics.converted(template.getName(), System.nanoTime() - start);
+        return data;
+    }
+
+    /**
+     * @return metrics receiving compile, load and render measurements
+     */
+    public TemplateMetrics getMetrics() {
+
+        return metrics;
+    }
+
+    /**
+     * Sets metrics receiving compile, load and render measurements, see {@link TemplateMetricsRegistry}
+     * Set to {@link TemplateMetrics#NONE} (default) to disable measuring
+     *
+     * @param metrics to receive measurements
+     */
+    public void setMetrics(TemplateMetrics metrics) {
+
+        Assert.notNull(metrics, "Missing template metrics!");
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return charset templates are read with by {@link #load(String)} and {@link #loadFile(String)}
+     */
+    public Charset getCharset() {
+
+        return charset;
+    }
+
+    /**
+     * Sets charset templates are read with, defaults to UTF-8
+     * Templates are decoded while compiling, so large templates are never held in memory as a whole String
+     *
+     * @param charset of template files and resources
+     */
+    public void setCharset(Charset charset) {
+
+        Assert.notNull(charset, "Missing charset!");
+        this.charset = charset;
+    }
+
+    /**
+     * @return size of buffer in chars used when rendering into output stream or channel
+     */
+    public int getBufferSize() {
+
+        return bufferSize;
+    }
+
+    /**
+     * Sets size of buffer used when rendering into output stream or channel
+     * Larger buffers mean less writes to the underlying stream, smaller buffers less memory per render
+     *
+     * @param size in chars, must be greater than 0
+     */
+    public void setBufferSize(int size) {
+
+        Assert.isTrue(size > 0, "Buffer size must be greater than 0!");
+        bufferSize = size;
+    }
+
+    /**
+     * Pools buffers templates are rendered into when rendered into a String, disabled by default
+     * Buffers are presized from output size of previous renders of the same compiled template, pooled or not
+     *
+     * @param buffers  maximum number of pooled buffers, 0 to disable pooling
+     * @param maxChars buffers grown larger are released instead of pooled, so rarely rendered large outputs do not hold memory
+     */
+    public void setOutputBufferPool(int buffers, int maxChars) {
+
+        Assert.isTrue(buffers >= 0, "Number of pooled buffers must be 0 or greater!");
+        Assert.isTrue(buffers == 0 || maxChars > 0, "Max pooled buffer size must be greater than 0!");
+
+        this.buffers = this.buffers.withPool(buffers, maxChars);
+    }
+
+    /**
+     * @return number of buffers currently pooled
+     */
+    int getPooledBuffers() {
+
+        return buffers.getPooled();
+    }
+
+    /**
+     * @return buffers rendering into a String, estimating output size per template
+     */
+    OutputBuffers getOutputBuffers() {
+
+        return buffers;
+    }
+
+    /**
+     * Renders into a buffer presized to expected output of template
+     *
+     * @param template template output is recorded for
+     * @param render   writes output into given writer
+     * @return output
+     */
+    String renderToString(Mustache template, Consumer<Writer> render) {
+
+        return renderToString(template, false, render);
+    }
+
+    /**
+     * Renders into a buffer presized to expected output of template
+     *
+     * @param template template output is recorded for
+     * @param layout   true if template is a layout rendered around other templates, output is recorded apart from the template on its own
+     * @param render   writes output into given writer
+     * @return output
+     */
+    String renderToString(Mustache template, boolean layout, Consumer<Writer> render) {
+
+        Assert.notNull(template, "Missing template!");
+
+        OutputBuffers buffers = this.buffers;
+        OutputBuffer out = buffers.acquire(template, layout);
+        try {
+            render.accept(out);
+            return buffers.complete(template, layout, out);
+        } finally {
+            buffers.release(out);
+        }
+    }
+
+    /**
+     * Creates buffered writer encoding output into stream
+     * Static text pre-encoded with the same charset is copied into stream as is,
+     * chars the charset can not encode are replaced (with '?' for most charsets)
+     *
+     * @param output  stream to write to
+     * @param charset to encode output with
+     * @return buffered writer, must be flushed once done
+     */
+    Writer writer(OutputStream output, Charset charset) {
+
+        Assert.notNull(output, "Missing output stream!");
+        Assert.notNull(charset, "Missing charset!");
+
+        if (charset.equals(factory.getStaticEncoding())) {
+            return new EncodedWriter(output, EncodedWriter.encoder(charset), bufferSize);
+        }
+
+        return new BufferedWriter(new OutputStreamWriter(output, EncodedWriter.encoder(charset)), bufferSize);
+    }
+
+    /**
+     * Flushes writer
+     *
+     * @param writer to be flushed
+     */
+    static void flush(Writer writer) {
+
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new MustacheException("Failed to write template output: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Applies mustache template, reports render to metrics and flight recorder when enabled
+     */
+    private void execute(Mustache template, List<Object> scopes, Writer writer) {
+
+        TemplateMetrics metrics = this.metrics;
+        TemplateRenderEvent event = new TemplateRenderEvent();
+        if (metrics == TemplateMetrics.NONE && !event.isEnabled()) {
+            apply(template, scopes, writer);
+            return;
+        }
+
+        measure(metrics, event, template, null, writer, out -> apply(template, scopes, out));
+    }
+
+    /**
+     * Renders template into writer while measuring time taken and chars written
+     *
+     * @param metrics  to report render to
+     * @param event    flight recorder event to commit
+     * @param template rendered template
+     * @param inner    template rendered into base template or null
+     * @param writer   to render into
+     * @param render   writes template into given writer
+     */
+    void measure(TemplateMetrics metrics, TemplateRenderEvent event, Mustache template, Mustache inner, Writer writer, Consumer<Writer> render) {
+
+        CountingWriter counting = new CountingWriter(writer);
+
+        event.begin();
+        long start = System.nanoTime();
+        render.accept(counting);
+        metrics.rendered(template.getName(), System.nanoTime() - start, counting.getCount());
+
+        event.end();
+        if (event.shouldCommit()) {
+            TemplateSource source = source(template);
+
+            event.template = template.getName();
+            event.source = source == null ? "" : source.getLabel();
+            event.innerTemplate = inner == null ? "" : inner.getName();
+            event.outputLength = counting.getCount();
+            event.commit();
+        }
+    }
+
+    /**
+     * Source of template is known to template cache only, looked up when a render event is recorded
+     *
+     * @param template rendered template
+     * @return source template is cached under or null if template is not cached
+     */
+    TemplateSource source(Mustache template) {
+
+        String name = template.getName();
+        if (name == null) {
+            return null;
+        }
+
+        if (cache.find(TemplateSource.CLASSPATH.key(name)) == template) {
+            return TemplateSource.CLASSPATH;
+        }
+
+        try {
+            String file = new File(name).getAbsoluteFile().toPath().normalize().toString();
+            return cache.find(TemplateSource.FILE.key(file)) == template ? TemplateSource.FILE : null;
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Applies mustache template, waits for any concurrently resolved values to be written out
+     */
+    private static void apply(Mustache template, List<Object> scopes, Writer writer) {
+
+        Writer out = template.execute(writer, scopes);
+        if (out != writer) {
+            flush(out);
+        }
     }
 
     /**
@@ -188,15 +1099,11 @@ public class MustacheUtils {
     }
 
     /**
-     * Creates default mustache factory or returns existing
+     * Returns mustache factory for calling thread
      *
      * @return mustache factory
      */
-    private static MustacheFactory getFactory() {
-
-        if (factory == null) {
-            factory = ThreadLocal.withInitial(DefaultMustacheFactory::new);
-        }
+    MustacheFactory getFactory() {
 
         return factory.get();
     }
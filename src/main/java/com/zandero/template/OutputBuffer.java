@@ -0,0 +1,94 @@
+package com.zandero.template;
+
+import java.io.Writer;
+
+/**
+ * Writer appending to an unsynchronized buffer that can be cleared and reused
+ */
+final class OutputBuffer extends Writer {
+
+	private StringBuilder builder;
+
+	OutputBuffer(int capacity) {
+		builder = new StringBuilder(capacity);
+	}
+
+	@Override
+	public void write(int c) {
+		builder.append((char) c);
+	}
+
+	@Override
+	public void write(char[] buffer, int offset, int length) {
+		builder.append(buffer, offset, length);
+	}
+
+	@Override
+	public void write(String value) {
+		builder.append(value);
+	}
+
+	@Override
+	public void write(String value, int offset, int length) {
+		builder.append(value, offset, offset + length);
+	}
+
+	@Override
+	public Writer append(CharSequence value) {
+
+		builder.append(value);
+		return this;
+	}
+
+	@Override
+	public void flush() {
+		// nothing to flush
+	}
+
+	@Override
+	public void close() {
+		// nothing to close
+	}
+
+	/**
+	 * @return chars written so far
+	 */
+	int length() {
+		return builder.length();
+	}
+
+	/**
+	 * @return chars buffer can hold without growing
+	 */
+	int capacity() {
+		return builder.capacity();
+	}
+
+	/**
+	 * Empties buffer, buffer grown beyond max capacity is replaced with a buffer of given capacity
+	 *
+	 * @param capacity    of replacement buffer
+	 * @param maxCapacity largest buffer kept
+	 */
+	void clear(int capacity, int maxCapacity) {
+
+		if (builder.capacity() > maxCapacity) {
+			builder = new StringBuilder(capacity);
+		}
+		else {
+			builder.setLength(0);
+		}
+	}
+
+	/**
+	 * @param capacity chars buffer must hold without growing
+	 */
+	void ensureCapacity(int capacity) {
+		builder.ensureCapacity(capacity);
+	}
+
+	@Override
+	public String toString() {
+		return builder.toString();
+	}
+}
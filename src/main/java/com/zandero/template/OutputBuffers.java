@@ -0,0 +1,155 @@
+package com.zandero.template;
+
+import com.github.mustachejava.Mustache;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Provides buffers templates are rendered into when rendering into a String
+ * Buffers are presized from output size of previous renders of the same compiled template and optionally drawn from a bounded pool,
+ * pool does not block nor pin threads, buffers grown beyond max size are released instead of pooled
+ * Pages rendered into a layout are estimated apart from renders of the layout template on its own
+ */
+final class OutputBuffers {
+
+	/**
+	 * Initial size of buffers for templates with no output recorded yet
+	 */
+	static final int INITIAL_SIZE = 256;
+
+	/**
+	 * Largest size buffers are presized to, larger outputs grow their buffer while rendering
+	 */
+	static final int MAX_PRESIZE = 64 * 1024;
+
+	// estimates by compiled template, released together with template
+	private final TemplateTable<Estimate> templates;
+
+	// estimates of whole pages by outermost layout template
+	private final TemplateTable<Estimate> layouts;
+
+	private final BlockingQueue<OutputBuffer> pool;
+
+	private final int maxSize;
+
+	/**
+	 * No pooling, buffers are presized only
+	 */
+	OutputBuffers() {
+
+		this(new TemplateTable<>(), new TemplateTable<>(), 0, 0);
+	}
+
+	private OutputBuffers(TemplateTable<Estimate> templates, TemplateTable<Estimate> layouts, int buffers, int maxSize) {
+
+		this.templates = templates;
+		this.layouts = layouts;
+		this.pool = buffers > 0 ? new ArrayBlockingQueue<>(buffers) : null;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * @param buffers maximum number of pooled buffers, 0 to disable pooling
+	 * @param maxSize buffers larger than this number of chars are not pooled
+	 * @return buffers with given pool, sharing estimates with these buffers
+	 */
+	OutputBuffers withPool(int buffers, int maxSize) {
+
+		return new OutputBuffers(templates, layouts, buffers, maxSize);
+	}
+
+	/**
+	 * @param template to be rendered
+	 * @param layout   true if template is a layout rendered around other templates
+	 * @return empty buffer presized to expected output of template
+	 */
+	OutputBuffer acquire(Mustache template, boolean layout) {
+
+		int size = estimate(template, layout);
+
+		if (pool != null && size <= maxSize) {
+			OutputBuffer buffer = pool.poll();
+			if (buffer != null) {
+				buffer.ensureCapacity(size);
+				return buffer;
+			}
+		}
+
+		return new OutputBuffer(size);
+	}
+
+	/**
+	 * Records output size of rendered template
+	 *
+	 * @param template rendered template
+	 * @param layout   true if template is a layout rendered around other templates
+	 * @param buffer   holding output
+	 * @return output
+	 */
+	String complete(Mustache template, boolean layout, OutputBuffer buffer) {
+
+		record(template, layout, buffer.length());
+		return buffer.toString();
+	}
+
+	/**
+	 * Returns buffer to pool, unless pool is full or buffer too large
+	 *
+	 * @param buffer no longer used
+	 */
+	void release(OutputBuffer buffer) {
+
+		if (pool == null || buffer.capacity() > maxSize) {
+			return;
+		}
+
+		buffer.clear(INITIAL_SIZE, maxSize);
+		pool.offer(buffer);
+	}
+
+	/**
+	 * @return number of buffers currently pooled
+	 */
+	int getPooled() {
+		return pool == null ? 0 : pool.size();
+	}
+
+	/**
+	 * @param template to be rendered
+	 * @param layout   true if template is a layout rendered around other templates
+	 * @return expected output size in chars
+	 */
+	int estimate(Mustache template, boolean layout) {
+
+		Estimate estimate = (layout ? layouts : templates).get(template);
+		return estimate == null ? INITIAL_SIZE : estimate.size();
+	}
+
+	void record(Mustache template, boolean layout, int length) {
+
+		(layout ? layouts : templates).computeIfAbsent(template, key -> new Estimate()).record(length);
+	}
+
+	/**
+	 * Moving average of output sizes, rising and decaying by 1/8 of the difference per render,
+	 * so a single unusually large output does not oversize buffers of following renders
+	 * Updates may race, a lost update only makes the estimate slightly less accurate
+	 */
+	private static class Estimate {
+
+		private volatile int size;
+
+		int size() {
+
+			long current = size;
+			return (int) Math.min(MAX_PRESIZE, Math.max(INITIAL_SIZE, current + (current >> 3))); // some headroom
+		}
+
+		void record(int length) {
+
+			int current = size;
+			size = current == 0 ? length : current + ((length - current) >> 3);
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package com.zandero.template;
+
+import com.github.mustachejava.Mustache;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiled partials and parent templates shared by all factories of a {@link MustacheFactoryProvider},
+ * so each partial is compiled once no matter how many templates or threads include it
+ */
+final class PartialCache {
+
+	// resolved partial name -> compiled partial
+	private final Map<String, Mustache> partials = new ConcurrentHashMap<>();
+
+	// partials being compiled on current thread, a recursive partial is not cached before it is compiled completely
+	private final ThreadLocal<Set<String>> compiling = ThreadLocal.withInitial(HashSet::new);
+
+	/**
+	 * @param name of partial
+	 * @return compiled partial or null if not cached
+	 */
+	Mustache find(String name) {
+		return partials.get(name);
+	}
+
+	/**
+	 * Marks partial as being compiled on current thread
+	 *
+	 * @param name of partial
+	 * @return false if partial is already being compiled on current thread (recursive partial)
+	 */
+	boolean begin(String name) {
+		return compiling.get().add(name);
+	}
+
+	void end(String name) {
+		compiling.get().remove(name);
+	}
+
+	/**
+	 * Stores compiled partial unless compiled concurrently by another thread meanwhile
+	 *
+	 * @param name    of partial
+	 * @param partial compiled partial
+	 * @return cached partial
+	 */
+	Mustache put(String name, Mustache partial) {
+
+		Mustache cached = partials.putIfAbsent(name, partial);
+		return cached == null ? partial : cached;
+	}
+
+	/**
+	 * @param name of partial to compile again once included
+	 */
+	void invalidate(String name) {
+		partials.remove(name);
+	}
+
+	void invalidateAll() {
+		partials.clear();
+	}
+
+	/**
+	 * @return names of cached partials
+	 */
+	Set<String> getNames() {
+		return Collections.unmodifiableSet(partials.keySet());
+	}
+}
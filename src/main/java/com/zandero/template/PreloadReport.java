@@ -0,0 +1,58 @@
+package com.zandero.template;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of preloading templates, see {@link TemplatePreloader}
+ */
+public final class PreloadReport {
+
+	private final List<String> loaded;
+
+	private final Map<String, Exception> failures;
+
+	private final Duration duration;
+
+	PreloadReport(List<String> loaded, Map<String, Exception> failures, Duration duration) {
+
+		this.loaded = Collections.unmodifiableList(loaded);
+		this.failures = Collections.unmodifiableMap(failures);
+		this.duration = duration;
+	}
+
+	/**
+	 * @return paths of successfully compiled templates
+	 */
+	public List<String> getLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * @return templates that failed to compile or to render with warm up data, with cause of failure
+	 */
+	public Map<String, Exception> getFailures() {
+		return failures;
+	}
+
+	/**
+	 * @return time taken to scan, compile and warm up templates
+	 */
+	public Duration getDuration() {
+		return duration;
+	}
+
+	/**
+	 * @return true if all templates were compiled and warmed up without failure
+	 */
+	public boolean isSuccess() {
+		return failures.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return "PreloadReport{loaded=" + loaded.size() + ", failed=" + failures.keySet() + ", duration=" + duration + "}";
+	}
+}
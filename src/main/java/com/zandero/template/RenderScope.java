@@ -0,0 +1,118 @@
+package com.zandero.template;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Outermost scope of a single render, holding values of {@link Supplier} data computed while rendering
+ * Suppliers found anywhere in template data are computed at most once per render, data itself is never copied
+ * Layouts, slots and template of a layout chain share a single render scope
+ *
+ * Scope holds no names, so names are resolved against template data as before
+ */
+final class RenderScope extends AbstractMap<String, Object> {
+
+	// computed values by supplier instance, created once first supplier is resolved, guarded by this
+	private Map<Supplier<?>, CompletableFuture<Object>> computed;
+
+	/**
+	 * @param data template data
+	 * @return list of scopes passed to mustache, this scope outermost
+	 */
+	List<Object> scopes(Object data) {
+
+		List<Object> scopes = new ArrayList<>(4);
+		scopes.add(this);
+		scopes.add(data);
+		return scopes;
+	}
+
+	/**
+	 * @param scopes as given to binding
+	 * @return render scope or null if template is not rendered through {@link MustacheUtils}
+	 */
+	static RenderScope of(List<Object> scopes) {
+
+		if (scopes == null || scopes.isEmpty()) {
+			return null;
+		}
+
+		Object outermost = scopes.get(0);
+		return outermost instanceof RenderScope ? (RenderScope) outermost : null;
+	}
+
+	/**
+	 * Computes value of supplier once per render, waits for value if computed concurrently
+	 *
+	 * @param supplier found in template data
+	 * @return value
+	 */
+	Object compute(Supplier<?> supplier) {
+
+		CompletableFuture<Object> future;
+		synchronized (this) {
+			future = computed().get(supplier);
+			if (future == null) {
+				future = new CompletableFuture<>();
+				computed.put(supplier, future);
+			}
+			else {
+				supplier = null; // computed or being computed
+			}
+		}
+
+		if (supplier != null) {
+			try {
+				future.complete(supplier.get());
+			}
+			catch (RuntimeException | Error e) {
+				future.completeExceptionally(e);
+				throw e;
+			}
+		}
+
+		return LazyValue.join(future);
+	}
+
+	/**
+	 * Starts computing value of supplier on given executor unless already requested in this render
+	 *
+	 * @param supplier found in template data
+	 * @param executor to compute value on
+	 */
+	synchronized void prefetch(Supplier<?> supplier, Executor executor) {
+
+		computed().computeIfAbsent(supplier, key -> CompletableFuture.supplyAsync(key::get, executor));
+	}
+
+	private Map<Supplier<?>, CompletableFuture<Object>> computed() {
+
+		if (computed == null) {
+			computed = new IdentityHashMap<>();
+		}
+
+		return computed;
+	}
+
+	@Override
+	public Object get(Object name) {
+		return null;
+	}
+
+	@Override
+	public boolean containsKey(Object name) {
+		return false;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return true;
+	}
+
+	@Override
+	public Set<Entry<String, Object>> entrySet() {
+		return Collections.emptySet();
+	}
+}
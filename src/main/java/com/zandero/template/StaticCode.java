@@ -0,0 +1,100 @@
+package com.zandero.template;
+
+import com.github.mustachejava.DefaultMustacheFactory;
+import com.github.mustachejava.MustacheException;
+import com.github.mustachejava.TemplateContext;
+import com.github.mustachejava.codes.WriteCode;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Static template text minified and encoded once when template is compiled
+ * Encoded text is copied as is into {@link EncodedOutput} writers of the same charset, other writers receive chars
+ */
+class StaticCode extends WriteCode {
+
+	private final Charset charset;
+
+	private final HtmlMinifier minifier;
+
+	private boolean minified;
+
+	private byte[] encoded;
+
+	private int length;
+
+	/**
+	 * @param context  of text
+	 * @param factory  compiling template
+	 * @param text     static text
+	 * @param charset  to encode text with or null to leave text as chars
+	 * @param minifier to minify text with or null to leave text as it is
+	 */
+	StaticCode(TemplateContext context, DefaultMustacheFactory factory, String text, Charset charset, HtmlMinifier minifier) {
+
+		super(context, factory, text);
+		this.charset = charset;
+		this.minifier = minifier;
+	}
+
+	@Override
+	public synchronized void init() {
+
+		super.init(); // text is final once filtered
+
+		if (minifier != null && !minified && appended != null) {
+			appended = minifier.minify(appended);
+			appendedChars = appended.toCharArray();
+			minified = true; // init can run more than once
+		}
+
+		String text = appended == null ? "" : appended;
+		length = text.length();
+
+		if (charset == null) {
+			return;
+		}
+
+		try {
+			ByteBuffer buffer = EncodedWriter.encoder(charset).encode(CharBuffer.wrap(text)); // unmappable chars replaced as by output
+			encoded = new byte[buffer.remaining()];
+			buffer.get(encoded);
+		}
+		catch (CharacterCodingException e) {
+			encoded = null; // text can not be encoded with charset, written as chars
+		}
+	}
+
+	@Override
+	public Writer execute(Writer writer, List<Object> scopes) {
+
+		if (encoded != null && writer instanceof EncodedOutput) {
+
+			EncodedOutput output = (EncodedOutput) writer;
+			if (charset.equals(output.getEncoding())) {
+				try {
+					output.writeEncoded(encoded, length);
+					return writer;
+				}
+				catch (IOException e) {
+					throw new MustacheException("Failed to write template output: " + e.getMessage(), e);
+				}
+			}
+		}
+
+		return super.execute(writer, scopes);
+	}
+
+	/**
+	 * @return static text encoded with charset, null if not yet initialized or text can not be encoded
+	 */
+	byte[] getEncoded() {
+		return encoded;
+	}
+}
@@ -0,0 +1,128 @@
+package com.zandero.template;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Scope of name value pairs backed directly by the array given to renderStrings, names are looked up linearly
+ * Scope, scope list and output buffer are reused through a bounded pool shared by all threads (virtual threads included),
+ * so rendering avoids allocating a scope per render when a pooled scope is available
+ */
+final class StringsScope extends AbstractMap<String, Object> {
+
+	/**
+	 * Output buffers grown beyond this number of chars are not kept for reuse
+	 */
+	static final int MAX_RETAINED_OUTPUT = 16 * 1024;
+
+	/**
+	 * Maximum number of scopes kept for reuse, further scopes are released once rendered
+	 */
+	static final int MAX_POOLED = 2 * Runtime.getRuntime().availableProcessors();
+
+	private static final BlockingQueue<StringsScope> pool = new ArrayBlockingQueue<>(MAX_POOLED);
+
+	private final List<Object> scopes = new ArrayList<>(4);
+
+	private final OutputBuffer output = new OutputBuffer(OutputBuffers.INITIAL_SIZE);
+
+	private String[] data;
+
+	private int pairs;
+
+	/**
+	 * @param data name, value, name, value ... a name without value is ignored
+	 * @return pooled scope or new scope if none is pooled (render within render or many concurrent renders)
+	 */
+	static StringsScope acquire(String[] data) {
+
+		StringsScope scope = pool.poll();
+		if (scope == null) {
+			scope = new StringsScope();
+		}
+
+		scope.data = data;
+		scope.pairs = data == null ? 0 : data.length / 2;
+		scope.scopes.add(scope);
+		return scope;
+	}
+
+	/**
+	 * Releases data and output and returns scope to pool, unless pool is full
+	 */
+	void release() {
+
+		data = null;
+		pairs = 0;
+		scopes.clear();
+		output.clear(OutputBuffers.INITIAL_SIZE, MAX_RETAINED_OUTPUT);
+		pool.offer(this);
+	}
+
+	/**
+	 * @return number of scopes currently pooled
+	 */
+	static int getPooled() {
+		return pool.size();
+	}
+
+	/**
+	 * @return list of scopes holding this scope only, passed to mustache as is
+	 */
+	List<Object> getScopes() {
+		return scopes;
+	}
+
+	/**
+	 * @return empty output buffer
+	 */
+	OutputBuffer getOutput() {
+		return output;
+	}
+
+	@Override
+	public Object get(Object name) {
+
+		int index = indexOf(name);
+		return index < 0 ? null : data[index + 1];
+	}
+
+	@Override
+	public boolean containsKey(Object name) {
+		return indexOf(name) >= 0;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return pairs == 0;
+	}
+
+	/**
+	 * Latest pair wins, as when pairs are put into a map
+	 */
+	private int indexOf(Object name) {
+
+		for (int index = (pairs - 1) * 2; index >= 0; index -= 2) {
+			if (Objects.equals(name, data[index])) {
+				return index;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Copy of pairs, only needed when scope is used as a whole map
+	 */
+	@Override
+	public Set<Entry<String, Object>> entrySet() {
+
+		Map<String, Object> map = new LinkedHashMap<>();
+		for (int index = 0; index < pairs * 2; index += 2) {
+			map.put(data[index], data[index + 1]);
+		}
+
+		return Collections.unmodifiableMap(map).entrySet();
+	}
+}
@@ -0,0 +1,106 @@
+package com.zandero.template;
+
+import com.github.mustachejava.Code;
+import com.github.mustachejava.Mustache;
+import com.github.mustachejava.codes.*;
+import com.zandero.utils.Assert;
+
+import java.util.*;
+
+/**
+ * Extracts names referenced by a compiled template by walking its code tree
+ */
+public final class TemplateAnalyzer {
+
+	// analysis of already analyzed templates, read without locking on every JSON render, released together with template
+	private static final TemplateTable<TemplateVariables> analyzed = new TemplateTable<>();
+
+	private TemplateAnalyzer() {
+		// hide constructor
+	}
+
+	/**
+	 * Analyzes template, result is kept as long as template is in use
+	 *
+	 * @param template compiled template
+	 * @return referenced names
+	 */
+	public static TemplateVariables analyze(Mustache template) {
+
+		Assert.notNull(template, "Missing template!");
+
+		return analyzed.computeIfAbsent(template, compiled -> new Analysis().run(compiled));
+	}
+
+	private static class Analysis {
+
+		final Set<String> names = new LinkedHashSet<>();
+		final Set<String> sections = new LinkedHashSet<>();
+		final Set<String> paths = new LinkedHashSet<>();
+		final Set<String> partials = new LinkedHashSet<>();
+		final Set<String> required = new LinkedHashSet<>();
+
+		final Set<Code> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+
+		boolean complete = true;
+
+		TemplateVariables run(Mustache template) {
+
+			walk(template.getCodes(), "", true);
+			return new TemplateVariables(names, sections, paths, partials, required, complete);
+		}
+
+		/**
+		 * @param unconditional true if codes are rendered on every render (outside of any section)
+		 */
+		private void walk(Code[] codes, String parent, boolean unconditional) {
+
+			if (codes == null) {
+				return;
+			}
+
+			for (Code code : codes) {
+
+				if (!visited.add(code)) {
+					continue;
+				}
+
+				if (code instanceof WriteCode || code instanceof CommentCode) {
+					continue;
+				}
+
+				String name = code.getName();
+
+				if (code instanceof PartialCode) {
+					partials.add(name);
+					complete = false; // partial content is resolved by factory
+					continue;
+				}
+
+				if (code instanceof ExtendCode || code instanceof ExtendNameCode) {
+					complete = false;
+					walk(code.getCodes(), parent, false);
+					continue;
+				}
+
+				if (name == null) {
+					walk(code.getCodes(), parent, unconditional);
+					continue;
+				}
+
+				String path = parent.isEmpty() ? name : parent + "/" + name;
+				names.add(name);
+				paths.add(path);
+				if (unconditional) {
+					required.add(name);
+				}
+
+				Code[] children = code.getCodes();
+				if (code instanceof IterableCode || code instanceof NotIterableCode || children != null) {
+					sections.add(path);
+					walk(children, path, false);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,345 @@
+package com.zandero.template;
+
+import com.github.mustachejava.Mustache;
+import com.zandero.utils.Assert;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded, thread-safe cache of compiled templates
+ * Lookups do not block, least recently used templates are evicted once maximum size is exceeded
+ * and entries optionally expire after given time to live
+ */
+public class TemplateCache {
+
+	/**
+	 * Default maximum number of cached templates
+	 */
+	public static final int DEFAULT_MAX_SIZE = 1000;
+
+	/**
+	 * Version matching any cached version, template is loaded only if not cached or expired
+	 */
+	static final long ANY_VERSION = Long.MIN_VALUE;
+
+	private final int maxSize;
+
+	private final long timeToLive;
+
+	private final LongSupplier ticker;
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	// templates being loaded by key, so concurrent lookups wait for a single load
+	private final Map<String, CompletableFuture<Entry>> loading = new ConcurrentHashMap<>();
+
+	// keys being loaded on current thread
+	private final ThreadLocal<Set<String>> loaders = ThreadLocal.withInitial(HashSet::new);
+
+	private final Object evictionLock = new Object();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder loads = new LongAdder();
+	private final LongAdder loadFailures = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder loadTime = new LongAdder();
+
+	/**
+	 * Cache holding up to {@link #DEFAULT_MAX_SIZE} templates without expiration
+	 */
+	public TemplateCache() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Cache without expiration
+	 *
+	 * @param maxSize maximum number of cached templates, 0 to disable caching
+	 */
+	public TemplateCache(int maxSize) {
+		this(maxSize, null);
+	}
+
+	/**
+	 * Cache with expiration
+	 *
+	 * @param maxSize    maximum number of cached templates, 0 to disable caching
+	 * @param timeToLive time after load when template is compiled again, null for no expiration
+	 */
+	public TemplateCache(int maxSize, Duration timeToLive) {
+		this(maxSize, timeToLive, System::nanoTime);
+	}
+
+	TemplateCache(int maxSize, Duration timeToLive, LongSupplier ticker) {
+
+		Assert.isTrue(maxSize >= 0, "Maximum cache size must be >= 0!");
+		Assert.isTrue(timeToLive == null || !timeToLive.isNegative(), "Time to live must be >= 0!");
+		Assert.notNull(ticker, "Missing ticker!");
+
+		this.maxSize = maxSize;
+		this.timeToLive = timeToLive == null || timeToLive.isZero() ? 0 : timeToLive.toNanos();
+		this.ticker = ticker;
+	}
+
+	/**
+	 * Returns cached template or loads it and stores it into cache
+	 * Concurrent lookups of the same missing key load the template only once, templates are compiled outside of any lock
+	 *
+	 * @param key    unique template key, see {@link TemplateSource#key(String)}
+	 * @param loader to load and compile template if not present
+	 * @return compiled template
+	 */
+	public Mustache get(String key, Function<String, Mustache> loader) {
+
+		return get(key, 0, loader);
+	}
+
+	/**
+	 * Returns cached template of given version or loads it and stores it into cache
+	 *
+	 * @param key     unique template key
+	 * @param version of template source, for instance file modification time, cached template of other version is loaded again,
+	 *                {@link #ANY_VERSION} to accept cached template of any version
+	 * @param loader  to load and compile template if not present
+	 * @return compiled template
+	 */
+	Mustache get(String key, long version, Function<String, Mustache> loader) {
+
+		Assert.notNull(key, "Missing template key!");
+		Assert.notNull(loader, "Missing template loader!");
+
+		long now = ticker.getAsLong();
+		Entry entry = entries.get(key);
+		if (isValid(entry, version, now)) {
+			entry.accessed = now;
+			hits.increment();
+			return entry.template;
+		}
+
+		misses.increment();
+
+		if (maxSize == 0) {
+			return load(key, version, loader).template;
+		}
+
+		CompletableFuture<Entry> loading = new CompletableFuture<>();
+		CompletableFuture<Entry> other = this.loading.putIfAbsent(key, loading);
+		if (other != null) {
+			return await(key, other); // loaded by another thread in the mean time
+		}
+
+		try {
+			entry = entries.get(key);
+			if (!isValid(entry, version, ticker.getAsLong())) {
+
+				Entry loaded = load(key, version, loader);
+				if (entries.put(key, loaded) != null) {
+					evictions.increment(); // expired or outdated template replaced
+				}
+
+				entry = loaded;
+			}
+
+			loading.complete(entry);
+		}
+		catch (Throwable e) {
+			loading.completeExceptionally(e);
+			throw e;
+		}
+		finally {
+			this.loading.remove(key, loading);
+		}
+
+		evict();
+		return entry.template;
+	}
+
+	private Mustache await(String key, CompletableFuture<Entry> loading) {
+
+		Assert.isFalse(loaders.get().contains(key), "Template: '" + key + "' is loaded recursively!");
+
+		try {
+			return loading.join().template;
+		}
+		catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+
+			throw e;
+		}
+	}
+
+	/**
+	 * Stores compiled template, replacing any existing template under given key
+	 *
+	 * @param key      unique template key
+	 * @param template compiled template
+	 */
+	public void put(String key, Mustache template) {
+
+		put(key, 0, template);
+	}
+
+	/**
+	 * @param key      unique template key
+	 * @param version  of template source, see {@link #get(String, long, Function)}
+	 * @param template compiled template
+	 */
+	void put(String key, long version, Mustache template) {
+
+		Assert.notNull(key, "Missing template key!");
+		Assert.notNull(template, "Missing template!");
+
+		if (maxSize == 0) {
+			return;
+		}
+
+		entries.put(key, new Entry(template, version, ticker.getAsLong()));
+		evict();
+	}
+
+	/**
+	 * @param key unique template key
+	 * @return cached template or null if not present or expired, does not load template or affect statistics
+	 */
+	public Mustache find(String key) {
+
+		Entry entry = entries.get(key);
+		return entry == null || isExpired(entry, ticker.getAsLong()) ? null : entry.template;
+	}
+
+	/**
+	 * Removes template from cache
+	 *
+	 * @param key unique template key
+	 */
+	public void invalidate(String key) {
+		entries.remove(key);
+	}
+
+	/**
+	 * Removes all templates from cache
+	 */
+	public void invalidateAll() {
+		entries.clear();
+	}
+
+	/**
+	 * @return number of cached templates
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return maximum number of cached templates
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * @return snapshot of cache statistics
+	 */
+	public TemplateCacheStats stats() {
+
+		return new TemplateCacheStats(hits.sum(),
+		                              misses.sum(),
+		                              loads.sum(),
+		                              loadFailures.sum(),
+		                              evictions.sum(),
+		                              loadTime.sum());
+	}
+
+	private Entry load(String key, long version, Function<String, Mustache> loader) {
+
+		long start = ticker.getAsLong();
+		loaders.get().add(key);
+		try {
+			Mustache template = loader.apply(key);
+			Assert.notNull(template, "Loader returned no template for: '" + key + "'");
+
+			long end = ticker.getAsLong();
+			loadTime.add(end - start);
+			loads.increment();
+			return new Entry(template, version, end);
+		}
+		catch (RuntimeException e) {
+			loadTime.add(ticker.getAsLong() - start);
+			loadFailures.increment();
+			throw e;
+		}
+		finally {
+			loaders.get().remove(key);
+		}
+	}
+
+	private boolean isValid(Entry entry, long version, long now) {
+		return entry != null && (version == ANY_VERSION || entry.version == version) && !isExpired(entry, now);
+	}
+
+	private boolean isExpired(Entry entry, long now) {
+		return timeToLive > 0 && now - entry.loaded >= timeToLive;
+	}
+
+	/**
+	 * Removes least recently used entries until cache fits maximum size, entries are sorted once per eviction run
+	 */
+	private void evict() {
+
+		if (entries.size() <= maxSize) {
+			return;
+		}
+
+		synchronized (evictionLock) {
+
+			int excess = entries.size() - maxSize;
+			if (excess <= 0) {
+				return;
+			}
+
+			List<Map.Entry<String, Entry>> oldest = new ArrayList<>(entries.entrySet());
+			oldest.sort((first, second) -> Long.compare(first.getValue().accessed - second.getValue().accessed, 0));
+
+			for (int index = 0; index < oldest.size() && excess > 0; index++) {
+
+				Map.Entry<String, Entry> item = oldest.get(index);
+				if (entries.remove(item.getKey(), item.getValue())) {
+					evictions.increment();
+					excess--;
+				}
+			}
+		}
+	}
+
+	private static final class Entry {
+
+		final Mustache template;
+
+		final long version;
+
+		final long loaded;
+
+		volatile long accessed;
+
+		Entry(Mustache template, long version, long loaded) {
+			this.template = template;
+			this.version = version;
+			this.loaded = loaded;
+			this.accessed = loaded;
+		}
+	}
+}
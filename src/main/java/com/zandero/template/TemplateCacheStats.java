@@ -0,0 +1,92 @@
+package com.zandero.template;
+
+/**
+ * Snapshot of template cache statistics
+ */
+public final class TemplateCacheStats {
+
+	private final long hitCount;
+	private final long missCount;
+	private final long loadCount;
+	private final long loadFailureCount;
+	private final long evictionCount;
+	private final long totalLoadTime;
+
+	TemplateCacheStats(long hitCount, long missCount, long loadCount, long loadFailureCount, long evictionCount, long totalLoadTime) {
+
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.loadCount = loadCount;
+		this.loadFailureCount = loadFailureCount;
+		this.evictionCount = evictionCount;
+		this.totalLoadTime = totalLoadTime;
+	}
+
+	/**
+	 * @return number of lookups served from cache
+	 */
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * @return number of lookups that required a template to be loaded
+	 */
+	public long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * @return number of successfully loaded templates
+	 */
+	public long getLoadCount() {
+		return loadCount;
+	}
+
+	/**
+	 * @return number of template loads that failed
+	 */
+	public long getLoadFailureCount() {
+		return loadFailureCount;
+	}
+
+	/**
+	 * @return number of templates removed due to size limit or expiration
+	 */
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * @return total time spent loading and compiling templates in nanoseconds
+	 */
+	public long getTotalLoadTime() {
+		return totalLoadTime;
+	}
+
+	/**
+	 * @return ratio of lookups served from cache, 1.0 if no lookups were made
+	 */
+	public double getHitRate() {
+		long requests = hitCount + missCount;
+		return requests == 0 ? 1.0 : (double) hitCount / requests;
+	}
+
+	/**
+	 * @return average time in nanoseconds spent loading a template
+	 */
+	public double getAverageLoadPenalty() {
+		long loads = loadCount + loadFailureCount;
+		return loads == 0 ? 0.0 : (double) totalLoadTime / loads;
+	}
+
+	@Override
+	public String toString() {
+		return "TemplateCacheStats{hits=" + hitCount +
+		       ", misses=" + missCount +
+		       ", loads=" + loadCount +
+		       ", loadFailures=" + loadFailureCount +
+		       ", evictions=" + evictionCount +
+		       ", totalLoadTime=" + totalLoadTime + "ns}";
+	}
+}
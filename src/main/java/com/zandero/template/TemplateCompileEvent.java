@@ -0,0 +1,24 @@
+package com.zandero.template;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event emitted when a template is compiled
+ */
+@Name("com.zandero.template.Compile")
+@Label("Template Compile")
+@Description("Template compiled into mustache code")
+@Category({"Zandero", "Templates"})
+class TemplateCompileEvent extends Event {
+
+	@Label("Template")
+	String template;
+
+	@Label("Source")
+	@Description("classpath, file or inline")
+	String source;
+}
@@ -0,0 +1,94 @@
+package com.zandero.template;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resources (partials, parent templates) read while compiling each template and partial
+ * Filled in by {@link TrackingMustacheFactory}, used to find templates affected by a changed resource
+ */
+final class TemplateDependencies {
+
+	// template or partial name -> resources read when template was last compiled, including nested partials
+	private final Map<String, Set<String>> includes = new ConcurrentHashMap<>();
+
+	// templates being compiled on current thread, innermost first
+	private final ThreadLocal<Deque<Set<String>>> compiling = ThreadLocal.withInitial(ArrayDeque::new);
+
+	void begin() {
+		compiling.get().push(new LinkedHashSet<>());
+	}
+
+	void include(String resource) {
+
+		Set<String> current = compiling.get().peek();
+		if (current != null) {
+			current.add(resource);
+		}
+	}
+
+	/**
+	 * Records an already compiled partial taken from cache together with everything it includes
+	 *
+	 * @param partial name
+	 */
+	void included(String partial) {
+
+		Set<String> current = compiling.get().peek();
+		if (current != null) {
+			current.add(partial);
+			current.addAll(getIncludes(partial));
+		}
+	}
+
+	void end(String template, boolean compiled) {
+
+		Deque<Set<String>> stack = compiling.get();
+
+		Set<String> resources = stack.pop();
+		if (!compiled || template == null) {
+			return;
+		}
+
+		resources.remove(template); // recursive partial or the partial itself
+		includes.put(template, Collections.unmodifiableSet(resources));
+
+		// partial compiled while compiling a template is included by that template
+		Set<String> parent = stack.peek();
+		if (parent != null) {
+			parent.add(template);
+			parent.addAll(resources);
+		}
+	}
+
+	/**
+	 * @return names of all compiled templates and partials
+	 */
+	Set<String> getTemplates() {
+		return Collections.unmodifiableSet(includes.keySet());
+	}
+
+	/**
+	 * @param template name
+	 * @return resources read when template was compiled, including nested partials
+	 */
+	Set<String> getIncludes(String template) {
+		return includes.getOrDefault(template, Collections.emptySet());
+	}
+
+	/**
+	 * @param resource partial or parent template
+	 * @return templates and partials including resource directly or through nested partials
+	 */
+	Set<String> getDependents(String resource) {
+
+		Set<String> dependents = new TreeSet<>();
+		for (Map.Entry<String, Set<String>> template : includes.entrySet()) {
+			if (template.getValue().contains(resource)) {
+				dependents.add(template.getKey());
+			}
+		}
+
+		return dependents;
+	}
+}
@@ -0,0 +1,28 @@
+package com.zandero.template;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event emitted when a template is loaded from cache or compiled on a cache miss
+ */
+@Name("com.zandero.template.Load")
+@Label("Template Load")
+@Description("Template requested through load or loadFile")
+@Category({"Zandero", "Templates"})
+class TemplateLoadEvent extends Event {
+
+	@Label("Template")
+	String template;
+
+	@Label("Source")
+	@Description("classpath or file")
+	String source;
+
+	@Label("Cached")
+	@Description("Template served from cache without compiling")
+	boolean cached;
+}
@@ -0,0 +1,53 @@
+package com.zandero.template;
+
+/**
+ * Receives compile, load and render measurements of templates, see {@link MustacheUtils#setMetrics(TemplateMetrics)}
+ * Methods are called on rendering threads and must not block, implementations must be thread safe
+ *
+ * Templates are identified by their name: resource path, file path or path given when compiled
+ */
+public interface TemplateMetrics {
+
+	/**
+	 * Default, records nothing and is bypassed altogether when rendering
+	 */
+	TemplateMetrics NONE = new TemplateMetrics() {
+	};
+
+	/**
+	 * Template was compiled
+	 *
+	 * @param template name
+	 * @param nanos    time taken to compile
+	 */
+	default void compiled(String template, long nanos) {
+	}
+
+	/**
+	 * Template was requested through load or loadFile
+	 *
+	 * @param template name
+	 * @param cached   true if served from cache, false if template had to be compiled
+	 */
+	default void loaded(String template, boolean cached) {
+	}
+
+	/**
+	 * JSON data was parsed for template
+	 *
+	 * @param template name
+	 * @param nanos    time taken to parse data
+	 */
+	default void converted(String template, long nanos) {
+	}
+
+	/**
+	 * Template was rendered
+	 *
+	 * @param template name
+	 * @param nanos    time taken to render, including any templates rendered inside
+	 * @param chars    number of chars written
+	 */
+	default void rendered(String template, long nanos, long chars) {
+	}
+}
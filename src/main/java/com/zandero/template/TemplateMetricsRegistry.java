@@ -0,0 +1,180 @@
+package com.zandero.template;
+
+import com.zandero.utils.Assert;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In memory metrics kept per template, queried through snapshots for export into monitoring
+ * Metrics are kept for a bounded number of templates, templates recorded once the limit is reached are not tracked
+ *
+ * <pre>
+ * TemplateMetricsRegistry registry = new TemplateMetricsRegistry();
+ * utils.setMetrics(registry);
+ * ...
+ * for (TemplateStats stats : registry.snapshot().values()) { ... }
+ * </pre>
+ */
+public class TemplateMetricsRegistry implements TemplateMetrics {
+
+	/**
+	 * name used for templates compiled without a name
+	 */
+	static final String UNNAMED = "";
+
+	/**
+	 * Default maximum number of templates metrics are kept for
+	 */
+	public static final int MAX_TEMPLATES = 10_000;
+
+	private final Map<String, Recorder> recorders = new ConcurrentHashMap<>();
+
+	private final int maxTemplates;
+
+	public TemplateMetricsRegistry() {
+
+		this(MAX_TEMPLATES);
+	}
+
+	/**
+	 * @param maxTemplates maximum number of templates metrics are kept for, guards against generated names of inline templates
+	 */
+	public TemplateMetricsRegistry(int maxTemplates) {
+
+		Assert.isTrue(maxTemplates > 0, "Max templates must be greater than 0!");
+		this.maxTemplates = maxTemplates;
+	}
+
+	@Override
+	public void compiled(String template, long nanos) {
+
+		Recorder recorder = recorder(template);
+		if (recorder == null) {
+			return;
+		}
+
+		recorder.compiles.increment();
+		recorder.compileTime.add(nanos);
+	}
+
+	@Override
+	public void loaded(String template, boolean cached) {
+
+		Recorder recorder = recorder(template);
+		if (recorder == null) {
+			return;
+		}
+
+		(cached ? recorder.cacheHits : recorder.cacheMisses).increment();
+	}
+
+	@Override
+	public void converted(String template, long nanos) {
+
+		Recorder recorder = recorder(template);
+		if (recorder == null) {
+			return;
+		}
+
+		recorder.conversions.increment();
+		recorder.conversionTime.add(nanos);
+	}
+
+	@Override
+	public void rendered(String template, long nanos, long chars) {
+
+		Recorder recorder = recorder(template);
+		if (recorder == null) {
+			return;
+		}
+
+		recorder.renderTime.record(nanos);
+		recorder.output.add(chars);
+		recorder.maxOutput.accumulate(chars);
+	}
+
+	/**
+	 * @return names of templates with recorded metrics
+	 */
+	public Set<String> getTemplates() {
+
+		return Collections.unmodifiableSet(new TreeSet<>(recorders.keySet()));
+	}
+
+	/**
+	 * @param template name
+	 * @return snapshot of metrics recorded for template or null if nothing was recorded
+	 */
+	public TemplateStats get(String template) {
+
+		String name = template == null ? UNNAMED : template;
+		Recorder recorder = recorders.get(name);
+		return recorder == null ? null : recorder.snapshot(name);
+	}
+
+	/**
+	 * @return snapshots of all templates by template name
+	 */
+	public Map<String, TemplateStats> snapshot() {
+
+		Map<String, TemplateStats> out = new TreeMap<>();
+		recorders.forEach((name, recorder) -> out.put(name, recorder.snapshot(name)));
+		return Collections.unmodifiableMap(out);
+	}
+
+	/**
+	 * Removes all recorded metrics
+	 */
+	public void reset() {
+
+		recorders.clear();
+	}
+
+	/**
+	 * @return recorder of template or null if template is not tracked as limit was reached
+	 */
+	private Recorder recorder(String template) {
+
+		String name = template == null ? UNNAMED : template;
+		Recorder recorder = recorders.get(name);
+		if (recorder == null) {
+			if (recorders.size() >= maxTemplates) {
+				return null;
+			}
+
+			recorder = recorders.computeIfAbsent(name, key -> new Recorder());
+		}
+
+		return recorder;
+	}
+
+	private static class Recorder {
+
+		final LongAdder compiles = new LongAdder();
+		final LongAdder compileTime = new LongAdder();
+
+		final LongAdder cacheHits = new LongAdder();
+		final LongAdder cacheMisses = new LongAdder();
+
+		final LongAdder conversions = new LongAdder();
+		final LongAdder conversionTime = new LongAdder();
+
+		final LatencyHistogram renderTime = new LatencyHistogram();
+		final LongAdder output = new LongAdder();
+		final LongAccumulator maxOutput = new LongAccumulator(Math::max, 0);
+
+		TemplateStats snapshot(String name) {
+
+			return new TemplateStats(name,
+			                         compiles.sum(), compileTime.sum(),
+			                         cacheHits.sum(), cacheMisses.sum(),
+			                         conversions.sum(), conversionTime.sum(),
+			                         renderTime.getCount(), renderTime.getTotal(),
+			                         renderTime.percentile(0.5), renderTime.percentile(0.99), renderTime.getMax(),
+			                         output.sum(), maxOutput.get());
+		}
+	}
+}
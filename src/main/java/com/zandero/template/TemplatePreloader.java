@@ -0,0 +1,320 @@
+package com.zandero.template;
+
+import com.github.mustachejava.Mustache;
+import com.zandero.utils.Assert;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compiles all templates found in a classpath location or directory at startup, so first requests do not pay for compiling
+ * Templates are compiled in parallel into the template cache of given utils and can optionally be rendered
+ * with sample data to warm up the JIT
+ *
+ * <pre>
+ * TemplatePreloader preloader = new TemplatePreloader(utils);
+ * preloader.setWarmUp(100, path -&gt; sampleData);
+ * PreloadReport report = preloader.preload("/templates");
+ * </pre>
+ */
+public class TemplatePreloader {
+
+	private final MustacheUtils mustache;
+
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+
+	private Set<String> extensions = new LinkedHashSet<>(Arrays.asList(".html", ".mustache"));
+
+	private int warmUpRenders;
+
+	private Function<String, Object> warmUpData;
+
+	/**
+	 * @param mustache utils to load templates into
+	 */
+	public TemplatePreloader(MustacheUtils mustache) {
+
+		Assert.notNull(mustache, "Missing mustache utils!");
+		this.mustache = mustache;
+	}
+
+	/**
+	 * Sets number of templates compiled concurrently, defaults to number of available processors
+	 *
+	 * @param parallelism greater than 0
+	 */
+	public void setParallelism(int parallelism) {
+
+		Assert.isTrue(parallelism > 0, "Parallelism must be greater than 0!");
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Sets extensions of files considered templates, defaults to .html and .mustache
+	 *
+	 * @param extensions file extensions including dot
+	 */
+	public void setExtensions(String... extensions) {
+
+		Assert.isTrue(extensions != null && extensions.length > 0, "Missing template extensions!");
+		this.extensions = new LinkedHashSet<>(Arrays.asList(extensions));
+	}
+
+	/**
+	 * Renders each template after compiling to warm up the JIT, disabled by default
+	 *
+	 * @param renders number of renders per template, 0 to disable
+	 * @param data    provides sample data for template by template path, templates with no data (null) are not rendered
+	 */
+	public void setWarmUp(int renders, Function<String, Object> data) {
+
+		Assert.isTrue(renders >= 0, "Number of warm up renders must be 0 or greater!");
+		Assert.isTrue(renders == 0 || data != null, "Missing warm up data!");
+
+		warmUpRenders = renders;
+		warmUpData = data;
+	}
+
+	/**
+	 * Compiles all templates found in classpath location, templates are loaded with {@link MustacheUtils#load(String)}
+	 *
+	 * @param prefix classpath location, for instance: /templates
+	 * @return outcome of preloading
+	 * @throws IllegalArgumentException in case location is found neither in a directory nor in a jar of the classpath
+	 */
+	public PreloadReport preload(String prefix) {
+
+		Assert.notNullOrEmptyTrimmed(prefix, "Missing classpath prefix!");
+
+		long start = System.nanoTime();
+		List<String> templates = scan(prefix, getClass().getClassLoader());
+		return run(templates, mustache::load, start);
+	}
+
+	/**
+	 * Compiles all templates found in directory and its sub directories, templates are loaded with {@link MustacheUtils#loadFile(String)}
+	 *
+	 * @param directory template directory
+	 * @return outcome of preloading
+	 */
+	public PreloadReport preload(Path directory) {
+
+		Assert.notNull(directory, "Missing template directory!");
+		Assert.isTrue(Files.isDirectory(directory), "Not a directory: '" + directory + "'");
+
+		long start = System.nanoTime();
+		List<String> templates = files(directory).stream()
+		                                         .map(Path::toString)
+		                                         .collect(Collectors.toList());
+
+		return run(templates, mustache::loadFile, start);
+	}
+
+	/**
+	 * Compiles given classpath templates, for instance templates invalidated by {@link MustacheUtils#invalidate(String)}
+	 * Templates are loaded with {@link MustacheUtils#load(String)}, partials shared by templates are compiled only once
+	 *
+	 * @param templates classpath template paths
+	 * @return outcome of preloading
+	 */
+	public PreloadReport preload(Collection<String> templates) {
+
+		Assert.notNull(templates, "Missing templates!");
+
+		long start = System.nanoTime();
+		return run(new ArrayList<>(templates), mustache::load, start);
+	}
+
+	private PreloadReport run(List<String> templates, Function<String, Mustache> loader, long start) {
+
+		Map<String, Exception> failures = new ConcurrentHashMap<>();
+		Set<String> loaded = ConcurrentHashMap.newKeySet();
+
+		int renders = warmUpRenders;
+		Function<String, Object> data = warmUpData;
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, templates.size())));
+		try {
+			List<CompletableFuture<Void>> tasks = new ArrayList<>();
+			for (String template : templates) {
+				tasks.add(CompletableFuture.runAsync(() -> {
+
+					Mustache compiled;
+					try {
+						compiled = loader.apply(template);
+						loaded.add(template);
+					}
+					catch (RuntimeException e) {
+						failures.put(template, e);
+						return;
+					}
+
+					if (renders == 0) {
+						return;
+					}
+
+					try {
+						Object sample = data.apply(template);
+						for (int index = 0; sample != null && index < renders; index++) {
+							mustache.render(compiled, sample);
+						}
+					}
+					catch (RuntimeException e) {
+						failures.put(template, e);
+					}
+				}, executor));
+			}
+
+			CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).join();
+		}
+		finally {
+			executor.shutdown();
+		}
+
+		List<String> sorted = new ArrayList<>(loaded);
+		Collections.sort(sorted);
+		return new PreloadReport(sorted, new TreeMap<>(failures), Duration.ofNanos(System.nanoTime() - start));
+	}
+
+	/**
+	 * Finds templates in classpath location, both in directories and jars
+	 * Jars built without directory entries (shaded, assembled) do not report the location as resource,
+	 * in case location is not found otherwise entries of all jars on the classpath are scanned
+	 *
+	 * @param prefix classpath location
+	 * @param loader class loader to scan
+	 * @return resource names of found templates
+	 * @throws IllegalArgumentException in case location is not found
+	 */
+	List<String> scan(String prefix, ClassLoader loader) {
+
+		String location = prefix.trim();
+		while (location.startsWith("/")) {
+			location = location.substring(1);
+		}
+
+		if (location.endsWith("/")) {
+			location = location.substring(0, location.length() - 1);
+		}
+
+		Set<String> found = new TreeSet<>();
+		boolean located = false;
+		try {
+			Enumeration<URL> urls = location.isEmpty() ? loader.getResources("") : loader.getResources(location);
+
+			while (urls.hasMoreElements()) {
+
+				URL url = urls.nextElement();
+				if ("file".equals(url.getProtocol())) {
+
+					Path root = Paths.get(url.toURI());
+					if (!Files.isDirectory(root)) {
+						continue;
+					}
+
+					located = true;
+					for (Path file : files(root)) {
+						String relative = root.relativize(file).toString().replace(File.separatorChar, '/');
+						found.add("/" + (location.isEmpty() ? "" : location + "/") + relative);
+					}
+					continue;
+				}
+
+				URLConnection connection = url.openConnection();
+				if (connection instanceof JarURLConnection) {
+					located |= scan((JarURLConnection) connection, location, found);
+				}
+			}
+
+			if (!located && !location.isEmpty()) {
+
+				// each jar holds a manifest, so all jars are found through it
+				Set<String> jars = new HashSet<>();
+				Enumeration<URL> manifests = loader.getResources("META-INF/MANIFEST.MF");
+				while (manifests.hasMoreElements()) {
+
+					URLConnection connection = manifests.nextElement().openConnection();
+					if (connection instanceof JarURLConnection && jars.add(((JarURLConnection) connection).getJarFileURL().toString())) {
+						located |= scan((JarURLConnection) connection, location, found);
+					}
+				}
+			}
+		}
+		catch (IOException | URISyntaxException e) {
+			throw new IllegalArgumentException("Failed to scan classpath: '" + prefix + "' " + e.getMessage(), e);
+		}
+
+		Assert.isTrue(located, "Classpath location not found: '" + prefix + "'");
+		return new ArrayList<>(found);
+	}
+
+	/**
+	 * Adds templates of jar found in location
+	 *
+	 * @return true if jar holds any entry in location
+	 */
+	private boolean scan(JarURLConnection connection, String location, Set<String> found) throws IOException {
+
+		connection.setUseCaches(false);
+		try (JarFile jar = connection.getJarFile()) {
+
+			boolean located = false;
+			String entryPrefix = location.isEmpty() ? "" : location + "/";
+			Enumeration<JarEntry> entries = jar.entries();
+			while (entries.hasMoreElements()) {
+
+				JarEntry entry = entries.nextElement();
+				if (!entry.getName().startsWith(entryPrefix)) {
+					continue;
+				}
+
+				located = true;
+				if (!entry.isDirectory() && isTemplate(entry.getName())) {
+					found.add("/" + entry.getName());
+				}
+			}
+
+			return located;
+		}
+	}
+
+	private List<Path> files(Path directory) {
+
+		try (Stream<Path> stream = Files.walk(directory)) {
+			return stream.filter(Files::isRegularFile)
+			             .filter(file -> isTemplate(file.getFileName().toString()))
+			             .map(file -> file.toAbsolutePath().normalize())
+			             .sorted()
+			             .collect(Collectors.toList());
+		}
+		catch (IOException e) {
+			throw new IllegalArgumentException("Failed to list templates in: '" + directory + "' " + e.getMessage(), e);
+		}
+	}
+
+	private boolean isTemplate(String name) {
+
+		for (String extension : extensions) {
+			if (name.endsWith(extension)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+}
@@ -0,0 +1,142 @@
+package com.zandero.template;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Opens template sources as readers decoding bytes on the fly, so templates are compiled without reading them into a String first
+ * Large files are memory mapped, smaller files and classpath resources are streamed
+ */
+final class TemplateReader {
+
+	/**
+	 * Files of this size in bytes or larger are memory mapped
+	 */
+	static final long MAP_THRESHOLD = 1024 * 1024;
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private TemplateReader() {
+		// hide constructor
+	}
+
+	/**
+	 * @param file    template file
+	 * @param charset file is encoded with
+	 * @return reader decoding file, must be closed
+	 * @throws IOException in case file can not be read
+	 */
+	static Reader open(Path file, Charset charset) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+			long size = channel.size();
+			if (size >= MAP_THRESHOLD && size <= Integer.MAX_VALUE) {
+				// mapping stays valid once channel is closed
+				return new ByteBufferReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), decoder(charset));
+			}
+		}
+
+		return open(new FileInputStream(file.toFile()), charset);
+	}
+
+	/**
+	 * @param stream  template content
+	 * @param charset stream is encoded with
+	 * @return buffered reader decoding stream, closing reader closes stream
+	 */
+	static Reader open(InputStream stream, Charset charset) {
+
+		return new BufferedReader(new InputStreamReader(stream, decoder(charset)), BUFFER_SIZE);
+	}
+
+	/**
+	 * Malformed input is replaced as when decoding a String
+	 */
+	private static CharsetDecoder decoder(Charset charset) {
+
+		return charset.newDecoder()
+		              .onMalformedInput(CodingErrorAction.REPLACE)
+		              .onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	/**
+	 * Decodes chars from buffer in chunks, only a chunk of chars is held in memory at any time
+	 */
+	static class ByteBufferReader extends Reader {
+
+		private final ByteBuffer bytes;
+
+		private final CharsetDecoder decoder;
+
+		private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+
+		private boolean consumed;
+
+		private boolean decoded;
+
+		ByteBufferReader(ByteBuffer bytes, CharsetDecoder decoder) {
+
+			this.bytes = bytes;
+			this.decoder = decoder;
+			chars.flip(); // nothing decoded yet
+		}
+
+		@Override
+		public int read(char[] buffer, int offset, int length) throws IOException {
+
+			if (length == 0) {
+				return 0;
+			}
+
+			if (!chars.hasRemaining() && !fill()) {
+				return -1;
+			}
+
+			int count = Math.min(length, chars.remaining());
+			chars.get(buffer, offset, count);
+			return count;
+		}
+
+		private boolean fill() throws IOException {
+
+			chars.clear();
+			while (chars.position() == 0 && !decoded) {
+
+				if (!consumed) {
+					CoderResult result = decoder.decode(bytes, chars, true);
+					if (result.isError()) {
+						result.throwException();
+					}
+
+					consumed = result.isUnderflow();
+				}
+
+				if (consumed) { // all bytes decoded, flush any chars left in decoder
+					decoded = decoder.flush(chars).isUnderflow();
+				}
+			}
+
+			chars.flip();
+			return chars.hasRemaining();
+		}
+
+		@Override
+		public boolean ready() {
+			return chars.hasRemaining() || bytes.hasRemaining();
+		}
+
+		@Override
+		public void close() {
+			// mapped buffer is released once collected
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package com.zandero.template;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event emitted when a template is rendered
+ * Rendering a base template emits an event for the base template enclosing the event of the inner template
+ */
+@Name("com.zandero.template.Render")
+@Label("Template Render")
+@Description("Template rendered with data")
+@Category({"Zandero", "Templates"})
+class TemplateRenderEvent extends Event {
+
+	@Label("Template")
+	String template;
+
+	@Label("Source")
+	@Description("classpath or file as cached by utils, empty for inline templates and templates not cached")
+	String source;
+
+	@Label("Inner Template")
+	@Description("Template rendered into base template, empty if not a base template render")
+	String innerTemplate;
+
+	@Label("Output Length")
+	@Description("Number of chars written")
+	long outputLength;
+}
@@ -0,0 +1,147 @@
+package com.zandero.template;
+
+import com.github.mustachejava.MustacheException;
+import com.github.mustachejava.MustacheResolver;
+import com.zandero.utils.Assert;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * Resolves templates and partials against classpath locations and directories, tried in the order they were added
+ * Names are relative to each root, so a partial in a directory can override a partial of the same name on the classpath
+ * Resolves against the classpath root when no root was added
+ *
+ * <pre>
+ * TemplateResolver resolver = new TemplateResolver();
+ * resolver.addDirectory(Paths.get("overrides"));
+ * resolver.addClasspath("/");
+ *
+ * MustacheFactoryProvider factory = new MustacheFactoryProvider();
+ * factory.setResolver(resolver);
+ * </pre>
+ */
+public class TemplateResolver implements MustacheResolver {
+
+	private final List<Function<String, Reader>> roots = new CopyOnWriteArrayList<>();
+
+	private volatile Charset charset = StandardCharsets.UTF_8;
+
+	/**
+	 * Sets charset templates are read with, defaults to UTF-8
+	 *
+	 * @param charset of template files and resources
+	 */
+	public void setCharset(Charset charset) {
+
+		Assert.notNull(charset, "Missing charset!");
+		this.charset = charset;
+	}
+
+	/**
+	 * Adds classpath location to resolve against
+	 *
+	 * @param location classpath location, for instance: /templates
+	 */
+	public void addClasspath(String location) {
+
+		Assert.notNull(location, "Missing classpath location!");
+
+		String prefix = relative(location);
+		roots.add(name -> classpath(prefix.isEmpty() ? name : prefix + "/" + name));
+	}
+
+	/**
+	 * Adds directory to resolve against, names resolving outside of directory are not found
+	 *
+	 * @param directory template directory
+	 */
+	public void addDirectory(Path directory) {
+
+		Assert.notNull(directory, "Missing template directory!");
+		Assert.isTrue(Files.isDirectory(directory), "Not a directory: '" + directory + "'");
+
+		Path root = directory.toAbsolutePath().normalize();
+		roots.add(name -> file(root, name));
+	}
+
+	@Override
+	public Reader getReader(String resourceName) {
+
+		String name = resourceName == null ? null : normalize(resourceName);
+		if (name == null) {
+			return null;
+		}
+
+		if (roots.isEmpty()) {
+			return classpath(name);
+		}
+
+		for (Function<String, Reader> root : roots) {
+			Reader reader = root.apply(name);
+			if (reader != null) {
+				return reader;
+			}
+		}
+
+		return null;
+	}
+
+	private Reader classpath(String name) {
+
+		InputStream resource = TemplateResolver.class.getResourceAsStream("/" + name);
+		return resource == null ? null : TemplateReader.open(resource, charset);
+	}
+
+	private Reader file(Path root, String name) {
+
+		Path file = root.resolve(name).normalize();
+		if (!file.startsWith(root) || !Files.isRegularFile(file)) {
+			return null;
+		}
+
+		try {
+			return TemplateReader.open(file, charset);
+		}
+		catch (IOException e) {
+			throw new MustacheException("Failed to read template: '" + file + "' " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * @return name relative to root or null if name points outside of root
+	 */
+	private static String normalize(String name) {
+
+		String relative = relative(name);
+		if (relative.isEmpty()) {
+			return null;
+		}
+
+		String normalized = Paths.get(relative).normalize().toString().replace('\\', '/');
+		return normalized.startsWith("..") ? null : normalized;
+	}
+
+	private static String relative(String name) {
+
+		String relative = name.trim().replace('\\', '/');
+		while (relative.startsWith("/")) {
+			relative = relative.substring(1);
+		}
+
+		while (relative.endsWith("/")) {
+			relative = relative.substring(0, relative.length() - 1);
+		}
+
+		return relative;
+	}
+}
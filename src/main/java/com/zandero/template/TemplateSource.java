@@ -0,0 +1,45 @@
+package com.zandero.template;
+
+/**
+ * Origin of a template, used to tell apart cache entries with the same path
+ */
+public enum TemplateSource {
+
+	/**
+	 * template loaded as classpath resource
+	 */
+	CLASSPATH("classpath:"),
+
+	/**
+	 * template loaded from file system
+	 */
+	FILE("file:"),
+
+	/**
+	 * template compiled from given string
+	 */
+	INLINE("inline:");
+
+	private final String prefix;
+
+	TemplateSource(String prefix) {
+		this.prefix = prefix;
+	}
+
+	/**
+	 * Builds cache key for given path
+	 *
+	 * @param path of template
+	 * @return key unique across template sources
+	 */
+	public String key(String path) {
+		return prefix + path;
+	}
+
+	/**
+	 * @return lower case name of source, for instance: classpath
+	 */
+	public String getLabel() {
+		return prefix.substring(0, prefix.length() - 1);
+	}
+}
@@ -0,0 +1,176 @@
+package com.zandero.template;
+
+/**
+ * Snapshot of metrics recorded for a single template, see {@link TemplateMetricsRegistry}
+ * Times are in nanoseconds, output sizes in chars
+ */
+public final class TemplateStats {
+
+	private final String template;
+
+	private final long compileCount;
+	private final long totalCompileTime;
+
+	private final long cacheHitCount;
+	private final long cacheMissCount;
+
+	private final long conversionCount;
+	private final long totalConversionTime;
+
+	private final long renderCount;
+	private final long totalRenderTime;
+	private final long renderTimeP50;
+	private final long renderTimeP99;
+	private final long maxRenderTime;
+
+	private final long totalOutputSize;
+	private final long maxOutputSize;
+
+	TemplateStats(String template,
+	              long compileCount, long totalCompileTime,
+	              long cacheHitCount, long cacheMissCount,
+	              long conversionCount, long totalConversionTime,
+	              long renderCount, long totalRenderTime, long renderTimeP50, long renderTimeP99, long maxRenderTime,
+	              long totalOutputSize, long maxOutputSize) {
+
+		this.template = template;
+		this.compileCount = compileCount;
+		this.totalCompileTime = totalCompileTime;
+		this.cacheHitCount = cacheHitCount;
+		this.cacheMissCount = cacheMissCount;
+		this.conversionCount = conversionCount;
+		this.totalConversionTime = totalConversionTime;
+		this.renderCount = renderCount;
+		this.totalRenderTime = totalRenderTime;
+		this.renderTimeP50 = renderTimeP50;
+		this.renderTimeP99 = renderTimeP99;
+		this.maxRenderTime = maxRenderTime;
+		this.totalOutputSize = totalOutputSize;
+		this.maxOutputSize = maxOutputSize;
+	}
+
+	/**
+	 * @return template name
+	 */
+	public String getTemplate() {
+		return template;
+	}
+
+	/**
+	 * @return number of times template was compiled
+	 */
+	public long getCompileCount() {
+		return compileCount;
+	}
+
+	/**
+	 * @return total time spent compiling template
+	 */
+	public long getTotalCompileTime() {
+		return totalCompileTime;
+	}
+
+	/**
+	 * @return number of loads served from cache
+	 */
+	public long getCacheHitCount() {
+		return cacheHitCount;
+	}
+
+	/**
+	 * @return number of loads that required template to be compiled
+	 */
+	public long getCacheMissCount() {
+		return cacheMissCount;
+	}
+
+	/**
+	 * @return number of times JSON data was parsed for template
+	 */
+	public long getConversionCount() {
+		return conversionCount;
+	}
+
+	/**
+	 * @return total time spent parsing JSON data for template
+	 */
+	public long getTotalConversionTime() {
+		return totalConversionTime;
+	}
+
+	/**
+	 * @return number of renders
+	 */
+	public long getRenderCount() {
+		return renderCount;
+	}
+
+	/**
+	 * @return total time spent rendering
+	 */
+	public long getTotalRenderTime() {
+		return totalRenderTime;
+	}
+
+	/**
+	 * @return median render time
+	 */
+	public long getRenderTimeP50() {
+		return renderTimeP50;
+	}
+
+	/**
+	 * @return 99th percentile of render time
+	 */
+	public long getRenderTimeP99() {
+		return renderTimeP99;
+	}
+
+	/**
+	 * @return longest render time
+	 */
+	public long getMaxRenderTime() {
+		return maxRenderTime;
+	}
+
+	/**
+	 * @return average render time, 0 if not rendered
+	 */
+	public double getAverageRenderTime() {
+		return renderCount == 0 ? 0.0 : (double) totalRenderTime / renderCount;
+	}
+
+	/**
+	 * @return total number of chars rendered
+	 */
+	public long getTotalOutputSize() {
+		return totalOutputSize;
+	}
+
+	/**
+	 * @return largest output in chars
+	 */
+	public long getMaxOutputSize() {
+		return maxOutputSize;
+	}
+
+	/**
+	 * @return average output in chars, 0 if not rendered
+	 */
+	public double getAverageOutputSize() {
+		return renderCount == 0 ? 0.0 : (double) totalOutputSize / renderCount;
+	}
+
+	@Override
+	public String toString() {
+		return "TemplateStats{template=" + template +
+		       ", compiles=" + compileCount +
+		       ", cacheHits=" + cacheHitCount +
+		       ", cacheMisses=" + cacheMissCount +
+		       ", renders=" + renderCount +
+		       ", p50=" + renderTimeP50 +
+		       ", p99=" + renderTimeP99 +
+		       ", max=" + maxRenderTime +
+		       ", output=" + totalOutputSize + "}";
+	}
+}
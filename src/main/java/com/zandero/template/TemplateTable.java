@@ -0,0 +1,142 @@
+package com.zandero.template;
+
+import com.github.mustachejava.Mustache;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Values kept per compiled template instance, reads do not lock
+ * Templates are held weakly, values are released once their template is no longer in use
+ *
+ * @param <V> type of values
+ */
+final class TemplateTable<V> {
+
+	private final Map<Object, V> values = new ConcurrentHashMap<>();
+
+	private final ReferenceQueue<Mustache> released = new ReferenceQueue<>();
+
+	/**
+	 * @param template compiled template
+	 * @return value of template or null if none
+	 */
+	V get(Mustache template) {
+		return values.get(new Lookup(template));
+	}
+
+	/**
+	 * Returns value of template, computing it if not present
+	 * Value might be computed more than once by concurrent calls, only one of them is kept
+	 *
+	 * @param template compiled template
+	 * @param function computing value of template
+	 * @return value of template
+	 */
+	V computeIfAbsent(Mustache template, Function<Mustache, V> function) {
+
+		V value = get(template);
+		if (value != null) {
+			return value;
+		}
+
+		expunge();
+
+		value = function.apply(template);
+		V other = values.putIfAbsent(new Key(template, released), value);
+		return other == null ? value : other;
+	}
+
+	/**
+	 * @param template compiled template
+	 * @param value    of template, replaces any existing value
+	 */
+	void put(Mustache template, V value) {
+
+		expunge();
+		values.put(new Key(template, released), value);
+	}
+
+	/**
+	 * @return number of values kept, including values of templates released but not yet expunged
+	 */
+	int size() {
+		return values.size();
+	}
+
+	private void expunge() {
+
+		Object key;
+		while ((key = released.poll()) != null) {
+			values.remove(key);
+		}
+	}
+
+	/**
+	 * Weak key stored in map, equal to keys and lookups of the same template instance
+	 */
+	private static final class Key extends WeakReference<Mustache> {
+
+		private final int hash;
+
+		Key(Mustache template, ReferenceQueue<Mustache> queue) {
+
+			super(template, queue);
+			hash = System.identityHashCode(template);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+
+			if (this == other) {
+				return true;
+			}
+
+			Mustache template = get();
+			if (template == null) {
+				return false; // released, equal to itself only so it can be removed
+			}
+
+			if (other instanceof Key) {
+				return template == ((Key) other).get();
+			}
+
+			return other instanceof Lookup && template == ((Lookup) other).template;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	/**
+	 * Strong key used for reads only
+	 */
+	private static final class Lookup {
+
+		private final Mustache template;
+
+		Lookup(Mustache template) {
+			this.template = template;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+
+			if (other instanceof Lookup) {
+				return template == ((Lookup) other).template;
+			}
+
+			return other instanceof Key && template == ((Key) other).get();
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(template);
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package com.zandero.template;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Names referenced by a compiled template, see {@link TemplateAnalyzer}
+ */
+public final class TemplateVariables {
+
+	private final Set<String> names;
+
+	private final Set<String> sections;
+
+	private final Set<String> paths;
+
+	private final Set<String> fields;
+
+	private final Set<String> partials;
+
+	private final Set<String> required;
+
+	private final boolean complete;
+
+	TemplateVariables(Set<String> names, Set<String> sections, Set<String> paths, Set<String> partials, Set<String> required, boolean complete) {
+
+		this.names = Collections.unmodifiableSet(names);
+		this.sections = Collections.unmodifiableSet(sections);
+		this.paths = Collections.unmodifiableSet(paths);
+		this.partials = Collections.unmodifiableSet(partials);
+		this.required = Collections.unmodifiableSet(required);
+		this.complete = complete;
+
+		Set<String> parts = new LinkedHashSet<>();
+		for (String name : names) {
+			Collections.addAll(parts, name.split("\\."));
+		}
+
+		parts.remove("");
+		this.fields = Collections.unmodifiableSet(parts);
+	}
+
+	/**
+	 * @return names of values and sections as written in template, for instance: user.name
+	 */
+	public Set<String> getNames() {
+		return names;
+	}
+
+	/**
+	 * @return names of values and sections resolved on every render, found outside of any section, for instance: user.name
+	 */
+	public Set<String> getRequired() {
+		return required;
+	}
+
+	/**
+	 * @return sections qualified with enclosing sections separated by /, for instance: items/tags
+	 */
+	public Set<String> getSections() {
+		return sections;
+	}
+
+	/**
+	 * @return names of values and sections qualified with enclosing sections separated by /, for instance: items/name
+	 */
+	public Set<String> getPaths() {
+		return paths;
+	}
+
+	/**
+	 * @return single field names found in all names, for instance: user and name for user.name
+	 */
+	public Set<String> getFields() {
+		return fields;
+	}
+
+	/**
+	 * @return names of included partials
+	 */
+	public Set<String> getPartials() {
+		return partials;
+	}
+
+	/**
+	 * @return true if whole template could be analyzed,
+	 * false if template contains parts resolved only when rendered (partials, template inheritance)
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	/**
+	 * Checks if field might be referenced by template
+	 * Names are looked up in all enclosing scopes, so a field is needed regardless of where in data it resides
+	 *
+	 * @param field name
+	 * @return true if field is referenced or analysis is not complete
+	 */
+	public boolean isReferenced(String field) {
+		return !complete || fields.contains(field);
+	}
+
+	@Override
+	public String toString() {
+		return "TemplateVariables{paths=" + paths + ", partials=" + partials + ", complete=" + complete + "}";
+	}
+}
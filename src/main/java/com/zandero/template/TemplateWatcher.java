@@ -0,0 +1,374 @@
+package com.zandero.template;
+
+import com.github.mustachejava.Mustache;
+import com.zandero.utils.Assert;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches template directories and recompiles cached templates once their files change
+ * Only changed templates and templates including them as partials or parent templates are recompiled,
+ * on a background thread, cached versions are served until the new version compiles successfully
+ * Once started, {@link MustacheUtils#loadFile(String)} serves files of watched directories from cache without checking them for modification
+ *
+ * <pre>
+ * MustacheUtils utils = new MustacheUtils();
+ * TemplateWatcher watcher = new TemplateWatcher(utils, Paths.get("templates")).start();
+ * watcher.watch(baseTemplate);
+ * ...
+ * watcher.close();
+ * </pre>
+ */
+public class TemplateWatcher implements Closeable {
+
+	/**
+	 * Time in milliseconds to wait for further changes before recompiling, so a save touching many files triggers a single reload
+	 */
+	static final long QUIET_PERIOD = 100;
+
+	private final MustacheUtils mustache;
+
+	private final WatchService service;
+
+	private final Map<WatchKey, Path> directories = new ConcurrentHashMap<>();
+
+	// watched root directories, resources are resolved against them
+	private final List<Path> roots = new ArrayList<>();
+
+	private final List<BaseTemplate> baseTemplates = new CopyOnWriteArrayList<>();
+
+	private final Map<String, Exception> failures = new ConcurrentHashMap<>();
+
+	private final AtomicLong reloads = new AtomicLong();
+
+	private volatile Thread thread;
+
+	private volatile boolean closed;
+
+	/**
+	 * Registers directories and all their sub directories to be watched, call {@link #start()} to begin watching
+	 *
+	 * @param mustache    utils holding templates to be reloaded in cache
+	 * @param directories template directories
+	 */
+	public TemplateWatcher(MustacheUtils mustache, Path... directories) {
+
+		Assert.notNull(mustache, "Missing mustache utils!");
+		Assert.isTrue(directories != null && directories.length > 0, "Missing directories to watch!");
+
+		this.mustache = mustache;
+
+		try {
+			service = FileSystems.getDefault().newWatchService();
+			for (Path directory : directories) {
+				Assert.notNull(directory, "Missing directory to watch!");
+				Assert.isTrue(Files.isDirectory(directory), "Not a directory: '" + directory + "'");
+				roots.add(directory.toAbsolutePath().normalize());
+				register(directory);
+			}
+		}
+		catch (IOException e) {
+			throw new IllegalArgumentException("Failed to watch template directories: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Starts watching on a background daemon thread
+	 *
+	 * @return this watcher
+	 */
+	public synchronized TemplateWatcher start() {
+
+		Assert.isFalse(closed, "Template watcher already closed!");
+		Assert.isTrue(thread == null, "Template watcher already started!");
+
+		mustache.watch(roots); // files are reloaded by this watcher from now on
+
+		thread = new Thread(this::run, "template-watcher");
+		thread.setDaemon(true);
+		thread.start();
+		return this;
+	}
+
+	/**
+	 * Registers base template, templates stored in base template are replaced once reloaded
+	 *
+	 * @param baseTemplate base template to update
+	 */
+	public void watch(BaseTemplate baseTemplate) {
+
+		Assert.notNull(baseTemplate, "Missing base template!");
+		baseTemplates.add(baseTemplate);
+	}
+
+	/**
+	 * @return templates that failed to recompile with cause of failure, cleared once template compiles again,
+	 * changed files are listed in case reloading failed as a whole
+	 */
+	public Map<String, Exception> getFailures() {
+
+		return Collections.unmodifiableMap(new HashMap<>(failures));
+	}
+
+	/**
+	 * @return number of templates recompiled so far
+	 */
+	public long getReloadCount() {
+
+		return reloads.get();
+	}
+
+	/**
+	 * Stops watching, already cached templates remain in place and are checked for modification by {@link MustacheUtils#loadFile(String)} again
+	 */
+	@Override
+	public synchronized void close() {
+
+		if (closed) {
+			return;
+		}
+
+		closed = true;
+		if (thread != null) {
+			mustache.unwatch(roots);
+		}
+
+		try {
+			service.close();
+		}
+		catch (IOException e) {
+			// nothing to do
+		}
+	}
+
+	/**
+	 * Recompiles cached templates affected by changed files
+	 *
+	 * @param changed absolute paths of changed files
+	 * @return number of recompiled templates
+	 */
+	synchronized int reload(Collection<Path> changed) {
+
+		TemplateDependencies dependencies = mustache.getDependencies();
+
+		// changed partials and partials including them are compiled again once included
+		PartialCache partials = mustache.getPartials();
+		for (String partial : partials.getNames()) {
+			if (isAffected(partial, dependencies.getIncludes(partial), changed)) {
+				partials.invalidate(partial);
+			}
+		}
+
+		int count = 0;
+		for (String template : dependencies.getTemplates()) {
+
+			if (isAffected(template, dependencies.getIncludes(template), changed)) {
+				count += reload(template, TemplateSource.FILE) + reload(template, TemplateSource.CLASSPATH);
+			}
+		}
+
+		return count;
+	}
+
+	private int reload(String template, TemplateSource source) {
+
+		String key = source == TemplateSource.FILE ?
+		             source.key(new File(template).getAbsoluteFile().toPath().normalize().toString()) :
+		             source.key(template);
+
+		Mustache previous = mustache.getCache().find(key);
+		if (previous == null) { // not cached or not loaded from this source
+			return 0;
+		}
+
+		// file templates are cached by modification time, as checked by loadFile once this watcher is closed
+		long version = source == TemplateSource.FILE ? new File(template).lastModified() : 0;
+
+		Mustache compiled;
+		try {
+			compiled = mustache.recompile(source, template);
+		}
+		catch (RuntimeException e) {
+			failures.put(template, e); // previous version remains cached and is served by loadFile while watched
+			return 0;
+		}
+
+		failures.remove(template);
+		mustache.getCache().put(key, version, compiled);
+
+		for (BaseTemplate baseTemplate : baseTemplates) {
+			baseTemplate.replace(previous, compiled);
+		}
+
+		reloads.incrementAndGet();
+		return 1;
+	}
+
+	private boolean isAffected(String template, Set<String> includes, Collection<Path> changed) {
+
+		for (Path file : changed) {
+
+			if (matches(template, file)) {
+				return true;
+			}
+
+			for (String resource : includes) {
+				if (matches(resource, file)) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * File path of template loaded from file matches the file itself.
+	 * Resource names are relative to a resolver root, the resource matches the file
+	 * if resolved against a watched root or a parent of a watched root
+	 * (templates/header.html matches header.html in watched directory templates, but not in any of its sub directories)
+	 */
+	boolean matches(String resource, Path file) {
+
+		String relative = resource.replace('\\', '/');
+		while (relative.startsWith("/")) {
+			relative = relative.substring(1);
+		}
+
+		if (relative.isEmpty()) {
+			return false;
+		}
+
+		try {
+			if (file.equals(Paths.get(resource).toAbsolutePath().normalize())) {
+				return true;
+			}
+
+			Path path = file.getFileSystem().getPath(relative).normalize();
+			if (!file.endsWith(path)) {
+				return false;
+			}
+
+			Path base = file;
+			for (int index = 0; index < path.getNameCount() && base != null; index++) {
+				base = base.getParent();
+			}
+
+			for (Path root : roots) {
+				if (base != null && root.startsWith(base)) {
+					return true;
+				}
+			}
+
+			return false;
+		}
+		catch (InvalidPathException e) {
+			return false;
+		}
+	}
+
+	private void run() {
+
+		try {
+			while (!closed) {
+
+				Set<Path> changed = new LinkedHashSet<>();
+
+				WatchKey key = service.take();
+				while (key != null) {
+					collect(key, changed);
+					key = service.poll(QUIET_PERIOD, TimeUnit.MILLISECONDS);
+				}
+
+				try {
+					reload(changed);
+				}
+				catch (RuntimeException e) { // keep watching, failure is reported by changed file
+					for (Path file : changed) {
+						failures.put(file.toString(), e);
+					}
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch (ClosedWatchServiceException e) {
+			// closed
+		}
+	}
+
+	private void collect(WatchKey key, Set<Path> changed) {
+
+		Path directory = directories.get(key);
+
+		for (WatchEvent<?> event : key.pollEvents()) {
+
+			if (directory == null) {
+				continue;
+			}
+
+			if (event.kind() == OVERFLOW) { // events were lost, treat all templates in directory as changed
+				changed.addAll(files(directory));
+				continue;
+			}
+
+			Path file = directory.resolve((Path) event.context()).toAbsolutePath().normalize();
+			if (event.kind() == ENTRY_CREATE && Files.isDirectory(file)) {
+				try {
+					register(file);
+					changed.addAll(files(file));
+				}
+				catch (IOException e) {
+					// directory removed in the meantime
+				}
+				continue;
+			}
+
+			changed.add(file);
+		}
+
+		if (!key.reset()) {
+			directories.remove(key);
+		}
+	}
+
+	private void register(Path root) throws IOException {
+
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+
+				WatchKey key = directory.register(service, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+				directories.put(key, directory.toAbsolutePath().normalize());
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	private static List<Path> files(Path directory) {
+
+		List<Path> files = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for (Path file : stream) {
+				files.add(file.toAbsolutePath().normalize());
+			}
+		}
+		catch (IOException e) {
+			// directory removed in the meantime
+		}
+
+		return files;
+	}
+}
@@ -1,20 +1,41 @@
 package com.zandero.template;
 
 import com.github.mustachejava.Mustache;
+import com.zandero.utils.Assert;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Wrapper around mustache utils to simplify template rendering
  */
 public final class Templates {
 
-	static final MustacheUtils mustache = new MustacheUtils();
+	static volatile MustacheUtils mustache = new MustacheUtils();
 
 	private Templates() {
 		// hide constructor
 	}
 
+	/**
+	 * Sets mustache factory used by all following renders, for instance to hand out a factory per thread
+	 * Templates are compiled again by given factory, into a template cache of their own
+	 *
+	 * @param factory provider of mustache factory
+	 */
+	public static void setFactoryProvider(MustacheFactoryProvider factory) {
+
+		Assert.notNull(factory, "Missing mustache factory provider!");
+		mustache = new MustacheUtils(factory);
+	}
+
 	/**
 	 * Directly renders given template
 	 *
@@ -42,6 +63,60 @@ public final class Templates {
 		return mustache.render(mustacheTemplate, data);
 	}
 
+	/**
+	 * Loads resource file and renders it into writer
+	 *
+	 * @param resource to be loaded
+	 * @param data     objects
+	 * @param writer   to write output to, writer is neither flushed nor closed
+	 */
+	public static void render(String resource, Map<String, Object> data, Writer writer) {
+
+		Mustache mustacheTemplate = mustache.load(resource);
+		mustache.render(mustacheTemplate, data, writer);
+	}
+
+	/**
+	 * Loads resource file and renders it into output stream
+	 *
+	 * @param resource to be loaded
+	 * @param data     objects
+	 * @param output   to write output to, output is flushed once done but not closed
+	 * @param charset  to encode output with
+	 */
+	public static void render(String resource, Map<String, Object> data, OutputStream output, Charset charset) {
+
+		Mustache mustacheTemplate = mustache.load(resource);
+		mustache.render(mustacheTemplate, data, output, charset);
+	}
+
+	/**
+	 * Loads resource file and renders it into channel
+	 *
+	 * @param resource to be loaded
+	 * @param data     objects
+	 * @param channel  to write output to, channel is not closed
+	 * @param charset  to encode output with
+	 */
+	public static void render(String resource, Map<String, Object> data, WritableByteChannel channel, Charset charset) {
+
+		Mustache mustacheTemplate = mustache.load(resource);
+		mustache.render(mustacheTemplate, data, channel, charset);
+	}
+
+	/**
+	 * Loads resource file and renders it asynchronously
+	 *
+	 * @param resource to be loaded
+	 * @param data     objects
+	 * @return future completed with rendered output
+	 */
+	public static CompletableFuture<String> renderAsync(String resource, Map<String, Object> data) {
+
+		Mustache mustacheTemplate = mustache.load(resource);
+		return mustache.renderAsync(mustacheTemplate, data);
+	}
+
 	/**
 	 * Loads resource file and renders it
 	 *
@@ -55,6 +130,71 @@ public final class Templates {
 		return mustache.renderJson(mustacheTemplate, dataAsJson);
 	}
 
+	/**
+	 * Loads resource file and renders it
+	 *
+	 * @param resource   to be loaded
+	 * @param dataAsJson encoded json map
+	 * @return rendered output
+	 */
+	public static String renderJson(String resource, byte[] dataAsJson) {
+
+		Mustache mustacheTemplate = mustache.load(resource);
+		return mustache.renderJson(mustacheTemplate, dataAsJson);
+	}
+
+	/**
+	 * Loads resource file and renders it
+	 *
+	 * @param resource   to be loaded
+	 * @param dataAsJson stream of encoded json map, stream is not closed
+	 * @return rendered output
+	 */
+	public static String renderJson(String resource, InputStream dataAsJson) {
+
+		Mustache mustacheTemplate = mustache.load(resource);
+		return mustache.renderJson(mustacheTemplate, dataAsJson);
+	}
+
+	/**
+	 * Loads resource file and renders it
+	 *
+	 * @param resource   to be loaded
+	 * @param dataAsJson encoded json map between buffer position and limit, buffer position is left unchanged
+	 * @return rendered output
+	 */
+	public static String renderJson(String resource, ByteBuffer dataAsJson) {
+
+		Mustache mustacheTemplate = mustache.load(resource);
+		return mustache.renderJson(mustacheTemplate, dataAsJson);
+	}
+
+	/**
+	 * Loads resource file and renders it
+	 *
+	 * @param resource   to be loaded
+	 * @param dataAsJson reader of json map, reader is not closed
+	 * @return rendered output
+	 */
+	public static String renderJson(String resource, Reader dataAsJson) {
+
+		Mustache mustacheTemplate = mustache.load(resource);
+		return mustache.renderJson(mustacheTemplate, dataAsJson);
+	}
+
+	/**
+	 * Loads resource file and renders it into writer
+	 *
+	 * @param resource   to be loaded
+	 * @param dataAsJson json map
+	 * @param writer     to write output to, writer is neither flushed nor closed
+	 */
+	public static void renderJson(String resource, String dataAsJson, Writer writer) {
+
+		Mustache mustacheTemplate = mustache.load(resource);
+		mustache.renderJson(mustacheTemplate, dataAsJson, writer);
+	}
+
 	/**
 	 * Loads resource file and renders it
 	 *
@@ -68,6 +208,21 @@ public final class Templates {
 		return mustache.renderStrings(mustacheTemplate, data);
 	}
 
+	/**
+	 * Loads resource file and renders it for each data item in parallel
+	 *
+	 * @param resource to be loaded
+	 * @param data     items to render template with
+	 * @param sink     to receive rendered items in order of data
+	 * @param <T>      type of data
+	 * @return outcome of batch
+	 */
+	public static <T> BatchResult<T> renderAll(String resource, Iterable<T> data, BatchSink<? super T> sink) {
+
+		Mustache mustacheTemplate = mustache.load(resource);
+		return mustache.renderAll(mustacheTemplate, data, sink);
+	}
+
 	/**
 	 * Loads resource file and renders it
 	 *
@@ -81,6 +236,47 @@ public final class Templates {
 		return mustache.render(mustacheTemplate, data);
 	}
 
+	/**
+	 * Loads file and renders it into writer
+	 *
+	 * @param file   to be loaded
+	 * @param data   objects
+	 * @param writer to write output to, writer is neither flushed nor closed
+	 */
+	public static void renderFile(String file, Map<String, Object> data, Writer writer) {
+
+		Mustache mustacheTemplate = mustache.loadFile(file);
+		mustache.render(mustacheTemplate, data, writer);
+	}
+
+	/**
+	 * Loads file and renders it into output stream
+	 *
+	 * @param file    to be loaded
+	 * @param data    objects
+	 * @param output  to write output to, output is flushed once done but not closed
+	 * @param charset to encode output with
+	 */
+	public static void renderFile(String file, Map<String, Object> data, OutputStream output, Charset charset) {
+
+		Mustache mustacheTemplate = mustache.loadFile(file);
+		mustache.render(mustacheTemplate, data, output, charset);
+	}
+
+	/**
+	 * Loads file and renders it into channel
+	 *
+	 * @param file    to be loaded
+	 * @param data    objects
+	 * @param channel to write output to, channel is not closed
+	 * @param charset to encode output with
+	 */
+	public static void renderFile(String file, Map<String, Object> data, WritableByteChannel channel, Charset charset) {
+
+		Mustache mustacheTemplate = mustache.loadFile(file);
+		mustache.render(mustacheTemplate, data, channel, charset);
+	}
+
 	/**
 	 * Loads resource file and renders it
 	 *
@@ -94,6 +290,58 @@ public final class Templates {
 		return mustache.renderJson(mustacheTemplate, dataAsJson);
 	}
 
+	/**
+	 * Loads file and renders it
+	 *
+	 * @param file       to be loaded
+	 * @param dataAsJson encoded json map
+	 * @return rendered output
+	 */
+	public static String renderFileJson(String file, byte[] dataAsJson) {
+
+		Mustache mustacheTemplate = mustache.loadFile(file);
+		return mustache.renderJson(mustacheTemplate, dataAsJson);
+	}
+
+	/**
+	 * Loads file and renders it
+	 *
+	 * @param file       to be loaded
+	 * @param dataAsJson stream of encoded json map, stream is not closed
+	 * @return rendered output
+	 */
+	public static String renderFileJson(String file, InputStream dataAsJson) {
+
+		Mustache mustacheTemplate = mustache.loadFile(file);
+		return mustache.renderJson(mustacheTemplate, dataAsJson);
+	}
+
+	/**
+	 * Loads file and renders it
+	 *
+	 * @param file       to be loaded
+	 * @param dataAsJson encoded json map between buffer position and limit, buffer position is left unchanged
+	 * @return rendered output
+	 */
+	public static String renderFileJson(String file, ByteBuffer dataAsJson) {
+
+		Mustache mustacheTemplate = mustache.loadFile(file);
+		return mustache.renderJson(mustacheTemplate, dataAsJson);
+	}
+
+	/**
+	 * Loads file and renders it
+	 *
+	 * @param file       to be loaded
+	 * @param dataAsJson reader of json map, reader is not closed
+	 * @return rendered output
+	 */
+	public static String renderFileJson(String file, Reader dataAsJson) {
+
+		Mustache mustacheTemplate = mustache.loadFile(file);
+		return mustache.renderJson(mustacheTemplate, dataAsJson);
+	}
+
 	/**
 	 * Loads resource file and renders it
 	 *
@@ -0,0 +1,156 @@
+package com.zandero.template;
+
+import com.github.mustachejava.DefaultMustacheFactory;
+import com.github.mustachejava.Mustache;
+import com.github.mustachejava.MustacheException;
+import com.github.mustachejava.MustacheResolver;
+import com.github.mustachejava.MustacheVisitor;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Mustache factory recording which partials and parent templates are read while compiling a template
+ * with pluggable value escaping and optionally pre-encoding static template text
+ * Partials are compiled once into a cache shared with other factories of the same provider
+ * Static HTML text can optionally be minified once while compiling
+ */
+class TrackingMustacheFactory extends DefaultMustacheFactory {
+
+	private final TemplateDependencies dependencies;
+
+	private final PartialCache partials;
+
+	private final Charset staticEncoding;
+
+	private final ValueEscaper escaper;
+
+	private final boolean minifyHtml;
+
+	// minifiers of templates being compiled on current thread, innermost first
+	private final ThreadLocal<Deque<HtmlMinifier>> minifiers = ThreadLocal.withInitial(ArrayDeque::new);
+
+	TrackingMustacheFactory(TemplateDependencies dependencies, PartialCache partials, Charset staticEncoding, ValueEscaper escaper, boolean minifyHtml) {
+
+		this.dependencies = dependencies;
+		this.partials = partials;
+		this.staticEncoding = staticEncoding;
+		this.escaper = escaper;
+		this.minifyHtml = minifyHtml;
+	}
+
+	TrackingMustacheFactory(MustacheResolver resolver, TemplateDependencies dependencies, PartialCache partials, Charset staticEncoding, ValueEscaper escaper,
+	                        boolean minifyHtml) {
+
+		super(resolver);
+		this.dependencies = dependencies;
+		this.partials = partials;
+		this.staticEncoding = staticEncoding;
+		this.escaper = escaper;
+		this.minifyHtml = minifyHtml;
+	}
+
+	@Override
+	public MustacheVisitor createMustacheVisitor() {
+
+		if (staticEncoding == null && !minifyHtml) {
+			return new ValueMustacheVisitor(this);
+		}
+
+		return new EncodingMustacheVisitor(this, staticEncoding, minifyHtml ? minifier() : null);
+	}
+
+	/**
+	 * @return minifier of template being compiled, sections of a template share its minifier
+	 */
+	private HtmlMinifier minifier() {
+
+		HtmlMinifier minifier = minifiers.get().peek();
+		return minifier == null ? new HtmlMinifier() : minifier;
+	}
+
+	@Override
+	public Mustache compile(Reader reader, String name) {
+
+		dependencies.begin();
+		if (minifyHtml) {
+			minifiers.get().push(new HtmlMinifier());
+		}
+
+		boolean compiled = false;
+		try {
+			Mustache template = super.compile(reader, name);
+			compiled = true;
+			return template;
+		}
+		finally {
+			if (minifyHtml) {
+				minifiers.get().pop();
+			}
+
+			dependencies.end(name, compiled);
+		}
+	}
+
+	@Override
+	public Mustache compilePartial(String name) {
+
+		Mustache cached = partials.find(name);
+		if (cached != null) {
+			dependencies.included(name);
+			return cached;
+		}
+
+		if (!partials.begin(name)) { // recursive partial, resolved by mustache while compiled
+			return super.compilePartial(name);
+		}
+
+		dependencies.begin();
+		if (minifyHtml) {
+			minifiers.get().push(new HtmlMinifier());
+		}
+
+		boolean compiled = false;
+		try {
+			Mustache partial = super.compilePartial(name);
+			compiled = true;
+			return partials.put(name, partial);
+		}
+		finally {
+			if (minifyHtml) {
+				minifiers.get().pop();
+			}
+
+			dependencies.end(name, compiled);
+			partials.end(name);
+		}
+	}
+
+	@Override
+	public Reader getReader(String resourceName) {
+
+		Reader reader = super.getReader(resourceName);
+		dependencies.include(resourceName);
+		return reader;
+	}
+
+	@Override
+	public void encode(String value, Writer writer) {
+
+		if (escaper == null) {
+			super.encode(value, writer);
+			return;
+		}
+
+		try {
+			escaper.escape(value, writer);
+		}
+		catch (IOException e) {
+			throw new MustacheException("Failed to encode value: " + value, e);
+		}
+	}
+}
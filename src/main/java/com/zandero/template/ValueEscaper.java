@@ -0,0 +1,30 @@
+package com.zandero.template;
+
+import com.github.mustachejava.util.HtmlEscaper;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Escapes values of {{name}} tags, see {@link MustacheFactoryProvider#setEscaper(ValueEscaper)}
+ * Implementations must be thread safe
+ */
+public interface ValueEscaper {
+
+	/**
+	 * Default, HTML escaping with the same output as mustache, values with nothing to escape are written in bulk
+	 */
+	ValueEscaper HTML = new HtmlValueEscaper();
+
+	/**
+	 * HTML escaping of mustache itself
+	 */
+	ValueEscaper MUSTACHE = HtmlEscaper::escape;
+
+	/**
+	 * @param value  to be escaped
+	 * @param writer to write escaped value to
+	 * @throws IOException in case value could not be written
+	 */
+	void escape(String value, Writer writer) throws IOException;
+}
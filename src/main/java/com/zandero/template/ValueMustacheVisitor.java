@@ -0,0 +1,22 @@
+package com.zandero.template;
+
+import com.github.mustachejava.DefaultMustacheFactory;
+import com.github.mustachejava.DefaultMustacheVisitor;
+import com.github.mustachejava.TemplateContext;
+
+/**
+ * Creates {@link EscapingValueCode} for values, so layouts know which slots escape their content
+ */
+class ValueMustacheVisitor extends DefaultMustacheVisitor {
+
+	ValueMustacheVisitor(DefaultMustacheFactory factory) {
+
+		super(factory);
+	}
+
+	@Override
+	public void value(TemplateContext context, String variable, boolean encoded) {
+
+		list.add(new EscapingValueCode(context, df, variable, encoded));
+	}
+}
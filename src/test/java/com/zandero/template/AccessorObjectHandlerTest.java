@@ -0,0 +1,126 @@
+package com.zandero.template;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.mustachejava.Mustache;
+import com.github.mustachejava.MustacheException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Objects must render the same with generated accessors as with reflection
+ */
+public class AccessorObjectHandlerTest {
+
+	private static final String TEMPLATE = "{{title}} ({{kind}})\n" +
+	                                       "{{#items}}" +
+	                                       "{{name}}: {{price}} {{#active}}active{{/active}}{{^active}}inactive{{/active}} " +
+	                                       "{{owner.name}} {{#tags}}{{.}}{{/tags}} [{{note}}] {{title}}\n" +
+	                                       "{{/items}}" +
+	                                       "{{#extra}}{{info}} {{title}}{{/extra}}";
+
+	@Test
+	public void renderSameAsReflection() throws IOException {
+
+		Map<String, Object> extra = new HashMap<>();
+		extra.put("info", "map");
+
+		Root root = new Root();
+		root.extra = Collections.singletonList(extra);
+
+		String expected = render(new MustacheUtils(new MustacheFactoryProvider()), root);
+		assertTrue(expected.startsWith("Items (static)\nfirst: 10 active Jack ab [] Items\nsecond: 20 inactive   [note] Items\n"));
+
+		assertEquals(expected, render(utils(), root));
+
+		// JSON scopes are resolved as before
+		root.extra = Collections.singletonList(new ObjectMapper().readTree("{\"info\": \"json\"}"));
+		assertEquals(render(new MustacheUtils(new MustacheFactoryProvider()), root), render(utils(), root));
+	}
+
+	@Test
+	public void accessorFailureReported() {
+
+		MustacheUtils utils = utils();
+		Mustache template = utils.compile("{{broken}}", "broken");
+
+		MustacheException e = assertThrows(MustacheException.class, () -> utils.render(template, new Root()));
+		assertTrue(e.getMessage().contains("broken"));
+	}
+
+	private static MustacheUtils utils() {
+
+		MustacheFactoryProvider provider = new MustacheFactoryProvider();
+		provider.setObjectHandler(new AccessorObjectHandler());
+		return new MustacheUtils(provider);
+	}
+
+	private static String render(MustacheUtils utils, Root root) {
+
+		return utils.render(utils.compile(TEMPLATE, "pojo"), root);
+	}
+
+	static class Named {
+
+		private final String name;
+
+		Named(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+	}
+
+	static class Item extends Named {
+
+		final int price;
+
+		final Named owner;
+
+		final List<String> tags;
+
+		String note;
+
+		Item(String name, int price, Named owner, String... tags) {
+
+			super(name);
+			this.price = price;
+			this.owner = owner;
+			this.tags = Arrays.asList(tags);
+		}
+
+		boolean isActive() {
+			return price < 15;
+		}
+	}
+
+	static class Root {
+
+		String title = "Items";
+
+		List<Item> items = new ArrayList<>();
+
+		List<Object> extra;
+
+		Root() {
+
+			items.add(new Item("first", 10, new Named("Jack"), "a", "b"));
+			Item second = new Item("second", 20, null);
+			second.note = "note";
+			items.add(second);
+		}
+
+		static String kind() {
+			return "static";
+		}
+
+		public String getBroken() {
+			throw new IllegalStateException("broken");
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package com.zandero.template;
+
+import com.github.mustachejava.Mustache;
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncRendererTest {
+
+	MustacheUtils utils = new MustacheUtils();
+
+	@Test
+	public void renderAsync() throws Exception {
+
+		Mustache template = utils.load("/templates/hello.html");
+		assertEquals("Hello world!", utils.renderAsync(template, Collections.singletonMap("name", "world")).get(5, TimeUnit.SECONDS));
+
+		Map<String, Object> data = new HashMap<>();
+		data.put("name", "async");
+		assertEquals("Hello async!", Templates.renderAsync("/templates/hello.html", data).get(5, TimeUnit.SECONDS));
+
+		BaseTemplate base = new BaseTemplate("/templates/base.html");
+		assertEquals("==== Hello async! ====", base.renderAsync("marker", template, data).get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void cancelStopsRendering() throws Exception {
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		MustacheUtils cancellable = new MustacheUtils();
+		cancellable.setAsyncExecutor(executor);
+
+		CountDownLatch started = new CountDownLatch(1);
+		AtomicBoolean interrupted = new AtomicBoolean();
+		Iterable<Integer> endless = () -> new Iterator<Integer>() {
+			int count;
+
+			@Override
+			public boolean hasNext() {
+				started.countDown();
+				if (Thread.currentThread().isInterrupted()) {
+					interrupted.set(true);
+				}
+				return true;
+			}
+
+			@Override
+			public Integer next() {
+				return count++;
+			}
+		};
+
+		Mustache template = cancellable.compile("{{#items}}{{.}},{{/items}}", "endless");
+		CompletableFuture<String> future = cancellable.renderAsync(template, Collections.singletonMap("items", endless));
+
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		assertTrue(future.cancel(true));
+		assertTrue(future.isCancelled());
+
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS), "Rendering did not stop");
+		assertFalse(interrupted.get(), "Rendering thread interrupted");
+	}
+
+	@Test
+	public void externalInterruptKept() throws Exception {
+
+		// runs render on calling thread, interrupted by someone else
+		MustacheUtils interrupted = new MustacheUtils();
+		interrupted.setAsyncExecutor(command -> {
+			Thread.currentThread().interrupt();
+			command.run();
+		});
+
+		try {
+			Mustache template = interrupted.load("/templates/hello.html");
+			assertEquals("Hello world!", interrupted.renderAsync(template, Collections.singletonMap("name", "world")).getNow(null));
+			assertTrue(Thread.currentThread().isInterrupted());
+		}
+		finally {
+			Thread.interrupted();
+		}
+	}
+
+	@Test
+	public void timeout() {
+
+		Callable<String> slow = () -> {
+			Thread.sleep(10_000);
+			return "slow";
+		};
+
+		Mustache template = utils.load("/templates/hello.html");
+		CompletableFuture<String> future = utils.renderAsync(template, Collections.singletonMap("name", slow), Duration.ofMillis(100));
+
+		ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+		assertTrue(e.getCause() instanceof TimeoutException);
+	}
+
+	@Test
+	public void rejectedExecution() {
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		executor.shutdown();
+
+		MustacheUtils rejecting = new MustacheUtils();
+		rejecting.setAsyncExecutor(executor);
+
+		CompletableFuture<String> future = rejecting.renderAsync(rejecting.load("/templates/hello.html"), null);
+		assertTrue(future.isCompletedExceptionally());
+	}
+}
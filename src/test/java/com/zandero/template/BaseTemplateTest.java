@@ -1,9 +1,14 @@
 package com.zandero.template;
 
+import com.github.mustachejava.Mustache;
 import org.junit.jupiter.api.*;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -34,6 +39,45 @@ public class BaseTemplateTest {
 		assertEquals("==== Hello Genious! ====", output);
 	}
 
+	@Test
+	public void directLayoutSplitOnce() {
+
+		MustacheUtils mustache = new MustacheUtils();
+		Mustache base = mustache.load("/templates/base.html");
+
+		Layout layout = BaseTemplate.directLayout(base);
+		assertSame(base, layout.getTemplate());
+
+		// kept split does not hold template
+		Layout split = BaseTemplate.directLayouts.get(base);
+		assertNotNull(split);
+		assertNull(split.getTemplate());
+
+		assertSame(base, BaseTemplate.directLayout(base).getTemplate());
+		assertSame(split, BaseTemplate.directLayouts.get(base));
+
+		// same name, other template
+		Mustache other = mustache.compile("<p>{{{content}}}</p>", "/templates/base.html");
+		assertSame(other, BaseTemplate.directLayout(other).getTemplate());
+		assertNotSame(split, BaseTemplate.directLayouts.get(other));
+	}
+
+	@Test
+	public void dottedPlaceholderEscaped() {
+
+		MustacheUtils mustache = new MustacheUtils();
+
+		BaseTemplate base = new BaseTemplate(mustache);
+		base.add(mustache.compile("<div>{{page.content}}</div><p>{{{page.raw}}}</p>", "dotted"), "page.content");
+		base.add(mustache.compile("<span>{{{page.raw}}}</span>", "raw"), "page.raw");
+
+		Mustache inner = mustache.compile("<b>{{name}}</b>", "inner");
+		Map<String, Object> data = Collections.singletonMap("name", "x");
+
+		assertEquals("<div>&lt;b&gt;x&lt;/b&gt;</div><p></p>", base.render("page.content", inner, data));
+		assertEquals("<span><b>x</b></span>", base.render("page.raw", inner, data));
+	}
+
 	@Test
 	public void addTemplateTest() {
 
@@ -99,4 +143,272 @@ public class BaseTemplateTest {
 			assertEquals("No base template marker found in template!", e.getMessage());
 		}
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void renderToStream() {
+
+		BaseTemplate base = new BaseTemplate("/templates/base.html");
+		MustacheUtils mustache = new MustacheUtils();
+
+		Map<String, Object> data = new HashMap<>();
+		data.put("name", "Genious");
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		base.render("marker", mustache.load("/templates/hello.html"), data, out, StandardCharsets.UTF_8);
+		assertEquals("==== Hello Genious! ====", new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+		StringWriter writer = new StringWriter();
+		BaseTemplate.direct(mustache.load("/templates/base.html"), mustache.load("/templates/hello.html"), data, writer);
+		assertEquals("==== Hello Genious! ====", writer.toString());
+	}
+
+	@Test
+	public void singlePassMatchesTwoPassRendering() {
+
+		MustacheUtils mustache = new MustacheUtils();
+		Mustache hello = mustache.load("/templates/hello.html");
+
+		Map<String, Object> data = new HashMap<>();
+		data.put("name", "<Jack & Jill>");
+
+		// escaped placeholder: {{marker}}
+		Map<String, Object> baseData = new HashMap<>();
+		baseData.put("marker", mustache.render(hello, data));
+		String expected = mustache.render(mustache.load("/templates/base.html"), baseData);
+
+		BaseTemplate base = new BaseTemplate("/templates/base.html");
+		assertEquals(expected, base.render("marker", hello, data));
+
+		// unescaped placeholder: {{{content}}}
+		baseData = new HashMap<>();
+		baseData.put("content", mustache.render(hello, data));
+		expected = mustache.render(mustache.load("/templates/layout.html"), baseData);
+
+		base.add("/templates/layout.html");
+		assertEquals(expected, base.render("content", hello, data));
+		assertEquals("<html>Hello &lt;Jack &amp; Jill&gt;!</html>\n", base.render("content", hello, data));
+	}
+
+	@Test
+	public void headFlushedBeforeInnerTemplate() {
+
+		List<String> flushed = new ArrayList<>();
+		ByteArrayOutputStream out = new ByteArrayOutputStream() {
+			@Override
+			public void flush() {
+				flushed.add(new String(toByteArray(), StandardCharsets.UTF_8));
+			}
+		};
+
+		BaseTemplate base = new BaseTemplate("/templates/base.html");
+
+		Map<String, Object> data = new HashMap<>();
+		data.put("name", "Genious");
+
+		base.render("marker", new MustacheUtils().load("/templates/hello.html"), data, out, StandardCharsets.UTF_8);
+
+		assertEquals("==== ", flushed.get(0));
+		assertEquals("==== Hello Genious! ====", flushed.get(flushed.size() - 1));
+	}
+
+	@Test
+	public void replaceAllTest() {
+
+		BaseTemplate base = new BaseTemplate("/templates/base.html");
+		base.replaceAll("/templates/base2.html", "/templates/layout.html");
+
+		Map<String, Object> data = new HashMap<>();
+		data.put("name", "Genious");
+
+		assertEquals("**** Hello Genious! ****", base.render("marker", "/templates/hello.html", data));
+		assertEquals("<html>Hello Genious!</html>\n", base.render("content", "/templates/hello.html", data));
+
+		// duplicate placeholder ... previous templates remain
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+		                                          () -> base.replaceAll("/templates/base.html", "/templates/base2.html"));
+		assertEquals("Placeholder: 'marker', already present!", e.getMessage());
+
+		assertEquals("**** Hello Genious! ****", base.render("marker", "/templates/hello.html", data));
+		assertNotNull(base.find("content"));
+
+		base.replaceAll("/templates/base.html");
+		assertNull(base.find("content"));
+		assertEquals("==== Hello Genious! ====", base.render("marker", "/templates/hello.html", data));
+	}
+
+	@Test
+	public void concurrentReadersAndWriters() throws Exception {
+
+		MustacheUtils mustache = new MustacheUtils();
+		Mustache hello = mustache.load("/templates/hello.html");
+		Mustache first = mustache.load("/templates/base.html");
+		Mustache second = mustache.load("/templates/base2.html");
+		Mustache layout = mustache.load("/templates/layout.html");
+
+		BaseTemplate base = new BaseTemplate();
+		base.put(first);
+		base.put(layout);
+
+		Map<String, Object> data = new HashMap<>();
+		data.put("name", "Genious");
+
+		Set<String> valid = new HashSet<>(Arrays.asList("==== Hello Genious! ====", "**** Hello Genious! ****"));
+
+		int readers = 8;
+		int writers = 2;
+		AtomicBoolean running = new AtomicBoolean(true);
+		ExecutorService executor = Executors.newFixedThreadPool(readers + writers);
+
+		try {
+			List<Future<Integer>> results = new ArrayList<>();
+			for (int i = 0; i < readers; i++) {
+				results.add(executor.submit(() -> {
+					int renders = 0;
+					while (running.get()) {
+						String output = base.render("marker", hello, data);
+						assertTrue(valid.contains(output), output);
+						assertNotNull(base.get("content"));
+						renders++;
+					}
+					return renders;
+				}));
+			}
+
+			for (int i = 0; i < writers; i++) {
+				int writer = i;
+				results.add(executor.submit(() -> {
+					int changes = 0;
+					while (running.get()) {
+						if (writer == 0) {
+							base.put(changes % 2 == 0 ? second : first);
+						}
+						else {
+							base.replaceAll(Arrays.asList(changes % 2 == 0 ? first : second, layout));
+						}
+						changes++;
+					}
+					return changes;
+				}));
+			}
+
+			Thread.sleep(500);
+			running.set(false);
+
+			for (Future<Integer> result : results) {
+				assertTrue(result.get() > 0);
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+
+		assertTrue(valid.contains(base.render("marker", hello, data)));
+		assertNotNull(base.find("content"));
+	}
+
+	private static BaseTemplate layouts(MustacheUtils mustache) {
+
+		BaseTemplate base = new BaseTemplate(mustache);
+		base.add(mustache.compile("<html><head><title>{{title}}</title>{{{head}}}</head><body>{{{page}}}</body>{{{scripts}}}</html>", "page.html"), "page");
+		base.add(mustache.compile("<main>{{{section}}}</main>{{#sidebar}}<aside>{{{sidebar}}}</aside>{{/sidebar}}", "section.html"));
+		base.add(mustache.compile("<article>{{{article}}}</article>", "article.html"));
+		return base;
+	}
+
+	@Test
+	public void renderLayoutChainWithSlots() {
+
+		MustacheUtils mustache = new MustacheUtils();
+		BaseTemplate base = layouts(mustache);
+
+		Map<String, Mustache> slots = new HashMap<>();
+		slots.put("head", mustache.compile("<meta name=\"{{name}}\">", "head.html"));
+		slots.put("scripts", mustache.compile("<script>{{name}}</script>", "scripts.html"));
+		slots.put("sidebar", mustache.compile("<b>{{name}}</b>", "sidebar.html")); // inside a section
+
+		Map<String, Object> data = new HashMap<>();
+		data.put("name", "Jack");
+		data.put("title", "Home");
+
+		Mustache hello = mustache.compile("Hello {{name}}!", "hello.html");
+		String expected = "<html><head><title>Home</title><meta name=\"Jack\"></head>" +
+		                  "<body><main><article>Hello Jack!</article></main><aside><b>Jack</b></aside></body>" +
+		                  "<script>Jack</script></html>";
+
+		List<String> chain = Arrays.asList("page", "section", "article");
+		assertEquals(expected, base.render(chain, hello, slots, data));
+
+		StringWriter writer = new StringWriter();
+		base.render(chain, hello, slots, data, writer);
+		assertEquals(expected, writer.toString());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		base.render(chain, hello, slots, data, out, StandardCharsets.UTF_8);
+		assertEquals(expected, new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+		// unused slots are left empty, escaped slot is escaped
+		slots.clear();
+		slots.put("title", mustache.compile("<i>{{name}}</i>", "title.html"));
+		assertEquals("<html><head><title>&lt;i&gt;Jack&lt;/i&gt;</title></head><body><main>Hello Jack!</main></body></html>",
+		             base.render(Arrays.asList("page", "section"), hello, slots, data));
+
+		// single layout without slots renders as base template
+		assertEquals("<article>Hello Jack!</article>", base.render(Collections.singletonList("article"), hello, null, data));
+	}
+
+	@Test
+	public void renderParallelSlots() {
+
+		MustacheUtils mustache = new MustacheUtils();
+		BaseTemplate base = layouts(mustache);
+		base.setParallelSlots(true);
+
+		Object thread = new Object() {
+			@Override
+			public String toString() {
+				return Thread.currentThread().getName();
+			}
+		};
+
+		Map<String, Mustache> slots = new HashMap<>();
+		slots.put("head", mustache.compile("{{thread}}", "head.html"));
+		slots.put("scripts", mustache.compile("<script>{{name}}</script>", "scripts.html"));
+
+		Map<String, Object> data = new HashMap<>();
+		data.put("name", "Jack");
+		data.put("thread", thread);
+
+		Mustache hello = mustache.compile("Hello {{name}}!", "hello.html");
+		String output = base.render(Arrays.asList("page", "article"), hello, slots, data);
+
+		assertFalse(output.contains(Thread.currentThread().getName()), output);
+		assertTrue(output.endsWith("</head><body><article>Hello Jack!</article></body><script>Jack</script></html>"), output);
+
+		// failing slot fails render
+		data.put("thread", new Object() {
+			@Override
+			public String toString() {
+				throw new IllegalStateException("Slot failed");
+			}
+		});
+
+		assertThrows(RuntimeException.class, () -> base.render(Arrays.asList("page", "article"), hello, slots, data));
+	}
+
+	@Test
+	public void renderLayoutChainFails() {
+
+		MustacheUtils mustache = new MustacheUtils();
+		BaseTemplate base = layouts(mustache);
+		Mustache hello = mustache.compile("Hello {{name}}!", "hello.html");
+
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> base.render(Collections.emptyList(), hello, null, null));
+		assertEquals("Missing layouts!", e.getMessage());
+
+		e = assertThrows(IllegalArgumentException.class, () -> base.render(Arrays.asList("page", "footer"), hello, null, null));
+		assertEquals("Missing base template: 'footer'!", e.getMessage());
+
+		e = assertThrows(IllegalArgumentException.class, () -> base.add(mustache.compile("<p>{{#list}}{{/list}}</p>", "list.html"), "list"));
+		assertEquals("Placeholder: 'list', not found in template!", e.getMessage());
+	}
+}
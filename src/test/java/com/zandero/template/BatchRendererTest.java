@@ -0,0 +1,170 @@
+package com.zandero.template;
+
+import com.github.mustachejava.Mustache;
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchRendererTest {
+
+	MustacheUtils utils = new MustacheUtils();
+
+	Mustache template = utils.load("/templates/hello.html");
+
+	@Test
+	public void renderOrdered() {
+
+		List<Map<String, Object>> data = recipients(1000);
+		List<String> output = new ArrayList<>();
+
+		BatchResult<Map<String, Object>> result = utils.renderAll(template, data, (index, item, rendered) -> {
+			assertEquals(output.size(), index);
+			output.add(rendered);
+		});
+
+		assertTrue(result.isSuccess());
+		assertEquals(1000, result.getRendered());
+		for (int i = 0; i < output.size(); i++) {
+			assertEquals("Hello user" + i + "!", output.get(i));
+		}
+	}
+
+	@Test
+	public void renderUnordered() {
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			Set<String> output = new HashSet<>();
+			BatchResult<Map<String, Object>> result = utils.renderAll(template, recipients(1000), (index, item, rendered) -> output.add(rendered),
+			                                                          false, executor, 4);
+
+			assertTrue(result.isSuccess());
+			assertEquals(1000, output.size());
+			assertTrue(output.contains("Hello user999!"));
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void renderStream() {
+
+		List<String> output = new ArrayList<>();
+		BatchResult<Map<String, Object>> result = utils.renderAll(template, recipients(10).stream(), (index, item, rendered) -> output.add(rendered));
+
+		assertEquals(10, result.getRendered());
+		assertEquals("Hello user9!", output.get(9));
+	}
+
+	@Test
+	public void failuresDoNotAbortBatch() {
+
+		List<Object> data = new ArrayList<>(recipients(10));
+		data.set(3, new Broken());
+
+		AtomicInteger accepted = new AtomicInteger();
+		BatchResult<Object> result = utils.renderAll(template, data, (index, item, rendered) -> {
+			if (index == 5) {
+				throw new IllegalStateException("Sink rejected item");
+			}
+			accepted.incrementAndGet();
+		});
+
+		assertFalse(result.isSuccess());
+		assertEquals(8, result.getRendered());
+		assertEquals(8, accepted.get());
+		assertEquals(2, result.getFailures().size());
+
+		assertEquals(3, result.getFailures().get(0).getIndex());
+		assertTrue(result.getFailures().get(0).getData() instanceof Broken);
+
+		assertEquals(5, result.getFailures().get(1).getIndex());
+		assertEquals("Sink rejected item", result.getFailures().get(1).getCause().getMessage());
+	}
+
+	@Test
+	public void errorsRecordedPerItem() {
+
+		List<Object> data = new ArrayList<>(recipients(10));
+		data.set(4, Collections.singletonMap("name", (Supplier<String>) () -> {
+			throw new StackOverflowError();
+		}));
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			for (boolean ordered : new boolean[]{true, false}) {
+
+				Set<Long> accepted = ConcurrentHashMap.newKeySet();
+				BatchResult<Object> result = utils.renderAll(template, data, (index, item, rendered) -> accepted.add(index), ordered, executor, 2);
+
+				assertEquals(9, result.getRendered());
+				assertEquals(9, accepted.size());
+				assertEquals(1, result.getFailures().size());
+				assertEquals(4, result.getFailures().get(0).getIndex());
+				assertTrue(result.getFailures().get(0).getCause() instanceof StackOverflowError);
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void itemsInFlightCompletedWhenDataFails() {
+
+		Iterator<Map<String, Object>> data = new Iterator<Map<String, Object>>() {
+
+			final Iterator<Map<String, Object>> items = recipients(5).iterator();
+
+			@Override
+			public boolean hasNext() {
+				return true;
+			}
+
+			@Override
+			public Map<String, Object> next() {
+				if (!items.hasNext()) {
+					throw new IllegalStateException("Data source failed");
+				}
+
+				return items.next();
+			}
+		};
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<String> output = Collections.synchronizedList(new ArrayList<>());
+			BatchRenderer<Map<String, Object>> renderer = new BatchRenderer<>(utils, template, (index, item, rendered) -> output.add(rendered), executor, 4);
+
+			assertThrows(IllegalStateException.class, () -> renderer.unordered(data));
+			assertEquals(5, output.size()); // nothing is written into sink once batch returned
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	private static List<Map<String, Object>> recipients(int count) {
+
+		return IntStream.range(0, count)
+		                .mapToObj(index -> Collections.<String, Object>singletonMap("name", "user" + index))
+		                .collect(Collectors.toList());
+	}
+
+	public static class Broken {
+
+		public String getName() {
+			throw new IllegalStateException("Broken data");
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package com.zandero.template;
+
+import com.github.mustachejava.Mustache;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HtmlMinifierTest {
+
+	private static final String TEMPLATE = "<html>\n" +
+	                                       "    <body   class=\"a  b\">\n" +
+	                                       "        <h1>  {{title}}  </h1>\n" +
+	                                       "        <pre>\n  keep   {{title}}\n    as is</pre>\n" +
+	                                       "        <ul>\n" +
+	                                       "        {{#items}}\n" +
+	                                       "            <li>{{name}}</li>\n" +
+	                                       "        {{/items}}\n" +
+	                                       "        </ul>\n" +
+	                                       "        <!--   comment   -->\n" +
+	                                       "        <script>\n    var a  =  1;\n</script>\n" +
+	                                       "    </body>\n" +
+	                                       "</html>";
+
+	@Test
+	public void collapseWhitespace() {
+
+		HtmlMinifier minifier = new HtmlMinifier();
+		assertEquals("<p>\n<b>a b</b>\n</p> ", minifier.minify("<p>\n    <b>a   \t b</b>\n  \n</p>   "));
+	}
+
+	@Test
+	public void keepRawElements() {
+
+		HtmlMinifier minifier = new HtmlMinifier();
+		assertEquals("<pre>  a\n   b </pre> <textarea> x  y </textarea> <style> p  { } </style>",
+		             minifier.minify("<pre>  a\n   b </pre>   <textarea> x  y </textarea>  <style> p  { } </style>"));
+
+		// element with a longer name is not closing raw element
+		minifier = new HtmlMinifier();
+		assertEquals("<pre> <preview>  a </preview>  </pre> b", minifier.minify("<pre> <preview>  a </preview>  </pre>   b"));
+	}
+
+	@Test
+	public void keepCommentsAndAttributes() {
+
+		HtmlMinifier minifier = new HtmlMinifier();
+		assertEquals("<!--  a  --> <a title=\"x   y\" href='  z '>", minifier.minify("<!--  a  -->   <a   title=\"x   y\"  href='  z '>"));
+	}
+
+	@Test
+	public void stateKeptAcrossSegments() {
+
+		// segments are static text around values, <pre> spans a value
+		HtmlMinifier minifier = new HtmlMinifier();
+		assertEquals("<div>\n<pre>  a  ", minifier.minify("<div>\n   <pre>  a  "));
+		assertEquals("  b  </pre> ", minifier.minify("  b  </pre>   "));
+		assertEquals(" c", minifier.minify("   c"));
+	}
+
+	@Test
+	public void renderMinified() {
+
+		Map<String, Object> data = data();
+
+		MustacheUtils plain = new MustacheUtils(new MustacheFactoryProvider());
+		String expected = plain.render(plain.compile(TEMPLATE, "plain"), data);
+
+		MustacheUtils utils = utils();
+		String minified = utils.render(utils.compile(TEMPLATE, "minified"), data);
+
+		assertTrue(minified.length() < expected.length());
+		assertEquals(expected.replaceAll("\\s+", ""), minified.replaceAll("\\s+", ""));
+
+		assertTrue(minified.contains("<body class=\"a  b\">"));
+		assertTrue(minified.contains("<h1> A  &amp;  B </h1>")); // values are never minified
+		assertTrue(minified.contains("<pre>\n  keep   A  &amp;  B\n    as is</pre>"));
+		assertTrue(minified.contains("<li>x  1</li>"));
+		assertTrue(minified.contains("<li>x  2</li>"));
+		assertTrue(minified.contains("<!--   comment   -->"));
+		assertTrue(minified.contains("<script>\n    var a  =  1;\n</script>"));
+	}
+
+	@Test
+	public void renderMinifiedAndEncoded() {
+
+		MustacheFactoryProvider provider = new MustacheFactoryProvider();
+		provider.setMinifyHtml(true);
+		provider.setStaticEncoding(StandardCharsets.UTF_8);
+		MustacheUtils utils = new MustacheUtils(provider);
+
+		Mustache template = utils.compile(TEMPLATE, "encoded");
+		String expected = utils().render(utils().compile(TEMPLATE, "minified"), data());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		utils.render(template, data(), out, StandardCharsets.UTF_8);
+
+		assertEquals(expected, new String(out.toByteArray(), StandardCharsets.UTF_8));
+		assertEquals(expected, utils.render(template, data()));
+	}
+
+	@Test
+	public void loadMinified() {
+
+		MustacheFactoryProvider provider = new MustacheFactoryProvider();
+		assertFalse(provider.isMinifyHtml());
+		provider.setMinifyHtml(true);
+		assertTrue(provider.isMinifyHtml());
+
+		MustacheUtils utils = new MustacheUtils(provider);
+		String minified = utils.render(utils.load("/templates/minify.html"), Collections.singletonMap("name", "a  b"));
+		assertEquals("<div>\n<p>\na  b\n</p>\n<pre>\n  keep  </pre>\n", minified);
+	}
+
+	private static MustacheUtils utils() {
+
+		MustacheFactoryProvider provider = new MustacheFactoryProvider();
+		provider.setMinifyHtml(true);
+		return new MustacheUtils(provider);
+	}
+
+	private static Map<String, Object> data() {
+
+		List<Map<String, Object>> items = new ArrayList<>();
+		items.add(Collections.singletonMap("name", "x  1"));
+		items.add(Collections.singletonMap("name", "x  2"));
+
+		Map<String, Object> data = new HashMap<>();
+		data.put("title", " A  &  B ");
+		data.put("items", items);
+		return data;
+	}
+}
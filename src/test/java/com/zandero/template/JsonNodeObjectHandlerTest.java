@@ -0,0 +1,87 @@
+package com.zandero.template;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.mustachejava.Mustache;
+import com.github.mustachejava.reflect.ReflectionObjectHandler;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonNodeObjectHandlerTest {
+
+	private static final ObjectMapper mapper = new ObjectMapper();
+
+	MustacheUtils utils = new MustacheUtils();
+
+	@Test
+	public void valuesKeepTheirType() throws IOException {
+
+		JsonNode data = mapper.readTree("{\"name\": \"Jack\", \"years\": 13, \"height\": 1.85, \"active\": true, \"none\": null}");
+
+		Mustache template = utils.compile("{{name}} {{years}} {{height}} {{active}} [{{none}}]", "values");
+		assertEquals("Jack 13 1.85 true []", utils.render(template, data));
+
+		assertEquals(13, JsonNodeObjectHandler.value(data.get("years")));
+		assertEquals(Boolean.TRUE, JsonNodeObjectHandler.value(data.get("active")));
+		assertNull(JsonNodeObjectHandler.value(data.get("none")));
+		assertNull(JsonNodeObjectHandler.value(data.get("missing")));
+	}
+
+	@Test
+	public void sections() throws IOException {
+
+		JsonNode data = mapper.readTree("{\"active\": true, \"deleted\": false, \"user\": {\"name\": \"Jack\"}, \"empty\": []}");
+
+		Mustache template = utils.compile("{{#active}}A{{/active}}{{#deleted}}D{{/deleted}}{{^deleted}}!D{{/deleted}}" +
+		                                  "{{#user}}<{{name}}>{{/user}}{{^user}}no user{{/user}}" +
+		                                  "{{#empty}}E{{/empty}}{{^empty}}!E{{/empty}}", "sections");
+
+		assertEquals("A!D<Jack>!E", utils.render(template, data));
+	}
+
+	@Test
+	public void iterateArrays() throws IOException {
+
+		JsonNode data = mapper.readTree("{\"title\": \"List\", \"items\": [{\"name\": \"one\"}, {\"name\": \"two\", \"title\": \"Own\"}], \"tags\": [\"a\", \"b\"]}");
+
+		Mustache template = utils.compile("{{#items}}{{name}}:{{title}};{{/items}}{{#tags}}[{{.}}]{{/tags}}", "iterate");
+		assertEquals("one:List;two:Own;[a][b]", utils.render(template, data));
+	}
+
+	@Test
+	public void dottedNames() throws IOException {
+
+		JsonNode data = mapper.readTree("{\"user\": {\"address\": {\"city\": \"Ljubljana\"}}}");
+
+		Mustache template = utils.compile("{{user.address.city}}{{user.address.street}}", "dotted");
+		assertEquals("Ljubljana", utils.render(template, data));
+	}
+
+	@Test
+	public void jsonInsideMap() throws IOException {
+
+		Map<String, Object> data = new HashMap<>();
+		data.put("greeting", "Hello");
+		data.put("user", mapper.readTree("{\"name\": \"Jack\", \"size\": 2}"));
+
+		Mustache template = utils.compile("{{greeting}} {{user.name}}{{#user}} {{name}} {{size}} {{greeting}}{{/user}}", "mixed");
+		assertEquals("Hello Jack Jack 2 Hello", utils.render(template, data));
+	}
+
+	@Test
+	public void customObjectHandlerConvertsJson() throws IOException {
+
+		MustacheFactoryProvider factory = new MustacheFactoryProvider();
+		factory.setObjectHandler(new ReflectionObjectHandler());
+		MustacheUtils reflection = new MustacheUtils(factory);
+
+		JsonNode data = mapper.readTree("{\"name\": \"Jack\", \"years\": 13}");
+		Mustache template = reflection.load("/templates/template.html");
+		assertEquals("Hello my name is Jack!\nI'm 13 years old.", reflection.render(template, data));
+	}
+}
@@ -0,0 +1,158 @@
+package com.zandero.template;
+
+import com.github.mustachejava.Mustache;
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LazyValueTest {
+
+	MustacheUtils utils = new MustacheUtils();
+
+	@Test
+	public void computedOnlyWhenReferenced() {
+
+		Mustache template = utils.compile("{{#show}}{{orders}} and {{orders}}{{/show}}", "lazy");
+
+		AtomicInteger calls = new AtomicInteger();
+		Supplier<String> orders = () -> "orders" + calls.incrementAndGet();
+
+		Map<String, Object> data = new HashMap<>();
+		data.put("show", false);
+		data.put("orders", orders);
+
+		assertEquals("", utils.render(template, data));
+		assertEquals(0, calls.get());
+
+		// computed once per render
+		data.put("show", true);
+		assertEquals("orders1 and orders1", utils.render(template, data));
+		assertEquals("orders2 and orders2", utils.render(template, data));
+		assertSame(orders, data.get("orders"));
+	}
+
+	@Test
+	public void nestedSuppliersComputedOncePerRender() {
+
+		Mustache template = utils.compile("{{user.orders}} {{#user}}{{orders}}{{/user}} {{page.title}} {{page.title}}", "nested");
+
+		AtomicInteger calls = new AtomicInteger();
+		Map<String, Object> user = new TreeMap<>();
+		user.put("orders", (Supplier<String>) () -> "orders" + calls.incrementAndGet());
+
+		Map<String, Object> data = new LinkedHashMap<>();
+		data.put("user", user);
+		data.put("page", new Page());
+
+		assertEquals("orders1 orders1 Lazy title Lazy title", utils.render(template, data));
+		assertEquals("orders2 orders2 Lazy title Lazy title", utils.render(template, data));
+
+		// data is used as given
+		assertTrue(user.get("orders") instanceof Supplier);
+		assertFalse(user.get("orders") instanceof LazyValue);
+	}
+
+	@Test
+	public void layoutChainSharesSuppliers() {
+
+		AtomicInteger calls = new AtomicInteger();
+
+		Map<String, Object> data = new HashMap<>();
+		data.put("user", (Supplier<String>) () -> "Jack" + calls.incrementAndGet());
+
+		BaseTemplate base = new BaseTemplate(utils);
+		base.add(utils.compile("<b>{{user}}</b>{{{content}}}", "layoutChainSharesSuppliers"), "content");
+
+		Mustache template = utils.compile(" {{user}}", "inner");
+		assertEquals("<b>Jack1</b> Jack1", base.render(Collections.singletonList("content"), template, Collections.emptyMap(), data));
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	public void resolveThroughLazyValue() {
+
+		Map<String, Object> user = new HashMap<>();
+		user.put("name", "Jack");
+
+		Map<String, Object> data = new HashMap<>();
+		data.put("user", LazyValue.of(() -> user));
+
+		assertEquals("Jack Jack", utils.render(utils.compile("{{user.name}} {{#user}}{{name}}{{/user}}", "dotted"), data));
+
+		LazyValue<String> value = LazyValue.of(() -> "value");
+		assertFalse(value.isRequested());
+		assertSame(value, LazyValue.of(value));
+		assertEquals("value", value.get());
+		assertTrue(value.isRequested());
+	}
+
+	@Test
+	public void resolveThroughAccessors() {
+
+		MustacheFactoryProvider provider = new MustacheFactoryProvider();
+		provider.setObjectHandler(new AccessorObjectHandler());
+		MustacheUtils accessors = new MustacheUtils(provider);
+
+		assertEquals("Lazy title", accessors.render(accessors.compile("{{title}}", "accessors"), new Page()));
+		assertEquals("a,b,", accessors.render(accessors.compile("{{#items}}{{.}},{{/items}}", "section"), new Page()));
+		assertEquals("10", accessors.render(accessors.compile("{{title.length}}", "dotted"), new Page()));
+	}
+
+	@Test
+	public void failureIsPropagated() {
+
+		Map<String, Object> data = new HashMap<>();
+		data.put("orders", (Supplier<String>) () -> {
+			throw new IllegalStateException("Database down");
+		});
+
+		Mustache template = utils.compile("{{orders}}", "failing");
+		assertThrows(RuntimeException.class, () -> utils.render(template, data));
+	}
+
+	@Test
+	public void prefetchRequiredValues() {
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			MustacheUtils prefetching = new MustacheUtils();
+			prefetching.setPrefetch(true);
+			prefetching.setAsyncExecutor(executor);
+
+			AtomicReference<Thread> computedOn = new AtomicReference<>();
+			AtomicInteger hidden = new AtomicInteger();
+
+			Map<String, Object> data = new HashMap<>();
+			data.put("title", (Supplier<String>) () -> {
+				computedOn.set(Thread.currentThread());
+				return "Title";
+			});
+			data.put("hidden", (Supplier<String>) () -> "hidden" + hidden.incrementAndGet());
+			data.put("show", false);
+
+			Mustache template = prefetching.compile("{{title}}{{#show}}{{hidden}}{{/show}}", "prefetch");
+			assertEquals("Title", prefetching.render(template, data));
+
+			assertNotNull(computedOn.get());
+			assertNotSame(Thread.currentThread(), computedOn.get());
+			assertEquals(0, hidden.get());
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	public static class Page {
+
+		public final Supplier<String> title = () -> "Lazy title";
+
+		public final Supplier<List<String>> items = () -> Arrays.asList("a", "b");
+	}
+}
@@ -0,0 +1,157 @@
+package com.zandero.template;
+
+import com.github.mustachejava.DefaultMustacheFactory;
+import com.github.mustachejava.MustacheResolver;
+import org.junit.jupiter.api.*;
+
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares shared and per thread factory mode:
+ * with N threads the per thread mode holds N factories and compiles each template N times,
+ * while shared mode holds a single factory and compiles each template once
+ */
+public class MustacheFactoryProviderTest {
+
+	private static final int THREADS = 16;
+
+	@Test
+	public void sharedModeSingleFactory() throws Exception {
+
+		MustacheFactoryProvider provider = new MustacheFactoryProvider();
+		Set<DefaultMustacheFactory> factories = collect(provider);
+
+		assertEquals(1, factories.size());
+		assertEquals(1, provider.getFactoryCount());
+	}
+
+	@Test
+	public void perThreadModeFactoryForEachThread() throws Exception {
+
+		MustacheFactoryProvider provider = new MustacheFactoryProvider(MustacheFactoryProvider.Mode.PER_THREAD);
+		Set<DefaultMustacheFactory> factories = collect(provider);
+
+		assertEquals(THREADS, factories.size());
+		assertEquals(THREADS, provider.getFactoryCount());
+	}
+
+	@Test
+	public void sharedModeCompilesOnce() throws Exception {
+
+		assertEquals(1, compileOnAllThreads(MustacheFactoryProvider.Mode.SHARED));
+		assertEquals(THREADS, compileOnAllThreads(MustacheFactoryProvider.Mode.PER_THREAD));
+	}
+
+	@Test
+	public void partialsCompiledOnceAcrossFactories() throws Exception {
+
+		AtomicInteger reads = new AtomicInteger();
+		MustacheResolver resolver = name -> {
+			reads.incrementAndGet();
+			return new InputStreamReader(getClass().getResourceAsStream("/" + name), StandardCharsets.UTF_8);
+		};
+
+		MustacheFactoryProvider provider = new MustacheFactoryProvider(MustacheFactoryProvider.Mode.PER_THREAD);
+		provider.setResolver(resolver);
+
+		provider.get().compile(new StringReader("{{> templates/hello.html}}"), "first");
+		runOnAllThreads(() -> provider.get().compile(new StringReader("<b>{{> templates/hello.html}}</b>"), "page"));
+
+		assertEquals(1, reads.get());
+		assertEquals(THREADS + 1, provider.getFactoryCount());
+		assertEquals(Collections.singleton("templates/hello.html"), provider.getPartials().getNames());
+		assertEquals(Collections.singleton("templates/hello.html"), provider.getDependencies().getIncludes("page"));
+	}
+
+	@Test
+	public void settingsLockedOnceInUse() {
+
+		MustacheFactoryProvider provider = new MustacheFactoryProvider();
+		provider.setResolver(null);
+		provider.get();
+
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> provider.setExecutor(Executors.newSingleThreadExecutor()));
+		assertEquals("Mustache factory already in use, settings can no longer be changed!", e.getMessage());
+	}
+
+	@Test
+	public void renderWithSharedFactory() throws Exception {
+
+		MustacheUtils utils = new MustacheUtils(new MustacheFactoryProvider());
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<String>> results = new ArrayList<>();
+			for (int i = 0; i < THREADS * 4; i++) {
+				String name = "user" + i;
+				results.add(executor.submit(() -> utils.renderStrings(utils.load("/templates/hello.html"), "name", name)));
+			}
+
+			for (int i = 0; i < results.size(); i++) {
+				assertEquals("Hello user" + i + "!", results.get(i).get());
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+
+		assertEquals(1, utils.getCache().stats().getLoadCount());
+	}
+
+	/**
+	 * Compiles the same named template from all threads
+	 *
+	 * @return number of times template source was read
+	 */
+	private int compileOnAllThreads(MustacheFactoryProvider.Mode mode) throws Exception {
+
+		AtomicInteger reads = new AtomicInteger();
+		MustacheResolver resolver = name -> {
+			reads.incrementAndGet();
+			return new InputStreamReader(getClass().getResourceAsStream("/" + name), StandardCharsets.UTF_8);
+		};
+
+		MustacheFactoryProvider provider = new MustacheFactoryProvider(mode);
+		provider.setResolver(resolver);
+
+		runOnAllThreads(() -> provider.get().compile("templates/hello.html"));
+		return reads.get();
+	}
+
+	private Set<DefaultMustacheFactory> collect(MustacheFactoryProvider provider) throws Exception {
+
+		Set<DefaultMustacheFactory> factories = ConcurrentHashMap.newKeySet();
+		runOnAllThreads(() -> factories.add(provider.get()));
+		return factories;
+	}
+
+	private void runOnAllThreads(Runnable task) throws Exception {
+
+		CyclicBarrier barrier = new CyclicBarrier(THREADS);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < THREADS; i++) {
+				futures.add(executor.submit(() -> {
+					barrier.await();
+					task.run();
+					return null;
+				}));
+			}
+
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -3,12 +3,27 @@ package com.zandero.template;
 import com.github.mustachejava.Mustache;
 import com.zandero.utils.ResourceUtils;
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class MustacheUtilsTest {
 
@@ -42,6 +57,79 @@ public class MustacheUtilsTest {
 		assertEquals("Hello world!", result);
 	}
 
+	@Test
+	public void renderStringsPairs() {
+
+		Mustache template = utils.compile("{{a}}-{{b}}-{{#c}}[{{c}}]{{/c}}{{^d}}no d{{/d}}", "pairs");
+
+		assertEquals("1-2-[3]no d", utils.renderStrings(template, "a", "1", "b", "2", "c", "3"));
+		assertEquals("new-2-no d", utils.renderStrings(template, "a", "old", "b", "2", "a", "new")); // latest pair wins
+		assertEquals("1--no d", utils.renderStrings(template, "a", "1", "b")); // name without value ignored
+		assertEquals("---no d", utils.renderStrings(template));
+	}
+
+	@Test
+	public void renderStringsWithinRenderStrings() {
+
+		Mustache template = utils.compile("<{{name}}>", "nested");
+
+		StringWriter out = new StringWriter() {
+			@Override
+			public void write(String value) {
+				// renders while outer render is in progress on same thread
+				super.write(value.equals("outer") ? utils.renderStrings(template, "name", "inner") + value : value);
+			}
+
+			@Override
+			public void write(char[] buffer, int offset, int length) {
+				write(new String(buffer, offset, length));
+			}
+		};
+
+		utils.renderStrings(template, out, "name", "outer");
+		assertEquals("<<inner>outer>", out.toString());
+
+		StringBuilder large = new StringBuilder();
+		while (large.length() <= StringsScope.MAX_RETAINED_OUTPUT) {
+			large.append("0123456789");
+		}
+
+		assertEquals("<" + large + ">", utils.renderStrings(template, "name", large.toString()));
+		assertEquals("<small>", utils.renderStrings(template, "name", "small"));
+	}
+
+	@Test
+	public void renderStringsPoolBounded() throws Exception {
+
+		Mustache template = utils.compile("<{{name}}>", "pooled");
+
+		// many more concurrent renders than pooled scopes, as with virtual threads
+		int renders = StringsScope.MAX_POOLED * 4;
+		CountDownLatch started = new CountDownLatch(renders);
+		ExecutorService executor = Executors.newFixedThreadPool(renders);
+		try {
+			List<Future<String>> results = new ArrayList<>();
+			for (int index = 0; index < renders; index++) {
+				String name = "name" + index;
+				results.add(executor.submit(() -> {
+					started.countDown();
+					started.await();
+					return utils.renderStrings(template, "name", name);
+				}));
+			}
+
+			for (int index = 0; index < renders; index++) {
+				assertEquals("<name" + index + ">", results.get(index).get());
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+
+		assertTrue(StringsScope.getPooled() > 0);
+		assertTrue(StringsScope.getPooled() <= StringsScope.MAX_POOLED);
+	}
+
 	@Test
 	public void testRenderTemplate() throws Exception {
 
@@ -54,4 +142,172 @@ public class MustacheUtilsTest {
 		String result = utils.render(template, data);
 		assertEquals("I'm not a resource: some.file", result);
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void renderToWriter() {
+
+		Mustache template = utils.load("/templates/hello.html");
+
+		StringWriter out = new StringWriter();
+		utils.render(template, Map.of("name", "world"), out);
+		assertEquals("Hello world!", out.toString());
+
+		out = new StringWriter();
+		utils.renderStrings(template, out, "name", "strings");
+		assertEquals("Hello strings!", out.toString());
+
+		out = new StringWriter();
+		utils.renderJson(template, "{\"name\": \"json\"}", out);
+		assertEquals("Hello json!", out.toString());
+	}
+
+	@Test
+	public void renderToOutputStream() {
+
+		Mustache template = utils.load("/templates/hello.html");
+
+		MustacheUtils buffered = new MustacheUtils();
+		buffered.setBufferSize(2);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		buffered.render(template, Map.of("name", "Žiga"), out, StandardCharsets.UTF_8);
+		assertEquals("Hello Žiga!", new String(out.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void renderToChannel() {
+
+		Mustache template = utils.load("/templates/hello.html");
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		utils.render(template, Map.of("name", "channel"), Channels.newChannel(out), StandardCharsets.ISO_8859_1);
+		assertEquals("Hello channel!", new String(out.toByteArray(), StandardCharsets.ISO_8859_1));
+	}
+
+	@Test
+	public void invalidBufferSize() {
+
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> utils.setBufferSize(0));
+		assertEquals("Buffer size must be greater than 0!", e.getMessage());
+	}
+
+	@Test
+	public void renderJsonBytes() {
+
+		Mustache template = utils.load("/templates/template.html");
+		byte[] json = "{\"name\": \"Jack\", \"years\": 13}".getBytes(StandardCharsets.UTF_8);
+
+		String expected = "Hello my name is Jack!\nI'm 13 years old.";
+		assertEquals(expected, utils.renderJson(template, json));
+
+		ByteArrayInputStream stream = new ByteArrayInputStream(json);
+		assertEquals(expected, utils.renderJson(template, stream));
+
+		assertEquals(expected, utils.renderJson(template, new StringReader(new String(json, StandardCharsets.UTF_8))));
+
+		ByteBuffer heap = ByteBuffer.wrap(json);
+		assertEquals(expected, utils.renderJson(template, heap));
+		assertEquals(0, heap.position());
+
+		ByteBuffer direct = ByteBuffer.allocateDirect(json.length);
+		direct.put(json).flip();
+		assertEquals(expected, utils.renderJson(template, direct));
+		assertEquals(0, direct.position());
+	}
+
+	@Test
+	public void renderInvalidJsonBytes() {
+
+		Mustache template = utils.load("/templates/hello.html");
+
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+		                                          () -> utils.renderJson(template, "{\"name\": ".getBytes(StandardCharsets.UTF_8)));
+		assertTrue(e.getMessage().startsWith("Failed to parse JSON data: "));
+	}
+
+	@Test
+	public void loadLargeFile(@TempDir Path directory) throws IOException {
+
+		StringBuilder content = new StringBuilder();
+		while (content.length() < TemplateReader.MAP_THRESHOLD) {
+			content.append("<p>Žiga {{name}}</p>\n");
+		}
+
+		Path file = directory.resolve("large.html");
+		Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+
+		MustacheUtils cached = new MustacheUtils(new TemplateCache());
+		Mustache template = cached.loadFile(file.toString());
+
+		String expected = content.toString().replace("{{name}}", "world");
+		assertEquals(expected, cached.render(template, Map.of("name", "world")));
+	}
+
+	@Test
+	public void loadFileWithCharset(@TempDir Path directory) throws IOException {
+
+		Path file = directory.resolve("latin2.html");
+		Files.write(file, "Živjo {{name}}!".getBytes(Charset.forName("ISO-8859-2")));
+
+		MustacheUtils latin = new MustacheUtils(new TemplateCache());
+		latin.setCharset(Charset.forName("ISO-8859-2"));
+
+		Mustache template = latin.loadFile(file.toString());
+		assertEquals("Živjo world!", latin.render(template, Map.of("name", "world")));
+
+		assertThrows(IllegalArgumentException.class, () -> latin.setCharset(null));
+	}
+
+	@Test
+	public void compileFromReader() {
+
+		Mustache template = utils.compile(new StringReader("Hello {{name}}!"), "reader");
+		assertEquals("Hello reader!", utils.render(template, Map.of("name", "reader")));
+	}
+
+	@Test
+	public void partialDependencies() {
+
+		TemplateResolver resolver = new TemplateResolver();
+		resolver.addClasspath("/");
+
+		MustacheFactoryProvider provider = new MustacheFactoryProvider();
+		provider.setResolver(resolver);
+		MustacheUtils utils = new MustacheUtils(provider);
+
+		Map<String, Object> data = new HashMap<>();
+		data.put("title", "Hi");
+		data.put("name", "Jack");
+		data.put("year", 2024);
+
+		Mustache page = utils.load("/templates/partials/page.html");
+		Mustache other = utils.load("/templates/partials/other.html"); // footer taken from partial cache
+		assertEquals("<h1>Hi</h1>Jack<p>(c) 2024</p>", utils.render(page, data));
+		assertEquals("Jack<p>(c) 2024</p>", utils.render(other, data));
+
+		String header = "/templates/partials/header.html";
+		String footer = "/templates/partials/footer.html";
+		String copyright = "/templates/partials/copyright.html";
+
+		assertEquals(new HashSet<>(Arrays.asList(header, footer, copyright)), utils.getIncludes("/templates/partials/page.html"));
+		assertEquals(new HashSet<>(Arrays.asList(footer, copyright)), utils.getIncludes("/templates/partials/other.html"));
+		assertEquals(Collections.singleton(copyright), utils.getIncludes(footer));
+
+		assertEquals(new TreeSet<>(Arrays.asList(footer, "/templates/partials/other.html", "/templates/partials/page.html")),
+		             utils.getDependents(copyright));
+		assertEquals(Collections.singleton("/templates/partials/page.html"), utils.getDependents(header));
+
+		// invalidating a partial drops it and everything including it
+		Set<String> invalidated = utils.invalidate(copyright);
+		assertEquals(new TreeSet<>(Arrays.asList(copyright, footer, "/templates/partials/other.html", "/templates/partials/page.html")),
+		             invalidated);
+
+		assertNull(utils.getCache().find(TemplateSource.CLASSPATH.key("/templates/partials/page.html")));
+		assertFalse(utils.getPartials().getNames().contains(footer));
+		assertTrue(utils.getPartials().getNames().contains(header));
+
+		Mustache reloaded = utils.load("/templates/partials/page.html");
+		assertNotSame(page, reloaded);
+		assertEquals("<h1>Hi</h1>Jack<p>(c) 2024</p>", utils.render(reloaded, data));
+	}
+}
@@ -0,0 +1,165 @@
+package com.zandero.template;
+
+import com.github.mustachejava.Mustache;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OutputBuffersTest {
+
+	@Test
+	public void estimateFollowsOutput() {
+
+		MustacheUtils utils = new MustacheUtils(new MustacheFactoryProvider());
+		Mustache template = utils.compile("{{#items}}{{.}}{{/items}}", "estimate-" + UUID.randomUUID());
+
+		assertEquals(OutputBuffers.INITIAL_SIZE, estimate(utils, template));
+
+		String large = utils.render(template, Collections.singletonMap("items", items(1000)));
+		int estimate = estimate(utils, template);
+		assertTrue(estimate >= large.length());
+
+		// smaller outputs lower estimate slowly
+		utils.render(template, Collections.singletonMap("items", items(1)));
+		assertTrue(estimate(utils, template) < estimate);
+		assertTrue(estimate(utils, template) > estimate / 2);
+	}
+
+	@Test
+	public void estimateRisesSlowlyAndIsCapped() {
+
+		MustacheUtils utils = new MustacheUtils(new MustacheFactoryProvider());
+		Mustache template = utils.compile("{{#items}}{{.}}{{/items}}", "spike-" + UUID.randomUUID());
+
+		utils.render(template, Collections.singletonMap("items", items(10)));
+		int estimate = estimate(utils, template);
+
+		// single large output raises estimate only by part of the difference
+		String large = utils.render(template, Collections.singletonMap("items", items(1000)));
+		assertTrue(estimate(utils, template) > estimate);
+		assertTrue(estimate(utils, template) < large.length() / 4);
+
+		// presize never exceeds maximum
+		Mustache huge = utils.compile("{{#items}}{{.}}{{/items}}", "huge-" + UUID.randomUUID());
+		assertTrue(utils.render(huge, Collections.singletonMap("items", items(10_000))).length() > OutputBuffers.MAX_PRESIZE);
+		assertEquals(OutputBuffers.MAX_PRESIZE, estimate(utils, huge));
+	}
+
+	@Test
+	public void estimateKeptPerTemplateAndUtils() {
+
+		MustacheUtils utils = new MustacheUtils(new MustacheFactoryProvider());
+		MustacheUtils other = new MustacheUtils(new MustacheFactoryProvider());
+
+		// same name, different templates
+		Mustache large = utils.compile("{{#items}}{{.}}{{/items}}", "same");
+		Mustache small = utils.compile("{{name}}", "same");
+
+		utils.render(large, Collections.singletonMap("items", items(1000)));
+		assertTrue(estimate(utils, large) > OutputBuffers.INITIAL_SIZE);
+		assertEquals(OutputBuffers.INITIAL_SIZE, estimate(utils, small));
+
+		// same template, other utils
+		assertEquals(OutputBuffers.INITIAL_SIZE, estimate(other, large));
+
+		// pool settings keep estimates
+		utils.setOutputBufferPool(4, 10_000);
+		assertTrue(estimate(utils, large) > OutputBuffers.INITIAL_SIZE);
+	}
+
+	@Test
+	public void layoutEstimatedApartFromTemplate() {
+
+		MustacheUtils utils = new MustacheUtils(new MustacheFactoryProvider());
+		Mustache layout = utils.compile("<html>{{{content}}}</html>", "layout-" + UUID.randomUUID());
+		Mustache page = utils.compile("{{#items}}{{.}}{{/items}}", "page-" + UUID.randomUUID());
+
+		BaseTemplate base = new BaseTemplate(utils);
+		base.put(layout);
+
+		String output = base.render("content", page, Collections.singletonMap("items", items(1000)));
+		assertTrue(utils.getOutputBuffers().estimate(layout, true) >= output.length());
+		assertEquals(OutputBuffers.INITIAL_SIZE, estimate(utils, layout));
+
+		// layout on its own
+		utils.render(layout, Collections.singletonMap("content", "x"));
+		assertEquals(OutputBuffers.INITIAL_SIZE, estimate(utils, layout));
+		assertTrue(utils.getOutputBuffers().estimate(layout, true) >= output.length());
+	}
+
+	@Test
+	public void pooledBuffersReused() throws Exception {
+
+		MustacheUtils utils = new MustacheUtils(new MustacheFactoryProvider());
+		utils.setOutputBufferPool(4, 10_000);
+
+		Mustache template = utils.compile("Hello {{name}}!", "pooled");
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<String>> results = new ArrayList<>();
+			for (int index = 0; index < 100; index++) {
+				String name = "user" + index;
+				results.add(executor.submit(() -> utils.renderStrings(template, "name", name) + utils.render(template, Collections.singletonMap("name", name))));
+			}
+
+			for (int index = 0; index < results.size(); index++) {
+				assertEquals("Hello user" + index + "!Hello user" + index + "!", results.get(index).get());
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+
+		int pooled = utils.getPooledBuffers();
+		assertTrue(pooled > 0 && pooled <= 4);
+	}
+
+	@Test
+	public void largeBuffersReleased() {
+
+		MustacheUtils utils = new MustacheUtils(new MustacheFactoryProvider());
+		utils.setOutputBufferPool(4, 1000);
+
+		Mustache template = utils.compile("{{#items}}{{.}}{{/items}}", "released-" + UUID.randomUUID());
+
+		utils.render(template, Collections.singletonMap("items", items(10)));
+		assertEquals(1, utils.getPooledBuffers());
+
+		String large = utils.render(template, Collections.singletonMap("items", items(1000)));
+		assertTrue(large.length() > 1000);
+		assertEquals(0, utils.getPooledBuffers()); // pooled buffer taken and grown too large
+
+		// estimate too large for pooled buffers, new buffer allocated and released
+		utils.render(template, Collections.singletonMap("items", items(1000)));
+		assertEquals(0, utils.getPooledBuffers());
+	}
+
+	@Test
+	public void invalidPool() {
+
+		MustacheUtils utils = new MustacheUtils(new MustacheFactoryProvider());
+		assertThrows(IllegalArgumentException.class, () -> utils.setOutputBufferPool(-1, 100));
+		assertThrows(IllegalArgumentException.class, () -> utils.setOutputBufferPool(1, 0));
+
+		utils.setOutputBufferPool(0, 0);
+		assertEquals(0, utils.getPooledBuffers());
+	}
+
+	private static int estimate(MustacheUtils utils, Mustache template) {
+		return utils.getOutputBuffers().estimate(template, false);
+	}
+
+	private static List<String> items(int count) {
+
+		List<String> items = new ArrayList<>();
+		for (int index = 0; index < count; index++) {
+			items.add("item" + index + ",");
+		}
+
+		return items;
+	}
+}
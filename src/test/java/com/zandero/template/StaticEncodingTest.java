@@ -0,0 +1,174 @@
+package com.zandero.template;
+
+import com.github.mustachejava.Code;
+import com.github.mustachejava.Mustache;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Templates with pre-encoded static text must render exactly as templates without
+ */
+public class StaticEncodingTest {
+
+	private static final String TEMPLATE = "<h1>Žiga's {{title}}</h1>\n" +
+	                                       "<ul>\n" +
+	                                       "{{#items}}\n" +
+	                                       "  <li>{{name}} – {{{html}}}</li>\n" +
+	                                       "{{/items}}\n" +
+	                                       "{{^items}}\n" +
+	                                       "  <li>none 😀</li>\n" +
+	                                       "{{/items}}\n" +
+	                                       "</ul>";
+
+	@Test
+	public void staticTextEncodedOnCompile() {
+
+		MustacheUtils utils = utils(StandardCharsets.UTF_8);
+		Mustache template = utils.compile(TEMPLATE, "static");
+
+		List<StaticCode> codes = new ArrayList<>();
+		collect(template.getCodes(), codes);
+
+		assertFalse(codes.isEmpty());
+		assertArrayEquals("<h1>Žiga's ".getBytes(StandardCharsets.UTF_8), codes.get(0).getEncoded());
+	}
+
+	@Test
+	public void renderSameAsWithoutEncoding() {
+
+		Map<String, Object> data = data();
+
+		MustacheUtils plain = new MustacheUtils(new MustacheFactoryProvider());
+		String expected = plain.render(plain.compile(TEMPLATE, "plain"), data);
+		assertTrue(expected.contains("<li>Tom &amp; Jerry – <b>bold</b></li>"));
+
+		for (Charset charset : Arrays.asList(StandardCharsets.UTF_8, StandardCharsets.UTF_16LE)) {
+
+			MustacheUtils utils = utils(charset);
+			Mustache template = utils.compile(TEMPLATE, "encoded");
+
+			assertEquals(expected, utils.render(template, data));
+			assertEquals(expected, renderToStream(utils, template, data, charset, 3));
+			assertEquals(expected, renderToStream(utils, template, data, charset, 8192));
+
+			// output charset other than pre-encoded falls back to encoding chars
+			Charset other = charset.equals(StandardCharsets.UTF_8) ? StandardCharsets.UTF_16LE : StandardCharsets.UTF_8;
+			assertEquals(expected, renderToStream(utils, template, data, other, 3));
+
+			// empty list renders inverted section
+			String none = renderToStream(utils, template, Collections.singletonMap("title", "list"), charset, 3);
+			assertTrue(none.contains("<li>none 😀</li>"));
+		}
+	}
+
+	@Test
+	public void renderBaseTemplateToStream() {
+
+		MustacheUtils utils = utils(StandardCharsets.UTF_8);
+		BaseTemplate base = new BaseTemplate(utils);
+		base.add(utils.compile("<div>{{{content}}}</div>", "base"));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		base.render("content", utils.compile("Hello {{name}}!", "inner"), Collections.singletonMap("name", "<Žiga>"), out, StandardCharsets.UTF_8);
+
+		assertEquals("<div>Hello &lt;Žiga&gt;!</div>", new String(out.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void metricsCountEncodedText() {
+
+		MustacheUtils utils = utils(StandardCharsets.UTF_8);
+		TemplateMetricsRegistry registry = new TemplateMetricsRegistry();
+		utils.setMetrics(registry);
+
+		Mustache template = utils.compile("Hello {{name}}!", "counted");
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		utils.render(template, Collections.singletonMap("name", "Žiga"), out, StandardCharsets.UTF_8);
+
+		assertEquals("Hello Žiga!", new String(out.toByteArray(), StandardCharsets.UTF_8));
+		assertEquals(11, registry.get("counted").getMaxOutputSize());
+	}
+
+	@Test
+	public void unmappableCharsReplaced() {
+
+		// pre-encoded static text and values, as String.getBytes replaces unmappable chars
+		MustacheUtils utils = utils(StandardCharsets.US_ASCII);
+		Mustache template = utils.compile("Žiga {{name}}", "ascii");
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		utils.render(template, Collections.singletonMap("name", "x 😀"), out, StandardCharsets.US_ASCII);
+		assertEquals("?iga x ?", new String(out.toByteArray(), StandardCharsets.US_ASCII));
+
+		// chars encoded while rendering
+		MustacheUtils plain = new MustacheUtils(new MustacheFactoryProvider());
+		out = new ByteArrayOutputStream();
+		plain.render(plain.compile("Žiga {{name}}", "latin"), Collections.singletonMap("name", "😀"), out, StandardCharsets.ISO_8859_1);
+		assertEquals("?iga ?", new String(out.toByteArray(), StandardCharsets.ISO_8859_1));
+	}
+
+	@Test
+	public void charsetWithByteOrderMarkRejected() {
+
+		MustacheFactoryProvider provider = new MustacheFactoryProvider();
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> provider.setStaticEncoding(StandardCharsets.UTF_16));
+		assertEquals("Static text can not be pre-encoded with: UTF-16", e.getMessage());
+
+		provider.setStaticEncoding(null);
+		assertNull(provider.getStaticEncoding());
+	}
+
+	private static MustacheUtils utils(Charset charset) {
+
+		MustacheFactoryProvider provider = new MustacheFactoryProvider();
+		provider.setStaticEncoding(charset);
+		return new MustacheUtils(provider);
+	}
+
+	private static String renderToStream(MustacheUtils utils, Mustache template, Object data, Charset charset, int bufferSize) {
+
+		utils.setBufferSize(bufferSize);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		utils.render(template, data, out, charset);
+		return new String(out.toByteArray(), charset);
+	}
+
+	private static Map<String, Object> data() {
+
+		List<Map<String, Object>> items = new ArrayList<>();
+		for (int index = 0; index < 50; index++) {
+			Map<String, Object> item = new HashMap<>();
+			item.put("name", index == 0 ? "Tom & Jerry" : "item " + index + " 😀");
+			item.put("html", "<b>bold</b>");
+			items.add(item);
+		}
+
+		Map<String, Object> data = new HashMap<>();
+		data.put("title", "list");
+		data.put("items", items);
+		return data;
+	}
+
+	private static void collect(Code[] codes, List<StaticCode> found) {
+
+		if (codes == null) {
+			return;
+		}
+
+		for (Code code : codes) {
+			if (code instanceof StaticCode) {
+				found.add((StaticCode) code);
+			}
+
+			collect(code.getCodes(), found);
+		}
+	}
+}
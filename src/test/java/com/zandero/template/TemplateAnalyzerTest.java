@@ -0,0 +1,79 @@
+package com.zandero.template;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.mustachejava.Mustache;
+import com.zandero.utils.junit.AssertFinalClass;
+import org.junit.jupiter.api.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TemplateAnalyzerTest {
+
+	MustacheUtils utils = new MustacheUtils();
+
+	@Test
+	public void isWellDefined() {
+		AssertFinalClass.isWellDefined(TemplateAnalyzer.class);
+	}
+
+	@Test
+	public void analyzeTemplate() {
+
+		Mustache template = utils.compile("{{title}} {{user.name}}{{#items}}{{name}}{{#tags}}{{.}}{{/tags}}{{/items}}{{^empty}}none{{/empty}}{{! comment }}", "analyze");
+		TemplateVariables variables = TemplateAnalyzer.analyze(template);
+
+		assertTrue(variables.isComplete());
+		assertEquals(new HashSet<>(Arrays.asList("title", "user.name", "items", "name", "tags", ".", "empty")), variables.getNames());
+		assertEquals(new HashSet<>(Arrays.asList("items", "items/tags", "empty")), variables.getSections());
+		assertTrue(variables.getPaths().contains("items/tags/."));
+		assertEquals(new HashSet<>(Arrays.asList("title", "user", "name", "items", "tags", "empty")), variables.getFields());
+
+		assertTrue(variables.isReferenced("user"));
+		assertFalse(variables.isReferenced("password"));
+
+		// names outside of sections are resolved on every render
+		assertEquals(new HashSet<>(Arrays.asList("title", "user.name", "items", "empty")), variables.getRequired());
+
+		assertSame(variables, utils.analyze(template));
+	}
+
+	@Test
+	public void partialMakesAnalysisIncomplete() {
+
+		Mustache template = utils.compile("{{title}}{{> templates/hello.html}}", "partial");
+		TemplateVariables variables = TemplateAnalyzer.analyze(template);
+
+		assertFalse(variables.isComplete());
+		assertEquals(1, variables.getPartials().size());
+		assertTrue(variables.isReferenced("anything"));
+	}
+
+	@Test
+	public void projectJson() {
+
+		Mustache template = utils.compile("{{name}}{{#items}}{{title}}{{/items}}", "project");
+		TemplateVariables variables = TemplateAnalyzer.analyze(template);
+
+		JsonNode node = JsonData.read("{\"name\": \"Jack\", \"password\": \"secret\", \"big\": {\"name\": 1, \"other\": [1, 2, 3]}, " +
+		                              "\"items\": [{\"title\": \"one\", \"body\": \"long text\"}, {\"title\": 2.5}]}", variables);
+
+		assertEquals("{\"name\":\"Jack\",\"items\":[{\"title\":\"one\"},{\"title\":2.5}]}", node.toString());
+		assertEquals("Jackone2.5", utils.render(template, node));
+
+		assertEquals("Jackone2.5", utils.renderJson(template, "{\"name\": \"Jack\", \"password\": \"secret\", \"items\": [{\"title\": \"one\"}, {\"title\": 2.5}]}"));
+	}
+
+	@Test
+	public void projectionDisabled() {
+
+		MustacheUtils all = new MustacheUtils();
+		all.setJsonProjection(false);
+		assertFalse(all.isJsonProjection());
+
+		Mustache template = all.compile("{{name}}", "all");
+		assertEquals("Jack", all.renderJson(template, "{\"name\": \"Jack\", \"other\": true}"));
+	}
+}
@@ -0,0 +1,223 @@
+package com.zandero.template;
+
+import com.github.mustachejava.Mustache;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TemplateCacheTest {
+
+	MustacheUtils utils = new MustacheUtils(new TemplateCache(0));
+
+	@Test
+	public void hitAndMiss() {
+
+		TemplateCache cache = new TemplateCache(10);
+		AtomicInteger compiled = new AtomicInteger();
+
+		Mustache first = cache.get("one", key -> {
+			compiled.incrementAndGet();
+			return utils.compile("Hello {{name}}!", key);
+		});
+
+		Mustache second = cache.get("one", key -> {
+			compiled.incrementAndGet();
+			return utils.compile("Hello {{name}}!", key);
+		});
+
+		assertSame(first, second);
+		assertEquals(1, compiled.get());
+		assertEquals(1, cache.size());
+
+		TemplateCacheStats stats = cache.stats();
+		assertEquals(1, stats.getHitCount());
+		assertEquals(1, stats.getMissCount());
+		assertEquals(1, stats.getLoadCount());
+		assertEquals(0, stats.getEvictionCount());
+		assertEquals(0.5, stats.getHitRate(), 0.0001);
+	}
+
+	@Test
+	public void evictLeastRecentlyUsed() {
+
+		AtomicLong time = new AtomicLong();
+		TemplateCache cache = new TemplateCache(2, null, time::incrementAndGet);
+
+		cache.get("one", key -> utils.compile("1", key));
+		cache.get("two", key -> utils.compile("2", key));
+		cache.get("one", key -> utils.compile("1", key)); // two is now least recently used
+		cache.get("three", key -> utils.compile("3", key));
+
+		assertEquals(2, cache.size());
+		assertNotNull(cache.find("one"));
+		assertNull(cache.find("two"));
+		assertNotNull(cache.find("three"));
+		assertEquals(1, cache.stats().getEvictionCount());
+	}
+
+	@Test
+	public void expireAfterTimeToLive() {
+
+		AtomicLong time = new AtomicLong();
+		TemplateCache cache = new TemplateCache(10, Duration.ofNanos(100), time::get);
+
+		Mustache first = cache.get("one", key -> utils.compile("1", key));
+		time.addAndGet(50);
+		assertSame(first, cache.get("one", key -> utils.compile("1", key)));
+
+		time.addAndGet(50);
+		assertNull(cache.find("one"));
+
+		Mustache reloaded = cache.get("one", key -> utils.compile("1", key));
+		assertNotSame(first, reloaded);
+		assertEquals(2, cache.stats().getLoadCount());
+		assertEquals(1, cache.stats().getEvictionCount());
+	}
+
+	@Test
+	public void disabledCache() {
+
+		TemplateCache cache = new TemplateCache(0);
+		Mustache first = cache.get("one", key -> utils.compile("1", key));
+		Mustache second = cache.get("one", key -> utils.compile("1", key));
+
+		assertNotSame(first, second);
+		assertEquals(0, cache.size());
+		assertEquals(2, cache.stats().getMissCount());
+	}
+
+	@Test
+	public void failedLoadIsNotCached() {
+
+		TemplateCache cache = new TemplateCache(10);
+
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> cache.get("broken", key -> {
+			throw new IllegalArgumentException("broken");
+		}));
+
+		assertEquals("broken", e.getMessage());
+		assertEquals(0, cache.size());
+		assertEquals(1, cache.stats().getLoadFailureCount());
+	}
+
+	@Test
+	public void loadUsesCache() {
+
+		MustacheUtils cached = new MustacheUtils(new TemplateCache());
+
+		Mustache first = cached.load("/templates/hello.html");
+		Mustache second = cached.load("/templates/hello.html");
+		assertSame(first, second);
+
+		String absolutePath = new File("src/test/local.html").getAbsolutePath();
+		cached.loadFile(absolutePath);
+		cached.loadFile(absolutePath);
+
+		assertEquals(2, cached.getCache().size());
+		assertNotNull(cached.getCache().find(TemplateSource.CLASSPATH.key("/templates/hello.html")));
+		assertNotNull(cached.getCache().find(TemplateSource.FILE.key(absolutePath)));
+		assertEquals(2, cached.getCache().stats().getHitCount());
+	}
+
+	@Test
+	public void concurrentLoadsCompileOnce() throws Exception {
+
+		TemplateCache cache = new TemplateCache(10);
+		AtomicInteger compiled = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Mustache>> results = new ArrayList<>();
+			for (int index = 0; index < 4; index++) {
+				results.add(executor.submit(() -> cache.get("slow", key -> {
+					compiled.incrementAndGet();
+					started.countDown();
+					sleep(50);
+					return utils.compile("slow", key);
+				})));
+			}
+
+			started.await();
+
+			// other keys are not blocked by a slow load
+			assertNotNull(cache.get("fast", key -> utils.compile("fast", key)));
+
+			Mustache first = results.get(0).get();
+			for (Future<Mustache> result : results) {
+				assertSame(first, result.get());
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+
+		assertEquals(1, compiled.get());
+	}
+
+	@Test
+	public void recursiveLoadFails() {
+
+		TemplateCache cache = new TemplateCache(10);
+		assertThrows(IllegalArgumentException.class, () -> cache.get("self", key -> cache.get("self", other -> utils.compile("x", other))));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void evictManyAtOnce() {
+
+		AtomicLong time = new AtomicLong();
+		TemplateCache cache = new TemplateCache(5, null, time::incrementAndGet);
+
+		for (int index = 0; index < 100; index++) {
+			String name = "template" + index;
+			cache.put(name, utils.compile(name, name));
+		}
+
+		assertEquals(5, cache.size());
+		assertEquals(95, cache.stats().getEvictionCount());
+		assertNotNull(cache.find("template99"));
+		assertNull(cache.find("template94"));
+	}
+
+	@Test
+	public void modifiedFileIsCompiledAgain() throws Exception {
+
+		File file = File.createTempFile("template", ".html");
+		file.deleteOnExit();
+		Files.write(file.toPath(), "Hello {{name}}!".getBytes(StandardCharsets.UTF_8));
+
+		MustacheUtils cached = new MustacheUtils(new TemplateCache());
+		Mustache first = cached.loadFile(file.getPath());
+		assertSame(first, cached.loadFile(file.getPath()));
+
+		Files.write(file.toPath(), "Bye {{name}}!".getBytes(StandardCharsets.UTF_8));
+		assertTrue(file.setLastModified(file.lastModified() + 2000));
+
+		Mustache second = cached.loadFile(file.getPath());
+		assertNotSame(first, second);
+		assertEquals("Bye world!", cached.render(second, Collections.singletonMap("name", "world")));
+		assertEquals(1, cached.getCache().size());
+	}
+
+	private static void sleep(long millis) {
+
+		try {
+			Thread.sleep(millis);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package com.zandero.template;
+
+import com.github.mustachejava.Mustache;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TemplateEventsTest {
+
+	@Test
+	public void recordEvents() throws Exception {
+
+		MustacheUtils utils = new MustacheUtils(new TemplateCache());
+		BaseTemplate base = new BaseTemplate(utils);
+
+		Map<String, Object> data = new HashMap<>();
+		data.put("name", "world");
+
+		List<RecordedEvent> events;
+		try (Recording recording = new Recording()) {
+
+			recording.enable("com.zandero.template.Compile");
+			recording.enable("com.zandero.template.Load");
+			recording.enable("com.zandero.template.Render");
+			recording.start();
+
+			Mustache hello = utils.load("/templates/hello.html");
+			utils.load("/templates/hello.html");
+			utils.render(hello, data);
+
+			base.add("/templates/layout.html");
+			base.render("content", hello, data);
+
+			utils.loadFile(new File("src/test/resources/templates/hello.html").getAbsolutePath());
+			utils.compile("{{name}}", "inline");
+
+			recording.stop();
+
+			Path file = Files.createTempFile("templates", ".jfr");
+			try {
+				recording.dump(file);
+				events = RecordingFile.readAllEvents(file);
+			}
+			finally {
+				Files.delete(file);
+			}
+		}
+
+		List<RecordedEvent> compiles = events(events, "com.zandero.template.Compile");
+		assertEquals(4, compiles.size());
+		assertEquals("classpath", compiles.get(0).getString("source"));
+		assertEquals("/templates/hello.html", compiles.get(0).getString("template"));
+		assertEquals("file", compiles.get(2).getString("source"));
+		assertEquals("inline", compiles.get(3).getString("source"));
+
+		List<RecordedEvent> loads = events(events, "com.zandero.template.Load");
+		assertEquals(4, loads.size());
+		assertFalse(loads.get(0).getBoolean("cached"));
+		assertTrue(loads.get(1).getBoolean("cached"));
+
+		List<RecordedEvent> renders = events(events, "com.zandero.template.Render");
+		assertEquals(3, renders.size());
+
+		assertEquals("/templates/hello.html", renders.get(0).getString("template"));
+		assertEquals("classpath", renders.get(0).getString("source"));
+		assertEquals(12, renders.get(0).getLong("outputLength"));
+		assertEquals("", renders.get(0).getString("innerTemplate"));
+
+		// inner template ends before base template
+		assertEquals("/templates/hello.html", renders.get(1).getString("template"));
+		assertEquals("/templates/layout.html", renders.get(2).getString("template"));
+		assertEquals("/templates/hello.html", renders.get(2).getString("innerTemplate"));
+		assertEquals(26, renders.get(2).getLong("outputLength"));
+		assertNotNull(renders.get(2).getThread());
+	}
+
+	@Test
+	public void templateSource() {
+
+		MustacheUtils utils = new MustacheUtils(new TemplateCache());
+
+		assertEquals(TemplateSource.CLASSPATH, utils.source(utils.load("/templates/hello.html")));
+		assertEquals(TemplateSource.FILE, utils.source(utils.loadFile("src/test/resources/templates/hello.html")));
+		assertNull(utils.source(utils.compile("{{name}}", "inline")));
+
+		// not cached by this utils
+		assertNull(new MustacheUtils(new TemplateCache()).source(utils.load("/templates/hello.html")));
+	}
+
+	private static List<RecordedEvent> events(List<RecordedEvent> events, String type) {
+
+		return events.stream()
+		             .filter(event -> type.equals(event.getEventType().getName()))
+		             .sorted((a, b) -> a.getEndTime().compareTo(b.getEndTime()))
+		             .collect(Collectors.toList());
+	}
+}
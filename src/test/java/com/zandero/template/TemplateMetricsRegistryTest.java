@@ -0,0 +1,123 @@
+package com.zandero.template;
+
+import com.github.mustachejava.Mustache;
+import org.junit.jupiter.api.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TemplateMetricsRegistryTest {
+
+	@Test
+	public void recordLoadCompileAndRender() {
+
+		TemplateMetricsRegistry registry = new TemplateMetricsRegistry();
+
+		MustacheUtils utils = new MustacheUtils(new TemplateCache());
+		utils.setMetrics(registry);
+
+		Mustache template = utils.load("/templates/hello.html");
+		utils.load("/templates/hello.html");
+
+		Map<String, String> data = new HashMap<>();
+		data.put("name", "world");
+		assertEquals("Hello world!", utils.render(template, data));
+		assertEquals("Hello Žiga!", utils.renderJson(template, "{\"name\": \"Žiga\"}"));
+
+		TemplateStats stats = registry.get("/templates/hello.html");
+		assertNotNull(stats);
+		assertEquals(1, stats.getCompileCount());
+		assertEquals(1, stats.getCacheHitCount());
+		assertEquals(1, stats.getCacheMissCount());
+		assertEquals(1, stats.getConversionCount());
+		assertEquals(2, stats.getRenderCount());
+		assertEquals(23, stats.getTotalOutputSize());
+		assertEquals(12, stats.getMaxOutputSize());
+		assertTrue(stats.getRenderTimeP50() <= stats.getRenderTimeP99());
+		assertTrue(stats.getRenderTimeP99() <= stats.getMaxRenderTime());
+
+		registry.reset();
+		assertNull(registry.get("/templates/hello.html"));
+		assertTrue(registry.getTemplates().isEmpty());
+	}
+
+	@Test
+	public void boundedNumberOfTemplates() {
+
+		TemplateMetricsRegistry registry = new TemplateMetricsRegistry(2);
+		registry.rendered("a", 10, 1);
+		registry.rendered("b", 10, 1);
+		registry.rendered("generated-1", 10, 1);
+		registry.compiled("generated-2", 10);
+
+		assertEquals(2, registry.getTemplates().size());
+		assertNull(registry.get("generated-1"));
+
+		// templates already tracked are still recorded
+		registry.rendered("a", 10, 1);
+		assertEquals(2, registry.get("a").getRenderCount());
+
+		assertThrows(IllegalArgumentException.class, () -> new TemplateMetricsRegistry(0));
+	}
+
+	@Test
+	public void recordBaseTemplate() {
+
+		TemplateMetricsRegistry registry = new TemplateMetricsRegistry();
+
+		MustacheUtils utils = new MustacheUtils(new TemplateCache());
+		utils.setMetrics(registry);
+
+		BaseTemplate base = new BaseTemplate(utils);
+		base.add("/templates/layout.html");
+
+		Map<String, Object> data = new HashMap<>();
+		data.put("name", "world");
+		assertEquals("<html>Hello world!</html>\n", base.render("content", "/templates/hello.html", data));
+
+		assertEquals(1, registry.get("/templates/layout.html").getRenderCount());
+		assertEquals(26, registry.get("/templates/layout.html").getTotalOutputSize());
+		assertEquals(12, registry.get("/templates/hello.html").getTotalOutputSize());
+	}
+
+	@Test
+	public void disabledByDefault() {
+
+		MustacheUtils utils = new MustacheUtils(new TemplateCache());
+		assertSame(TemplateMetrics.NONE, utils.getMetrics());
+
+		assertThrows(IllegalArgumentException.class, () -> utils.setMetrics(null));
+	}
+
+	@Test
+	public void histogramPercentiles() {
+
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.percentile(0.5));
+
+		for (int value = 1; value <= 1000; value++) {
+			histogram.record(value * 1000L);
+		}
+
+		assertEquals(1000, histogram.getCount());
+		assertEquals(1_000_000, histogram.getMax());
+
+		// buckets are within 1/16 of value
+		assertEquals(500_000, histogram.percentile(0.5), 500_000 / 16.0);
+		assertEquals(990_000, histogram.percentile(0.99), 990_000 / 16.0);
+		assertEquals(1_000_000, histogram.percentile(1.0));
+	}
+
+	@Test
+	public void histogramBuckets() {
+
+		for (long value : new long[]{0, 1, 15, 16, 17, 31, 32, 1000, 123_456_789, Long.MAX_VALUE}) {
+
+			int index = LatencyHistogram.index(value);
+			assertTrue(LatencyHistogram.upperBound(index) >= value, "upper bound of " + value);
+			assertTrue(index == 0 || LatencyHistogram.upperBound(index - 1) < value, "lower bound of " + value);
+		}
+	}
+}
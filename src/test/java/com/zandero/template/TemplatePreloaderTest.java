@@ -0,0 +1,125 @@
+package com.zandero.template;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TemplatePreloaderTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void preloadClasspath() {
+
+		MustacheUtils utils = new MustacheUtils(new TemplateCache());
+		TemplatePreloader preloader = new TemplatePreloader(utils);
+
+		PreloadReport report = preloader.preload("/templates");
+
+		assertTrue(report.isSuccess(), report.toString());
+		assertTrue(report.getLoaded().contains("/templates/hello.html"));
+		assertTrue(report.getLoaded().contains("/templates/layout.html"));
+		assertEquals(report.getLoaded().size(), utils.getCache().size());
+		assertNotNull(utils.getCache().find(TemplateSource.CLASSPATH.key("/templates/hello.html")));
+		assertNotNull(report.getDuration());
+	}
+
+	@Test
+	public void preloadDirectoryWithFailures() throws IOException {
+
+		write("ok.html", "Hello {{name}}");
+		write("broken.html", "Hello {{#name}}");
+		write("nested/ok.mustache", "{{name}}");
+		write("readme.txt", "not a template");
+
+		MustacheUtils utils = new MustacheUtils(new TemplateCache());
+		TemplatePreloader preloader = new TemplatePreloader(utils);
+		preloader.setParallelism(2);
+
+		PreloadReport report = preloader.preload(directory);
+
+		assertFalse(report.isSuccess());
+		assertEquals(2, report.getLoaded().size());
+		assertEquals(Collections.singleton(directory.resolve("broken.html").toAbsolutePath().normalize().toString()),
+		             report.getFailures().keySet());
+	}
+
+	@Test
+	public void warmUp() throws IOException {
+
+		write("one.html", "Hello {{name}}");
+		write("two.html", "Bye {{name}}");
+
+		AtomicInteger requested = new AtomicInteger();
+
+		TemplatePreloader preloader = new TemplatePreloader(new MustacheUtils(new TemplateCache()));
+		preloader.setWarmUp(10, path -> {
+			requested.incrementAndGet();
+			if (path.endsWith("two.html")) {
+				throw new IllegalStateException("No data");
+			}
+			return Collections.singletonMap("name", "world");
+		});
+
+		PreloadReport report = preloader.preload(directory);
+
+		assertEquals(2, requested.get());
+		assertEquals(2, report.getLoaded().size());
+		assertEquals(1, report.getFailures().size());
+		assertTrue(report.getFailures().values().iterator().next() instanceof IllegalStateException);
+	}
+
+	@Test
+	public void scanJarWithoutDirectoryEntries() throws IOException {
+
+		Path jar = directory.resolve("shaded.jar");
+		try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar), new Manifest())) {
+			for (String entry : new String[]{"templates/shaded/a.html", "templates/shaded/sub/b.mustache", "templates/shaded/c.txt"}) {
+				out.putNextEntry(new JarEntry(entry));
+				out.write("Hello {{name}}".getBytes(StandardCharsets.UTF_8));
+				out.closeEntry();
+			}
+		}
+
+		TemplatePreloader preloader = new TemplatePreloader(new MustacheUtils());
+		try (URLClassLoader loader = new URLClassLoader(new URL[]{jar.toUri().toURL()}, null)) {
+
+			assertEquals(Arrays.asList("/templates/shaded/a.html", "/templates/shaded/sub/b.mustache"), preloader.scan("/templates/shaded/", loader));
+
+			IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> preloader.scan("/missing", loader));
+			assertEquals("Classpath location not found: '/missing'", e.getMessage());
+		}
+	}
+
+	@Test
+	public void invalidSettings() {
+
+		TemplatePreloader preloader = new TemplatePreloader(new MustacheUtils());
+
+		assertThrows(IllegalArgumentException.class, () -> preloader.setParallelism(0));
+		assertThrows(IllegalArgumentException.class, () -> preloader.setWarmUp(1, null));
+		assertThrows(IllegalArgumentException.class, () -> preloader.preload(directory.resolve("missing")));
+	}
+
+	private void write(String name, String content) throws IOException {
+
+		Path file = directory.resolve(name);
+		Files.createDirectories(file.getParent());
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,50 @@
+package com.zandero.template;
+
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TemplateReaderTest {
+
+	@Test
+	public void decodeInChunks() throws IOException {
+
+		StringBuilder content = new StringBuilder();
+		for (int index = 0; index < 10_000; index++) {
+			content.append("Žiga 😀 {{name}} ").append(index).append('\n');
+		}
+
+		ByteBuffer bytes = ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8));
+		try (Reader reader = new TemplateReader.ByteBufferReader(bytes, StandardCharsets.UTF_8.newDecoder())) {
+
+			// single chars, so surrogate pairs are split between reads
+			StringBuilder out = new StringBuilder();
+			char[] buffer = new char[1];
+			int count;
+			while ((count = reader.read(buffer, 0, 1)) != -1) {
+				out.append(buffer, 0, count);
+			}
+
+			assertEquals(content.toString(), out.toString());
+			assertEquals(-1, reader.read(buffer, 0, 1));
+		}
+	}
+
+	@Test
+	public void replaceMalformedInput() throws IOException {
+
+		ByteBuffer bytes = ByteBuffer.wrap(new byte[]{(byte) 0xff, 'a'});
+		try (Reader reader = new TemplateReader.ByteBufferReader(bytes, StandardCharsets.UTF_8.newDecoder()
+		                                                                                      .onMalformedInput(CodingErrorAction.REPLACE))) {
+			char[] buffer = new char[10];
+			assertEquals(2, reader.read(buffer));
+			assertEquals("�a", new String(buffer, 0, 2));
+		}
+	}
+}
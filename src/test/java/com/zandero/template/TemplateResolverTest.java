@@ -0,0 +1,91 @@
+package com.zandero.template;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TemplateResolverTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void resolveInOrderOfRoots() throws IOException {
+
+		Path partials = Files.createDirectories(directory.resolve("templates/partials"));
+		Files.write(partials.resolve("header.html"), "<h2>{{title}}</h2>".getBytes(StandardCharsets.UTF_8));
+
+		TemplateResolver resolver = new TemplateResolver();
+		resolver.addDirectory(directory);
+		resolver.addClasspath("/");
+
+		assertEquals("<h2>{{title}}</h2>", read(resolver, "/templates/partials/header.html"));
+		assertEquals("(c) {{year}}", read(resolver, "/templates/partials/copyright.html"));
+		assertNull(resolver.getReader("/templates/partials/missing.html"));
+
+		MustacheFactoryProvider provider = new MustacheFactoryProvider();
+		provider.setResolver(resolver);
+		MustacheUtils utils = new MustacheUtils(provider);
+
+		Map<String, Object> data = new HashMap<>();
+		data.put("title", "Hi");
+		data.put("name", "Jack");
+		data.put("year", 2024);
+
+		assertEquals("<h2>Hi</h2>Jack<p>(c) 2024</p>", utils.render(utils.load("/templates/partials/page.html"), data));
+	}
+
+	@Test
+	public void resolveRelativeToClasspathLocation() throws IOException {
+
+		TemplateResolver resolver = new TemplateResolver();
+		resolver.addClasspath("/templates/partials/");
+
+		assertEquals("(c) {{year}}", read(resolver, "copyright.html"));
+		assertEquals("(c) {{year}}", read(resolver, "/copyright.html"));
+		assertNull(resolver.getReader("hello.html"));
+
+		// no root resolves against classpath root
+		assertEquals("(c) {{year}}", read(new TemplateResolver(), "templates/partials/copyright.html"));
+	}
+
+	@Test
+	public void doNotResolveOutsideOfRoot() throws IOException {
+
+		Path root = Files.createDirectories(directory.resolve("root"));
+		Files.write(directory.resolve("secret.html"), "secret".getBytes(StandardCharsets.UTF_8));
+
+		TemplateResolver resolver = new TemplateResolver();
+		resolver.addDirectory(root);
+
+		assertNull(resolver.getReader("../secret.html"));
+		assertNull(resolver.getReader("a/../../secret.html"));
+		assertNull(resolver.getReader("/"));
+
+		assertThrows(IllegalArgumentException.class, () -> resolver.addDirectory(directory.resolve("missing")));
+	}
+
+	private static String read(TemplateResolver resolver, String name) throws IOException {
+
+		try (Reader reader = resolver.getReader(name)) {
+			assertNotNull(reader, name);
+
+			StringBuilder content = new StringBuilder();
+			char[] buffer = new char[256];
+			for (int count = reader.read(buffer); count >= 0; count = reader.read(buffer)) {
+				content.append(buffer, 0, count);
+			}
+
+			return content.toString();
+		}
+	}
+}
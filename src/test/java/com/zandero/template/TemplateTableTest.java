@@ -0,0 +1,49 @@
+package com.zandero.template;
+
+import com.github.mustachejava.Mustache;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TemplateTableTest {
+
+	MustacheUtils utils = new MustacheUtils(new MustacheFactoryProvider());
+
+	@Test
+	public void valuesKeptPerInstance() {
+
+		// same name, different templates
+		Mustache first = utils.compile("{{a}}", "same");
+		Mustache second = utils.compile("{{b}}", "same");
+
+		TemplateTable<String> table = new TemplateTable<>();
+		assertNull(table.get(first));
+
+		table.put(first, "first");
+		assertEquals("first", table.get(first));
+		assertNull(table.get(second));
+
+		table.put(second, "second");
+		assertEquals("first", table.get(first));
+		assertEquals("second", table.get(second));
+
+		table.put(first, "replaced");
+		assertEquals("replaced", table.get(first));
+		assertEquals(2, table.size());
+	}
+
+	@Test
+	public void computeOnce() {
+
+		Mustache template = utils.compile("{{a}}", "compute");
+
+		AtomicInteger computed = new AtomicInteger();
+		TemplateTable<Integer> table = new TemplateTable<>();
+
+		assertEquals(1, table.computeIfAbsent(template, key -> computed.incrementAndGet()).intValue());
+		assertEquals(1, table.computeIfAbsent(template, key -> computed.incrementAndGet()).intValue());
+		assertEquals(1, computed.get());
+	}
+}
@@ -0,0 +1,188 @@
+package com.zandero.template;
+
+import com.github.mustachejava.Mustache;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TemplateWatcherTest {
+
+	@TempDir
+	Path directory;
+
+	MustacheUtils utils;
+
+	Map<String, Object> data;
+
+	@BeforeEach
+	public void setUp() {
+
+		utils = new MustacheUtils(new MustacheFactoryProvider(), new TemplateCache());
+
+		data = new HashMap<>();
+		data.put("name", "world");
+		data.put("content", "!");
+	}
+
+	@Test
+	public void reloadChangedPartial() throws IOException {
+
+		Path page = write("page.html", "{{> header}} page");
+		Path header = write("header.html", "Hello {{name}}");
+		Path other = write("other.html", "other");
+
+		Mustache previous = utils.loadFile(page.toString());
+		Mustache unrelated = utils.loadFile(other.toString());
+		assertEquals("Hello world page", utils.render(previous, data));
+
+		try (TemplateWatcher watcher = new TemplateWatcher(utils, directory)) {
+
+			write("header.html", "Bye {{name}}");
+			assertEquals(1, watcher.reload(Collections.singleton(header)));
+
+			Mustache reloaded = utils.loadFile(page.toString());
+			assertNotSame(previous, reloaded);
+			assertEquals("Bye world page", utils.render(reloaded, data));
+
+			assertSame(unrelated, utils.loadFile(other.toString()));
+			assertEquals(1, watcher.getReloadCount());
+		}
+	}
+
+	@Test
+	public void keepPreviousVersionOnFailure() throws IOException {
+
+		Path page = write("page.html", "Hello {{name}}");
+		Mustache previous = utils.loadFile(page.toString());
+
+		try (TemplateWatcher watcher = new TemplateWatcher(utils, directory)) {
+
+			write("page.html", "Hello {{#name}}");
+			assertEquals(0, watcher.reload(Collections.singleton(page)));
+
+			assertSame(previous, utils.getCache().find(TemplateSource.FILE.key(page.toString())));
+			assertTrue(watcher.getFailures().containsKey(page.toString()));
+
+			write("page.html", "Bye {{name}}");
+			assertEquals(1, watcher.reload(Collections.singleton(page)));
+
+			assertEquals("Bye world", utils.render(utils.loadFile(page.toString()), data));
+			assertTrue(watcher.getFailures().isEmpty());
+		}
+	}
+
+	@Test
+	public void servePreviousVersionWhileWatched() throws Exception {
+
+		Path page = write("page.html", "Hello {{name}}");
+		Mustache previous = utils.loadFile(page.toString());
+
+		try (TemplateWatcher watcher = new TemplateWatcher(utils, directory).start()) {
+
+			// broken save, loaded before the watcher had any chance to reload it
+			write("page.html", "Hello {{#name}}");
+			Files.setLastModifiedTime(page, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+
+			assertSame(previous, utils.loadFile(page.toString()));
+
+			long timeout = System.currentTimeMillis() + 10_000;
+			while (!watcher.getFailures().containsKey(page.toString()) && System.currentTimeMillis() < timeout) {
+				Thread.sleep(50);
+			}
+
+			assertTrue(watcher.getFailures().containsKey(page.toString()));
+			assertSame(previous, utils.loadFile(page.toString()));
+		}
+
+		// no longer watched, modified file is compiled on load
+		assertThrows(RuntimeException.class, () -> utils.loadFile(page.toString()));
+	}
+
+	@Test
+	public void replaceBaseTemplate() throws IOException {
+
+		Path layout = write("layout.html", "<b>{{{content}}}</b>");
+		write("inner.html", "Hello {{name}}");
+
+		BaseTemplate base = new BaseTemplate(utils);
+		base.add(utils.loadFile(layout.toString()));
+
+		Mustache inner = utils.loadFile(directory.resolve("inner.html").toString());
+		assertEquals("<b>Hello world</b>", base.render("content", inner, data));
+
+		try (TemplateWatcher watcher = new TemplateWatcher(utils, directory)) {
+
+			watcher.watch(base);
+
+			write("layout.html", "<i>{{{content}}}</i>");
+			assertEquals(1, watcher.reload(Collections.singleton(layout)));
+
+			assertEquals("<i>Hello world</i>", base.render("content", inner, data));
+		}
+	}
+
+	@Test
+	public void watchInBackground() throws Exception {
+
+		Path page = write("page.html", "Hello {{name}}");
+		utils.loadFile(page.toString());
+
+		try (TemplateWatcher watcher = new TemplateWatcher(utils, directory).start()) {
+
+			write("page.html", "Bye {{name}}");
+
+			long timeout = System.currentTimeMillis() + 10_000;
+			while (watcher.getReloadCount() == 0 && System.currentTimeMillis() < timeout) {
+				Thread.sleep(50);
+			}
+
+			assertEquals("Bye world", utils.render(utils.loadFile(page.toString()), data));
+		}
+	}
+
+	@Test
+	public void resourcesResolvedAgainstRoots() throws IOException {
+
+		Path templates = Files.createDirectories(directory.resolve("templates"));
+		Path nested = Files.createDirectories(templates.resolve("mail"));
+
+		try (TemplateWatcher watcher = new TemplateWatcher(utils, templates)) {
+
+			// resource relative to watched directory or its parent
+			assertTrue(watcher.matches("header.html", templates.resolve("header.html")));
+			assertTrue(watcher.matches("/templates/header.html", templates.resolve("header.html")));
+			assertTrue(watcher.matches("mail/header.html", nested.resolve("header.html")));
+
+			// file of the same name in a sub directory is another resource
+			assertFalse(watcher.matches("header.html", nested.resolve("header.html")));
+			assertFalse(watcher.matches("/templates/header.html", nested.resolve("templates/header.html")));
+
+			// templates loaded from file match by path
+			assertTrue(watcher.matches(nested.resolve("page.html").toString(), nested.resolve("page.html")));
+			assertFalse(watcher.matches(templates.resolve("page.html").toString(), nested.resolve("page.html")));
+		}
+	}
+
+	@Test
+	public void invalidDirectory() {
+
+		assertThrows(IllegalArgumentException.class, () -> new TemplateWatcher(utils));
+		assertThrows(IllegalArgumentException.class, () -> new TemplateWatcher(utils, directory.resolve("missing")));
+	}
+
+	private Path write(String name, String content) throws IOException {
+
+		Path file = directory.resolve(name).toAbsolutePath().normalize();
+		return Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+	}
+}
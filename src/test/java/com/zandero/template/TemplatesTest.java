@@ -3,7 +3,14 @@ package com.zandero.template;
 import com.zandero.utils.junit.AssertFinalClass;
 import org.junit.jupiter.api.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -29,6 +36,26 @@ public class TemplatesTest {
 		assertEquals("Hello world!", result);
 	}
 
+	@Test
+	public void setFactoryProvider() {
+
+		MustacheUtils previous = Templates.mustache;
+		try {
+			MustacheFactoryProvider factory = new MustacheFactoryProvider(MustacheFactoryProvider.Mode.PER_THREAD);
+			Templates.setFactoryProvider(factory);
+
+			Map<String, Object> data = new HashMap<>();
+			data.put("name", "world");
+			assertEquals("Hello world!", Templates.render("/templates/hello.html", data));
+			assertEquals(1, factory.getFactoryCount());
+
+			assertThrows(IllegalArgumentException.class, () -> Templates.setFactoryProvider(null));
+		}
+		finally {
+			Templates.mustache = previous;
+		}
+	}
+
 	@Test
 	public void renderLocalFile() throws Exception {
 
@@ -39,6 +66,14 @@ public class TemplatesTest {
 		String result = Templates.renderFile(absolutePath, data);
 
 		assertEquals("I'm not a resource: " + absolutePath, result);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Templates.renderFile(absolutePath, data, out, StandardCharsets.UTF_8);
+		assertEquals(result, new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+		out = new ByteArrayOutputStream();
+		Templates.renderFile(absolutePath, data, Channels.newChannel(out), StandardCharsets.UTF_8);
+		assertEquals(result, new String(out.toByteArray(), StandardCharsets.UTF_8));
 	}
 
 	@Test
@@ -50,15 +85,32 @@ public class TemplatesTest {
 		result = Templates.renderJson("/templates/template.html", "{\"name\": \"Jack\", \"years\": 13}");
 		assertEquals("Hello my name is Jack!\n" +
 		             "I'm 13 years old.", result);
+
+		byte[] json = "{\"name\": \"Žiga\"}".getBytes(StandardCharsets.UTF_8);
+		assertEquals("Hello Žiga!", Templates.renderJson("/templates/hello.html", json));
+		assertEquals("Hello Žiga!", Templates.renderJson("/templates/hello.html", new ByteArrayInputStream(json)));
+		assertEquals("Hello Žiga!", Templates.renderJson("/templates/hello.html", new StringReader("{\"name\": \"Žiga\"}")));
+
+		ByteBuffer buffer = ByteBuffer.wrap(json);
+		assertEquals("Hello Žiga!", Templates.renderJson("/templates/hello.html", buffer));
+		assertEquals(0, buffer.position());
 	}
 
 	@Test
 	public void renderFileJson() throws Exception {
 
 		String absolutePath = new File("src/test/local.html").getAbsolutePath();
-		String result = Templates.renderFileJson(absolutePath, "{\"file\": \"" + absolutePath + "\"}");
+		String json = "{\"file\": \"" + absolutePath + "\"}";
+		String result = Templates.renderFileJson(absolutePath, json);
 
-		assertEquals("I'm not a resource: " + absolutePath, result);
+		String expected = "I'm not a resource: " + absolutePath;
+		assertEquals(expected, result);
+
+		byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+		assertEquals(expected, Templates.renderFileJson(absolutePath, bytes));
+		assertEquals(expected, Templates.renderFileJson(absolutePath, new ByteArrayInputStream(bytes)));
+		assertEquals(expected, Templates.renderFileJson(absolutePath, ByteBuffer.wrap(bytes)));
+		assertEquals(expected, Templates.renderFileJson(absolutePath, new StringReader(json)));
 	}
 
 	@Test
@@ -67,4 +119,15 @@ public class TemplatesTest {
 		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> Templates.renderFileJson("/notThere", "{\"file\": \"missing\"}"));
 		assertEquals("File not found: '/notThere'", e.getMessage());
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void renderToWriter() {
+
+		Map<String, Object> data = new HashMap<>();
+		data.put("name", "world");
+
+		StringWriter out = new StringWriter();
+		Templates.render("/templates/hello.html", data, out);
+		assertEquals("Hello world!", out.toString());
+	}
+}
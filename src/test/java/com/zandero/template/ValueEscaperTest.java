@@ -0,0 +1,99 @@
+package com.zandero.template;
+
+import com.github.mustachejava.Mustache;
+import com.github.mustachejava.util.HtmlEscaper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HTML escaper must produce the same output as escaping of mustache
+ */
+public class ValueEscaperTest {
+
+	@Test
+	public void escapeSpecialChars() throws IOException {
+
+		assertEquals("&lt;a href&#61;&quot;x&quot;&gt;Tom &amp; Jerry&#39;s &#96;show&#96;&lt;/a&gt;", escape("<a href=\"x\">Tom & Jerry's `show`</a>"));
+		assertEquals("line&#10;next&#13;&#9;tab", escape("line\nnext\r\ttab"));
+		assertEquals("&amp;&amp;", escape("&&"));
+		assertEquals("", escape(""));
+	}
+
+	@Test
+	public void cleanValueWrittenAsIs() throws IOException {
+
+		String[] written = new String[1];
+		StringWriter writer = new StringWriter() {
+			@Override
+			public void write(String value) {
+				written[0] = value;
+				super.write(value);
+			}
+		};
+
+		String value = "Žiga 123 ~ {clean} 😀";
+		ValueEscaper.HTML.escape(value, writer);
+
+		assertSame(value, written[0]);
+		assertEquals(value, writer.toString());
+	}
+
+	@Test
+	public void sameAsMustache() throws IOException {
+
+		Random random = new Random(42);
+		char[] chars = "abc <>&\"'`=\n\r\t\u0000\u0001~Ž😀".toCharArray();
+
+		for (int run = 0; run < 1000; run++) {
+
+			StringBuilder value = new StringBuilder();
+			int length = random.nextInt(40);
+			for (int index = 0; index < length; index++) {
+				value.append(chars[random.nextInt(chars.length)]);
+			}
+
+			StringWriter expected = new StringWriter();
+			HtmlEscaper.escape(value.toString(), expected);
+
+			assertEquals(expected.toString(), escape(value.toString()));
+		}
+	}
+
+	@Test
+	public void renderWithEscaper() {
+
+		MustacheUtils utils = new MustacheUtils(new MustacheFactoryProvider());
+		Mustache template = utils.compile("{{value}} {{{value}}}", "escaped");
+		assertEquals("&lt;b&gt; <b>", utils.renderStrings(template, "value", "<b>"));
+
+		MustacheFactoryProvider provider = new MustacheFactoryProvider();
+		provider.setEscaper((value, writer) -> writer.write(value.toUpperCase()));
+
+		MustacheUtils custom = new MustacheUtils(provider);
+		assertEquals("<B> <b>", custom.renderStrings(custom.compile("{{value}} {{{value}}}", "custom"), "value", "<b>"));
+	}
+
+	@Test
+	public void mustacheEscaping() {
+
+		MustacheFactoryProvider provider = new MustacheFactoryProvider();
+		provider.setEscaper(null);
+		assertNull(provider.getEscaper());
+
+		MustacheUtils utils = new MustacheUtils(provider);
+		assertEquals("Tom &amp; Jerry", utils.render(utils.compile("{{value}}", "mustache"), Collections.singletonMap("value", "Tom & Jerry")));
+	}
+
+	private static String escape(String value) throws IOException {
+
+		StringWriter writer = new StringWriter();
+		ValueEscaper.HTML.escape(value, writer);
+		return writer.toString();
+	}
+}